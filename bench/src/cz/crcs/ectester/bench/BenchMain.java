@@ -0,0 +1,28 @@
+package cz.crcs.ectester.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON into <code>ectester-bench.json</code>
+ * unless another result format or file is given. All the usual JMH options apply, see <code>-h</code>.
+ * <p>
+ * For example, <code>java -jar ECTesterBench.jar -p library=BouncyCastle,SunEC -p curve=secg/secp256r1 Signature</code>.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class BenchMain {
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add(0, "-rf");
+            arguments.add(1, "json");
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.add(0, "-rff");
+            arguments.add(1, "ectester-bench.json");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
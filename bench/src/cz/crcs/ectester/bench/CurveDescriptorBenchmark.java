@@ -0,0 +1,82 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.common.ec.EC_Curve;
+import cz.crcs.ectester.data.EC_Store;
+import cz.crcs.ectester.standalone.libs.jni.CurveDescriptor;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.spec.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing a curve into a {@link CurveDescriptor} for the native shims, and getting the memoized
+ * descriptor, which is what is paid on every native call with the same parameters, be it the same spec instance
+ * or a new one with the same parameters, as carried by every key a native library generates.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CurveDescriptorBenchmark {
+    @Param({"secg/secp256r1", "secg/secp521r1", "secg/sect571r1"})
+    public String curve;
+
+    private ECParameterSpec spec;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        spec = EC_Store.getInstance().getObject(EC_Curve.class, curve).toSpec();
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return CurveDescriptor.serialize(spec);
+    }
+
+    @Benchmark
+    public ByteBuffer memoized() {
+        return CurveDescriptor.of(spec);
+    }
+
+    /**
+     * Building the new spec, which the native key generator does for every key anyway, the baseline
+     * of {@link #memoizedFreshSpec()}.
+     */
+    @Benchmark
+    public ECParameterSpec freshSpec() {
+        return copy(spec);
+    }
+
+    @Benchmark
+    public ByteBuffer memoizedFreshSpec() {
+        return CurveDescriptor.of(copy(spec));
+    }
+
+    /**
+     * @return A copy of the spec sharing no objects with it, like the one a native key generator creates for a key.
+     */
+    private static ECParameterSpec copy(ECParameterSpec spec) {
+        EllipticCurve curve = spec.getCurve();
+        ECField field = curve.getField();
+        ECField fieldCopy;
+        if (field instanceof ECFieldFp) {
+            fieldCopy = new ECFieldFp(copy(((ECFieldFp) field).getP()));
+        } else {
+            ECFieldF2m f2m = (ECFieldF2m) field;
+            fieldCopy = new ECFieldF2m(f2m.getM(), copy(f2m.getReductionPolynomial()));
+        }
+        EllipticCurve curveCopy = new EllipticCurve(fieldCopy, copy(curve.getA()), copy(curve.getB()));
+        ECPoint generator = new ECPoint(copy(spec.getGenerator().getAffineX()), copy(spec.getGenerator().getAffineY()));
+        return new ECParameterSpec(curveCopy, generator, copy(spec.getOrder()), spec.getCofactor());
+    }
+
+    private static BigInteger copy(BigInteger value) {
+        return new BigInteger(value.toByteArray());
+    }
+}
@@ -0,0 +1,121 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.standalone.consts.KeyAgreementIdent;
+import cz.crcs.ectester.standalone.consts.KeyPairGeneratorIdent;
+import cz.crcs.ectester.standalone.consts.SignatureIdent;
+import cz.crcs.ectester.standalone.libs.ProviderECLibrary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.KeyAgreement;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the time of an operation of a native library into the time spent in the library itself
+ * (as measured by the native timing of the shim, around the library call only) and the rest, which is
+ * spent in the JCA, the marshalling of the keys and curve across JNI and the conversions in the shim.
+ * <p>
+ * The split is reported as the secondary metrics <code>cryptoNs</code> and <code>overheadNs</code>, the total
+ * durations over the <code>calls</code> measured operations. Libraries without native timing support (the Java ones) fail the setup
+ * and are skipped. See {@link CurveDescriptorBenchmark} for the cost of passing the curve.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-exports", "jdk.crypto.ec/sun.security.ec=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class JniOverheadBenchmark {
+    @Param({"generate", "agree", "sign", "verify"})
+    public String operation;
+
+    private ProviderECLibrary lib;
+    private KeyPairGenerator kpg;
+    private KeyAgreement ka;
+    private Signature sig;
+    private KeyPair ours;
+    private KeyPair theirs;
+    private byte[] data;
+    private byte[] signature;
+
+    /**
+     * JMH sums event counters over the iterations, so these are totals over the trial, divide them by
+     * <code>calls</code> to get the mean split of one operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Split {
+        public long calls;
+        public long cryptoNs;
+        public long overheadNs;
+
+        void add(long total, long crypto) {
+            calls++;
+            cryptoNs += crypto;
+            overheadNs += total - crypto;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState state) throws GeneralSecurityException {
+        lib = state.lib;
+        if (!lib.getNativeTimingSupport().contains("monotonic") || !lib.setNativeTimingType("monotonic")) {
+            throw new IllegalStateException("Library " + state.library + " does not support native timing.");
+        }
+
+        kpg = KeyPairGeneratorIdent.get("EC").getInstance(state.provider);
+        kpg.initialize(state.spec);
+        ours = kpg.generateKeyPair();
+        theirs = kpg.generateKeyPair();
+
+        data = new byte[32];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        switch (operation) {
+            case "agree":
+                ka = KeyAgreementIdent.get("ECDH").getInstance(state.provider);
+                break;
+            case "sign":
+            case "verify":
+                sig = SignatureIdent.get("NONEwithECDSA").getInstance(state.provider);
+                sig.initSign(ours.getPrivate());
+                sig.update(data);
+                signature = sig.sign();
+                break;
+        }
+    }
+
+    @Benchmark
+    public void operation(Split split, Blackhole bh) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        switch (operation) {
+            case "generate":
+                bh.consume(kpg.generateKeyPair());
+                break;
+            case "agree":
+                ka.init(ours.getPrivate());
+                ka.doPhase(theirs.getPublic(), true);
+                bh.consume(ka.generateSecret());
+                break;
+            case "sign":
+                sig.initSign(ours.getPrivate());
+                sig.update(data);
+                bh.consume(sig.sign());
+                break;
+            case "verify":
+                sig.initVerify(ours.getPublic());
+                sig.update(data);
+                bh.consume(sig.verify(signature));
+                break;
+        }
+        long total = System.nanoTime() - start;
+        split.add(total, lib.getLastNativeTiming());
+    }
+}
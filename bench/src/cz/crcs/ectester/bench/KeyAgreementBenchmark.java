@@ -0,0 +1,53 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.standalone.consts.KeyAgreementIdent;
+import cz.crcs.ectester.standalone.consts.KeyPairGeneratorIdent;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.KeyAgreement;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a key agreement (by default plain ECDH) between two fixed keypairs,
+ * generated once per trial so that keypair generation is not measured.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-exports", "jdk.crypto.ec/sun.security.ec=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class KeyAgreementBenchmark {
+    @Param({"ECDH"})
+    public String algorithm;
+
+    private KeyAgreement ka;
+    private KeyPair ours;
+    private KeyPair theirs;
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState state) throws GeneralSecurityException {
+        KeyPairGenerator kpg = KeyPairGeneratorIdent.get("EC").getInstance(state.provider);
+        kpg.initialize(state.spec);
+        ours = kpg.generateKeyPair();
+        theirs = kpg.generateKeyPair();
+
+        KeyAgreementIdent ident = KeyAgreementIdent.get(algorithm);
+        if (ident == null) {
+            throw new IllegalArgumentException("Unknown key agreement " + algorithm + ".");
+        }
+        ka = ident.getInstance(state.provider);
+    }
+
+    @Benchmark
+    public byte[] agree() throws GeneralSecurityException {
+        ka.init(ours.getPrivate());
+        ka.doPhase(theirs.getPublic(), true);
+        return ka.generateSecret();
+    }
+}
@@ -0,0 +1,35 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.standalone.consts.KeyPairGeneratorIdent;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks EC keypair generation.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-exports", "jdk.crypto.ec/sun.security.ec=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class KeyPairGeneratorBenchmark {
+    private KeyPairGenerator kpg;
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState state) throws GeneralSecurityException {
+        kpg = KeyPairGeneratorIdent.get("EC").getInstance(state.provider);
+        kpg.initialize(state.spec);
+    }
+
+    @Benchmark
+    public KeyPair generate() {
+        return kpg.generateKeyPair();
+    }
+}
@@ -0,0 +1,53 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.common.ec.EC_Curve;
+import cz.crcs.ectester.data.EC_Store;
+import cz.crcs.ectester.standalone.libs.LibraryDescriptor;
+import cz.crcs.ectester.standalone.libs.ProviderECLibrary;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Provider;
+import java.security.spec.ECParameterSpec;
+
+/**
+ * The library and curve a benchmark runs with, loaded once per benchmark run.
+ * <p>
+ * Libraries that cannot be loaded (e.g. because their native shim was not built) and curves
+ * that a library does not support make the setup fail, JMH then reports the failure and moves on
+ * to the next combination of parameters.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+    @Param({"SunEC", "BouncyCastle", "libtomcrypt", "Botan", "Crypto++", "OpenSSL", "BoringSSL", "libgcrypt",
+            "Microsoft CNG", "wolfCrypt", "mbedTLS", "IPP-Crypto", "MatrixSSL", "Nettle", "LibreSSL"})
+    public String library;
+
+    @Param({"secg/secp256r1", "secg/secp384r1", "secg/secp521r1", "brainpool/brainpoolP256r1"})
+    public String curve;
+
+    public ProviderECLibrary lib;
+    public Provider provider;
+    public ECParameterSpec spec;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (LibraryDescriptor desc : LibraryDescriptor.all()) {
+            if (desc.getName().equals(library)) {
+                lib = desc.load();
+                break;
+            }
+        }
+        if (lib == null) {
+            throw new IllegalStateException("Library " + library + " could not be loaded.");
+        }
+        provider = lib.getProvider();
+
+        EC_Curve c = EC_Store.getInstance().getObject(EC_Curve.class, curve);
+        if (c == null) {
+            throw new IllegalArgumentException("Unknown curve " + curve + ".");
+        }
+        spec = c.toSpec();
+    }
+}
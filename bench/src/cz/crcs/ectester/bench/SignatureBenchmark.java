@@ -0,0 +1,66 @@
+package cz.crcs.ectester.bench;
+
+import cz.crcs.ectester.standalone.consts.KeyPairGeneratorIdent;
+import cz.crcs.ectester.standalone.consts.SignatureIdent;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing and verification of a fixed message with a fixed keypair,
+ * generated once per trial so that keypair generation is not measured.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-exports", "jdk.crypto.ec/sun.security.ec=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class SignatureBenchmark {
+    @Param({"SHA256withECDSA"})
+    public String algorithm;
+
+    private Signature sig;
+    private KeyPair keyPair;
+    private byte[] data;
+    private byte[] signature;
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState state) throws GeneralSecurityException {
+        KeyPairGenerator kpg = KeyPairGeneratorIdent.get("EC").getInstance(state.provider);
+        kpg.initialize(state.spec);
+        keyPair = kpg.generateKeyPair();
+
+        SignatureIdent ident = SignatureIdent.get(algorithm);
+        if (ident == null) {
+            throw new IllegalArgumentException("Unknown signature " + algorithm + ".");
+        }
+        sig = ident.getInstance(state.provider);
+
+        data = new byte[64];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        signature = sign();
+    }
+
+    @Benchmark
+    public byte[] sign() throws GeneralSecurityException {
+        sig.initSign(keyPair.getPrivate());
+        sig.update(data);
+        return sig.sign();
+    }
+
+    @Benchmark
+    public boolean verify() throws GeneralSecurityException {
+        sig.initVerify(keyPair.getPublic());
+        sig.update(data);
+        return sig.verify(signature);
+    }
+}
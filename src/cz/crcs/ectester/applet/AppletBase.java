@@ -34,6 +34,8 @@ public abstract class AppletBase extends Applet {
     public static final byte INS_SET_DRY_RUN_MODE = (byte) 0x79;
     public static final byte INS_BUFFER = (byte) 0x7a;
     public static final byte INS_PERFORM = (byte) 0x7b;
+    public static final byte INS_GENERATE_ECDH = (byte) 0x7c;
+    public static final byte INS_ECDSA_SIGN_BATCH = (byte) 0x7d;
 
     // PARAMETERS for P1 and P2
     public static final byte KEYPAIR_LOCAL = (byte) 0x01;
@@ -46,6 +48,9 @@ public abstract class AppletBase extends Applet {
     public static final byte MODE_NORMAL = (byte) 0xaa;
     public static final byte MODE_DRY_RUN = (byte) 0xbb;
 
+    // FEATURES reported in INS_GET_INFO
+    public static final short FEATURE_PERFORM_DATA = (short) 0x0001;
+
     // STATUS WORDS
     public static final short SW_SIG_VERIFY_FAIL = (short) 0x0ee1;
     public static final short SW_DH_DHC_MISMATCH = (short) 0x0ee2;
@@ -183,11 +188,19 @@ public abstract class AppletBase extends Applet {
                     apdu.setOutgoingAndSend((short) 0, (short) 0);
                     return;
                 } else {
-                    apduEnd = 0;
                     if (ins == INS_PERFORM) {
+                        // The perform command can carry the last chunk of the buffered command.
+                        short read = readAPDU(apdu, true);
+                        apduEnd = 0;
+                        if (read == -1) {
+                            ISOException.throwIt(SW_CANNOT_FIT);
+                            return;
+                        }
                         ins = apduArray[ISO7816.OFFSET_INS];
-                        apdu.setIncomingAndReceive();
+                        // A buffered command is at least 255 bytes long, so a zero Lc byte means extended length.
+                        cdata = apduArray[ISO7816.OFFSET_LC] == 0 ? CDATA_EXTENDED : CDATA_BASIC;
                     } else {
+                        apduEnd = 0;
                         if (readAPDU(apdu, false) == -1) {
                             ISOException.throwIt(SW_CANNOT_FIT);
                             return;
@@ -245,6 +258,13 @@ public abstract class AppletBase extends Applet {
                     case INS_SET_DRY_RUN_MODE:
                         length = insSetDryRunMode(apdu);
                         break;
+                    case INS_GENERATE_ECDH:
+                        length = insGenerateECDH(apdu);
+                        break;
+                    case INS_ECDSA_SIGN_BATCH:
+                        // Sends its own (possibly extended length) response.
+                        insECDSA_signBatch(apdu);
+                        return;
                     default:
                         // The INS code is not supported by the dispatcher
                         ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
@@ -286,6 +306,10 @@ public abstract class AppletBase extends Applet {
 
         /* How much stuff is in apduBuffer */
         short read = apdu.setIncomingAndReceive();
+        if (skipHeader && read == 0) {
+            /* No data, the Lc byte might be an Le byte. */
+            return 0;
+        }
         short cdataOffset = getOffsetCdata(apdu);
         read += cdataOffset;
 
@@ -516,7 +540,42 @@ public abstract class AppletBase extends Applet {
         short transformation = Util.getShort(apduArray, (short) (cdata + 1));
         byte type = apduArray[(short) (cdata + 3)];
 
-        return ecdh(pubkey, privkey, export, transformation, type, apdu.getBuffer(), (short) 0);
+        return (short) (2 + ecdh(pubkey, privkey, export, transformation, type, apdu.getBuffer(), (short) 0, (short) 2));
+    }
+
+    /**
+     * Generates the keyPairs specified in P1, exports the remote pubkey and the local privkey and performs ECDH
+     * between them, all in one APDU.
+     * returns generate SWs, export SWs, deriveSecret SW, short wLength, byte[] w, short sLength, byte[] s,
+     * {@code if(export == EXPORT_TRUE)} => short secretlen, byte[] secret
+     *
+     * @param apdu P1   = byte keyPair (KEYPAIR_* | ...)
+     *             P2   = byte export (EXPORT_TRUE || EXPORT_FALSE)
+     *             DATA = short transformation (EC_Consts.TRANSFORMATION_* | ...)
+     *             byte type (EC_Consts.KA_* | ...)
+     * @return length of response
+     */
+    private short insGenerateECDH(APDU apdu) {
+        byte keyPair = apduArray[ISO7816.OFFSET_P1];
+        byte export = apduArray[ISO7816.OFFSET_P2];
+        short transformation = Util.getShort(apduArray, cdata);
+        byte type = apduArray[(short) (cdata + 2)];
+        byte[] apdubuf = apdu.getBuffer();
+
+        short swOffset = 0;
+        if ((keyPair & KEYPAIR_LOCAL) != 0) {
+            swOffset += generate(localKeypair, apdubuf, swOffset);
+        }
+        if ((keyPair & KEYPAIR_REMOTE) != 0) {
+            swOffset += generate(remoteKeypair, apdubuf, swOffset);
+        }
+
+        short len = (short) (swOffset + 6);
+        len += export(remoteKeypair, EC_Consts.KEY_PUBLIC, EC_Consts.PARAMETER_W, apdubuf, swOffset, len);
+        len += export(localKeypair, EC_Consts.KEY_PRIVATE, EC_Consts.PARAMETER_S, apdubuf, (short) (swOffset + 2), len);
+        len += ecdh(KEYPAIR_REMOTE, KEYPAIR_LOCAL, export, transformation, type, apdubuf, (short) (swOffset + 4), len);
+
+        return len;
     }
 
     /**
@@ -590,6 +649,34 @@ public abstract class AppletBase extends Applet {
         return len;
     }
 
+    /**
+     * Signs the data provided or random, P2 times, using the keyPair in P1(local/remote). Packs as many
+     * signatures as fit into the response, which is limited by Le and the size of the apduArray, no signature
+     * is made unless a signature of the maximal length still fits. Signing stops at the first failure. JavaCard has no timer API, so the individual signatures cannot be timed.
+     * returns ecdsa SW, {short signature_length, byte[] signature} for every signature made
+     *
+     * @param apdu P1   = byte keyPair (KEYPAIR_LOCAL || KEYPAIR_REMOTE)
+     *             P2   = byte count
+     *             DATA = byte sigType
+     *             short dataLength (00 = random data generated once, !00 = data length)
+     *             byte[] data
+     */
+    private void insECDSA_signBatch(APDU apdu) {
+        byte keyPair = apduArray[ISO7816.OFFSET_P1];
+        short count = (short) (apduArray[ISO7816.OFFSET_P2] & 0xff);
+        byte sigType = apduArray[cdata];
+
+        KeyPair sign = ((keyPair & KEYPAIR_LOCAL) != 0) ? localKeypair : remoteKeypair;
+        short capacity = apdu.setOutgoing();
+        if (capacity <= 0 || capacity > (short) apduArray.length) {
+            capacity = (short) apduArray.length;
+        }
+        short length = ecdsa_signBatch(sign, sigType, count, apduArray, (short) (cdata + 1), apduArray, (short) 0, capacity);
+
+        apdu.setOutgoingLength(length);
+        apdu.sendBytesLong(apduArray, (short) 0, length);
+    }
+
     /**
      * @param apdu P1   = byte keyPair (KEYPAIR_*)
      *             P2   = byte sigType
@@ -805,10 +892,11 @@ public abstract class AppletBase extends Applet {
      * @param transformation whether to transform the pubkey before ECDH
      * @param type           KeyAgreement type to test
      * @param outBuffer      buffer to write sw to, and export ECDH secret {@code if(export == EXPORT_TRUE)}
+     * @param swOffset       offset to output sw to buffer
      * @param outOffset      output offset in buffer
-     * @return length of data written to the buffer
+     * @return length of data written to the buffer, not counting the sw
      */
-    private short ecdh(byte pubkey, byte privkey, byte export, short transformation, byte type, byte[] outBuffer, short outOffset) {
+    private short ecdh(byte pubkey, byte privkey, byte export, short transformation, byte type, byte[] outBuffer, short swOffset, short outOffset) {
         short length = 0;
 
         KeyPair pub = ((pubkey & KEYPAIR_LOCAL) != 0) ? localKeypair : remoteKeypair;
@@ -823,8 +911,7 @@ public abstract class AppletBase extends Applet {
                 secretLength = keyTester.testKA(priv, pub, ramArray, (short) 0, ramArray2, (short) 0, transformation);
             }
         }
-        Util.setShort(outBuffer, outOffset, keyTester.getSW());
-        length += 2;
+        Util.setShort(outBuffer, swOffset, keyTester.getSW());
 
         if ((export == EXPORT_TRUE)) {
             Util.setShort(outBuffer, (short) (outOffset + length), secretLength);
@@ -863,6 +950,25 @@ public abstract class AppletBase extends Applet {
         return length;
     }
 
+    /**
+     * Load the data to sign into ramArray, random data if none is given.
+     *
+     * @param inBuffer buffer to read dataLength and data to sign from
+     * @param inOffset input offset in buffer
+     * @return length of the data to sign
+     */
+    private short loadSignData(byte[] inBuffer, short inOffset) {
+        short dataLength = Util.getShort(inBuffer, inOffset);
+        if (dataLength == 0) { //no data to sign
+            //generate random
+            dataLength = 64;
+            randomData.generateData(ramArray, (short) 0, dataLength);
+        } else {
+            Util.arrayCopyNonAtomic(inBuffer, (short) (inOffset + 2), ramArray, (short) 0, dataLength);
+        }
+        return dataLength;
+    }
+
     /**
      * @param sign      keyPair to use for signing and verification
      * @param sigType   Signature type to use
@@ -876,14 +982,7 @@ public abstract class AppletBase extends Applet {
     private short ecdsa(KeyPair sign, byte sigType, byte export, byte[] inBuffer, short inOffset, byte[] outBuffer, short outOffset) {
         short length = 0;
 
-        short dataLength = Util.getShort(inBuffer, inOffset);
-        if (dataLength == 0) { //no data to sign
-            //generate random
-            dataLength = 64;
-            randomData.generateData(ramArray, (short) 0, dataLength);
-        } else {
-            Util.arrayCopyNonAtomic(inBuffer, (short) (inOffset + 2), ramArray, (short) 0, dataLength);
-        }
+        short dataLength = loadSignData(inBuffer, inOffset);
 
         short signatureLength = 0;
         if (keyTester.getSigType() == sigType) {
@@ -911,14 +1010,7 @@ public abstract class AppletBase extends Applet {
     private short ecdsa_sign(KeyPair sign, byte sigType, byte export, byte[] inBuffer, short inOffset, byte[] outBuffer, short outOffset) {
         short length = 0;
 
-        short dataLength = Util.getShort(inBuffer, inOffset);
-        if (dataLength == 0) { //no data to sign
-            //generate random
-            dataLength = 64;
-            randomData.generateData(ramArray, (short) 0, dataLength);
-        } else {
-            Util.arrayCopyNonAtomic(inBuffer, (short) (inOffset + 2), ramArray, (short) 0, dataLength);
-        }
+        short dataLength = loadSignData(inBuffer, inOffset);
 
         short signatureLength = 0;
         if (keyTester.getSigType() == sigType) {
@@ -943,6 +1035,52 @@ public abstract class AppletBase extends Applet {
         return length;
     }
 
+    /**
+     * @param sign      keyPair to use for signing
+     * @param sigType   Signature type to use
+     * @param count     how many signatures to make at most
+     * @param inBuffer  buffer to read dataLength and data to sign from
+     * @param inOffset  input offset in buffer
+     * @param outBuffer buffer to write sw and the signatures to, may be the same as inBuffer
+     * @param outOffset output offset in buffer
+     * @param capacity  how much data can be written to outBuffer
+     * @return length of data written to the buffer
+     */
+    private short ecdsa_signBatch(KeyPair sign, byte sigType, short count, byte[] inBuffer, short inOffset, byte[] outBuffer, short outOffset, short capacity) {
+        short dataLength = loadSignData(inBuffer, inOffset);
+
+        short allocateSW = ISO7816.SW_NO_ERROR;
+        if (keyTester.getSigType() != sigType) {
+            allocateSW = keyTester.allocateSig(sigType);
+        }
+
+        short length = 2;
+        short sw = allocateSW;
+        if (allocateSW == ISO7816.SW_NO_ERROR) {
+            // Only sign if the longest possible DER signature, with its length, still fits, so that every
+            // signature made is returned. The order may be a byte longer than the field.
+            short orderLength = (short) ((short) ((short) (sign.getPrivate().getSize() + 7) / 8) + 1);
+            short maxLength = (short) (2 + 3 + 2 * (2 + 1 + orderLength));
+            for (short i = 0; i < count; ++i) {
+                if ((short) (length + maxLength) > capacity) {
+                    break;
+                }
+                short signatureLength = keyTester.testECDSA_sign((ECPrivateKey) sign.getPrivate(), ramArray, (short) 0, dataLength, ramArray2, (short) 0);
+                sw = keyTester.getSW();
+                if (sw != ISO7816.SW_NO_ERROR) {
+                    break;
+                }
+                Util.setShort(outBuffer, (short) (outOffset + length), signatureLength);
+                length += 2;
+                Util.arrayCopyNonAtomic(ramArray2, (short) 0, outBuffer, (short) (outOffset + length), signatureLength);
+                length += signatureLength;
+            }
+        }
+        Util.setShort(outBuffer, outOffset, sw);
+
+        return length;
+    }
+
     private short ecdsa_verify(KeyPair verify, byte sigType, byte[] inBuffer, short inOffset, byte[] outBuffer, short outOffset) {
         short length = 0;
 
@@ -1010,6 +1148,8 @@ public abstract class AppletBase extends Applet {
         length += 2;
         Util.setShort(buffer, (short) (offset + length), (short) apduArray.length);
         length += 2;
+        Util.setShort(buffer, (short) (offset + length), FEATURE_PERFORM_DATA);
+        length += 2;
         return length;
     }
 
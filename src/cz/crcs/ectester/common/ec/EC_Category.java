@@ -3,11 +3,15 @@ package cz.crcs.ectester.common.ec;
 import cz.crcs.ectester.common.cli.Colors;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * A category of EC_Data objects, has a name, description and represents a directory in
  * the cz.crcs.ectester.data package.
+ * <p>
+ * The objects can be given upfront or by a loader, which is called (once) only when the objects
+ * are first accessed.
  *
  * @author Jan Jancar johny@neuromancer.sk
  */
@@ -17,8 +21,8 @@ public class EC_Category {
     private String directory;
     private String desc;
 
-    private Map<String, EC_Data> objects;
-
+    private volatile Map<String, EC_Data> objects;
+    private Supplier<Map<String, EC_Data>> loader;
 
     public EC_Category(String name, String directory) {
         this.name = name;
@@ -35,6 +39,11 @@ public class EC_Category {
         this.objects = objects;
     }
 
+    public EC_Category(String name, String directory, String desc, Supplier<Map<String, EC_Data>> loader) {
+        this(name, directory, desc);
+        this.loader = loader;
+    }
+
     public String getName() {
         return name;
     }
@@ -47,13 +56,42 @@ public class EC_Category {
         return desc;
     }
 
+    /**
+     * @return Whether the objects of this category are loaded.
+     */
+    public boolean isLoaded() {
+        return objects != null;
+    }
+
+    /**
+     * Load the objects of this category, if they are not loaded yet.
+     */
+    public void load() {
+        objects();
+    }
+
+    private Map<String, EC_Data> objects() {
+        Map<String, EC_Data> objs = objects;
+        if (objs == null) {
+            synchronized (this) {
+                objs = objects;
+                if (objs == null) {
+                    objs = loader == null ? new TreeMap<>() : loader.get();
+                    objects = objs;
+                    loader = null;
+                }
+            }
+        }
+        return objs;
+    }
+
     public Map<String, EC_Data> getObjects() {
-        return Collections.unmodifiableMap(objects);
+        return Collections.unmodifiableMap(objects());
     }
 
     public <T extends EC_Data> Map<String, T> getObjects(Class<T> cls) {
         Map<String, T> objs = new TreeMap<>();
-        for (Map.Entry<String, EC_Data> entry : objects.entrySet()) {
+        for (Map.Entry<String, EC_Data> entry : objects().entrySet()) {
             if (cls.isInstance(entry.getValue())) {
                 objs.put(entry.getKey(), cls.cast(entry.getValue()));
             }
@@ -62,7 +100,7 @@ public class EC_Category {
     }
 
     public <T extends EC_Data> T getObject(Class<T> cls, String id) {
-        EC_Data obj = objects.get(id);
+        EC_Data obj = objects().get(id);
         if (cls.isInstance(obj)) {
             return cls.cast(obj);
         } else {
@@ -17,6 +17,7 @@ public class EC_Curve extends EC_Params {
     private short bits;
     private byte field;
     private String desc;
+    private volatile ECParameterSpec spec;
 
     /**
      * @param bits
@@ -102,7 +103,24 @@ public class EC_Curve extends EC_Params {
         }
     }
 
+    @Override
+    void changed() {
+        spec = null;
+    }
+
+    /**
+     * @return the curve as parameters for the Java providers, created once and shared until the curve data changes.
+     */
     public ECParameterSpec toSpec() {
+        ECParameterSpec result = spec;
+        if (result == null) {
+            result = createSpec();
+            spec = result;
+        }
+        return result;
+    }
+
+    private ECParameterSpec createSpec() {
         EllipticCurve curve = toCurve();
 
         byte[][] G = getParam(EC_Consts.PARAMETER_G);
@@ -4,7 +4,6 @@ import cz.crcs.ectester.common.util.ByteUtil;
 
 import java.io.*;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * A list of byte arrays for holding EC data.
@@ -19,8 +18,6 @@ public abstract class EC_Data implements Comparable<EC_Data> {
     int count;
     byte[][] data;
 
-    private static final Pattern HEX = Pattern.compile("(0x|0X)?[a-fA-F\\d]+");
-
     EC_Data() {
     }
 
@@ -60,6 +57,12 @@ public abstract class EC_Data implements Comparable<EC_Data> {
         return data[index];
     }
 
+    /**
+     * Called before the data is modified, so that subclasses can drop whatever they derived from it.
+     */
+    void changed() {
+    }
+
     public boolean hasData() {
         return data != null;
     }
@@ -109,36 +112,110 @@ public abstract class EC_Data implements Comparable<EC_Data> {
         return data;
     }
 
-    private boolean readHex(String[] hex) {
-        if (hex.length != count) {
+    /**
+     * Read the data from CSV, hex values (optionally prefixed by <code>0x</code>) separated by <code>,</code>
+     * or <code>;</code>, all whitespace is ignored. The input is parsed in a single pass, straight into the data.
+     *
+     * @param in the stream to read from
+     * @return whether the input was valid and contained exactly as many values as this object holds.
+     */
+    public boolean readCSV(InputStream in) {
+        List<byte[]> values = new ArrayList<>(count);
+        byte[] buf = new byte[8192];
+        byte[] nibbles = new byte[256];
+        int len = 0;
+        int chars = 0;
+        boolean prefixed = false;
+        boolean first = true;
+        try {
+            int read;
+            while ((read = in.read(buf)) >= 0) {
+                for (int i = 0; i < read; ++i) {
+                    byte c = buf[i];
+                    if (c == ',' || c == ';') {
+                        // An empty leading field is skipped, like the Scanner used to.
+                        if (!first || chars != 0) {
+                            byte[] value = hexValue(nibbles, len);
+                            if (value == null) {
+                                return false;
+                            }
+                            values.add(value);
+                        }
+                        first = false;
+                        len = 0;
+                        chars = 0;
+                        prefixed = false;
+                        continue;
+                    }
+                    ++chars;
+                    int nibble = hexDigit(c);
+                    if (nibble >= 0) {
+                        if (len == nibbles.length) {
+                            nibbles = Arrays.copyOf(nibbles, len * 2);
+                        }
+                        nibbles[len++] = (byte) nibble;
+                    } else if ((c == 'x' || c == 'X') && !prefixed && len == 1 && nibbles[0] == 0) {
+                        prefixed = true;
+                        len = 0;
+                    } else if (!isWhitespace(c)) {
+                        return false;
+                    }
+                }
+            }
+        } catch (IOException e) {
             return false;
         }
+        if (chars != 0) {
+            byte[] value = hexValue(nibbles, len);
+            if (value == null) {
+                return false;
+            }
+            values.add(value);
+        }
 
+        if (values.isEmpty() || values.size() != count) {
+            return false;
+        }
+        changed();
         for (int i = 0; i < count; ++i) {
-            this.data[i] = parse(hex[i]);
+            this.data[i] = values.get(i);
         }
         return true;
     }
 
-    public boolean readCSV(InputStream in) {
-        Scanner s = new Scanner(in);
-
-        s.useDelimiter("[,;]");
-        List<String> data = new LinkedList<>();
-        while (s.hasNext()) {
-            String field = s.next();
-            data.add(field.replaceAll("\\s+", ""));
+    private static byte[] hexValue(byte[] nibbles, int len) {
+        if (len == 0) {
+            return null;
         }
-
-        if (data.isEmpty()) {
-            return false;
+        byte[] value = new byte[(len + 1) / 2];
+        int i = 0;
+        int j = 0;
+        if (len % 2 == 1) {
+            value[j++] = nibbles[i++];
         }
-        for (String param : data) {
-            if (!HEX.matcher(param).matches()) {
-                return false;
-            }
+        while (i < len) {
+            value[j++] = (byte) ((nibbles[i] << 4) | nibbles[i + 1]);
+            i += 2;
         }
-        return readHex(data.toArray(new String[data.size()]));
+        if (value.length == 1) {
+            return pad(value);
+        }
+        return value;
+    }
+
+    private static int hexDigit(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0b || c == '\f' || c == '\r';
     }
 
     public boolean readBytes(byte[] bytes) {
@@ -146,6 +223,7 @@ public abstract class EC_Data implements Comparable<EC_Data> {
             return false;
         }
 
+        changed();
         int offset = 0;
         for (int i = 0; i < count; i++) {
             if (bytes.length - offset < 2) {
@@ -168,6 +246,7 @@ public abstract class EC_Data implements Comparable<EC_Data> {
             return false;
         }
 
+        changed();
         for (int i = 0; i < count; ++i) {
             data[i] = new byte[bytes[i].length];
             System.arraycopy(bytes[i], 0, data[i], 0, bytes[i].length);
@@ -1,6 +1,11 @@
 package cz.crcs.ectester.common.ec;
 
 import cz.crcs.ectester.applet.EC_Consts;
+import cz.crcs.ectester.common.util.ECUtil;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECParameterSpec;
 
 /**
  * An abstract-like EC key. Concrete implementations create a public and private keys.
@@ -39,6 +44,7 @@ public class EC_Key extends EC_Params {
      * An EC public key, contains the W parameter.
      */
     public static class Public extends EC_Key {
+        private volatile RawECPublicKey key;
 
         public Public(String curve) {
             super(EC_Consts.PARAMETER_W, curve);
@@ -52,6 +58,24 @@ public class EC_Key extends EC_Params {
             super(id, EC_Consts.PARAMETER_W, curve, desc);
         }
 
+        @Override
+        void changed() {
+            key = null;
+        }
+
+        /**
+         * @param spec the parameters of the curve of the key.
+         * @return the key over the curve, created once and shared while the key data and the parameters stay the same.
+         */
+        public ECPublicKey toPublicKey(ECParameterSpec spec) {
+            RawECPublicKey result = key;
+            if (result == null || result.getParams() != spec) {
+                result = new RawECPublicKey(ECUtil.toPoint(this), spec);
+                key = result;
+            }
+            return result;
+        }
+
         @Override
         public String toString() {
             return "<" + getId() + "> EC Public key, over " + getCurve() + (getDesc() == null ? "" : ": " + getDesc()) + System.lineSeparator() + super.toString();
@@ -62,6 +86,7 @@ public class EC_Key extends EC_Params {
      * An EC private key, contains the S parameter.
      */
     public static class Private extends EC_Key {
+        private volatile RawECPrivateKey key;
 
         public Private(String curve) {
             super(EC_Consts.PARAMETER_S, curve);
@@ -75,6 +100,24 @@ public class EC_Key extends EC_Params {
             super(id, EC_Consts.PARAMETER_S, curve, desc);
         }
 
+        @Override
+        void changed() {
+            key = null;
+        }
+
+        /**
+         * @param spec the parameters of the curve of the key.
+         * @return the key over the curve, created once and shared while the key data and the parameters stay the same.
+         */
+        public ECPrivateKey toPrivateKey(ECParameterSpec spec) {
+            RawECPrivateKey result = key;
+            if (result == null || result.getParams() != spec) {
+                result = new RawECPrivateKey(ECUtil.toScalar(this), spec);
+                key = result;
+            }
+            return result;
+        }
+
         @Override
         public String toString() {
             return "<" + getId() + "> EC Private key, over " + getCurve() + (getDesc() == null ? "" : ": " + getDesc()) + System.lineSeparator() + super.toString();
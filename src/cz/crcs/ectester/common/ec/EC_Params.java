@@ -95,6 +95,7 @@ public class EC_Params extends EC_Data {
         if (Integer.bitCount(param) != 1) {
             return false;
         }
+        changed();
         short paramMask = EC_Consts.PARAMETER_FP;
         int i = 0;
         while (paramMask <= EC_Consts.PARAMETER_S) {
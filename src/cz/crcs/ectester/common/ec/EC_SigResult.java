@@ -63,6 +63,13 @@ public class EC_SigResult extends EC_Data {
         }
     }
 
+    /**
+     * @return The signed data as it was given, a hex string, or <code>null</code>.
+     */
+    public String getSigDataHex() {
+        return data;
+    }
+
     public String getDesc() {
         return desc;
     }
@@ -11,8 +11,8 @@ import java.security.spec.ECParameterSpec;
  */
 @SuppressWarnings("serial")
 public class RawECPrivateKey implements ECPrivateKey {
-    private BigInteger scalar;
-    private ECParameterSpec params;
+    private final BigInteger scalar;
+    private final ECParameterSpec params;
 
     public RawECPrivateKey(BigInteger scalar, ECParameterSpec params) {
         this.scalar = scalar;
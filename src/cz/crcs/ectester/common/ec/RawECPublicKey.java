@@ -11,8 +11,8 @@ import java.security.spec.ECPoint;
  */
 @SuppressWarnings("serial")
 public class RawECPublicKey implements ECPublicKey {
-    private ECPoint point;
-    private ECParameterSpec params;
+    private final ECPoint point;
+    private final ECParameterSpec params;
 
     public RawECPublicKey(ECPoint point, ECParameterSpec params) {
         this.point = point;
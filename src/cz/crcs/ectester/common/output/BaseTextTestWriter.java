@@ -16,7 +16,7 @@ import java.util.Date;
  *
  * @author Jan Jancar johny@neuromancer.sk
  */
-public abstract class BaseTextTestWriter implements TestWriter {
+public abstract class BaseTextTestWriter implements RecordingTestWriter {
     private PrintStream output;
 
     public static int BASE_WIDTH = 105;
@@ -106,6 +106,9 @@ public abstract class BaseTextTestWriter implements TestWriter {
         } else {
             SimpleTest<? extends BaseTestable> test = (SimpleTest<? extends BaseTestable>) t;
             out.append(testableString(test.getTestable()));
+            if (t instanceof BasePerformanceTest && ((BasePerformanceTest<?>) t).getStatistics() != null) {
+                out.append(" ┃ ").append(((BasePerformanceTest<?>) t).getStatistics());
+            }
             if (t.getResult().getCause() != null) {
                 out.append(" ┃ ").append(t.getResult().getCause().toString());
             }
@@ -121,6 +124,17 @@ public abstract class BaseTextTestWriter implements TestWriter {
         output.flush();
     }
 
+    @Override
+    public String record(Test t, int index) {
+        return testString(t, "", index);
+    }
+
+    @Override
+    public void replay(String record, int index) {
+        output.println(record);
+        output.flush();
+    }
+
     private String errorString(Throwable error) {
         StringBuilder sb = new StringBuilder();
         sb.append("═══ Exception: ═══").append(System.lineSeparator());
@@ -1,59 +1,125 @@
 package cz.crcs.ectester.common.output;
 
 import cz.crcs.ectester.common.test.*;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import cz.crcs.ectester.common.util.Statistics;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 /**
+ * Streams the test suite as XML, every test is written (and flushed) as soon as it is output,
+ * so memory use does not grow with the number of tests and a partial run still produces output.
+ *
  * @author Jan Jancar johny@neuromancer.sk
  */
-public abstract class BaseXMLTestWriter implements TestWriter {
+public abstract class BaseXMLTestWriter implements RecordingTestWriter {
+    private static final String INDENT = "  ";
     private OutputStream output;
-    private DocumentBuilder db;
-    protected Document doc;
-    private Node root;
-    private Node tests;
+    private XMLOutputFactory factory = XMLOutputFactory.newInstance();
+    private XMLStreamWriter writer;
+    private int depth;
+    private boolean nested;
 
-    public BaseXMLTestWriter(OutputStream output) throws ParserConfigurationException {
+    public BaseXMLTestWriter(OutputStream output) {
         this.output = output;
-        this.db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
     }
 
     @Override
     public void begin(TestSuite suite) {
-        doc = db.newDocument();
-        Element rootElem = doc.createElement("testSuite");
-        rootElem.setAttribute("name", suite.getName());
-        rootElem.setAttribute("desc", suite.getTextDescription());
-        DateFormat dateFormat = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
-        Date date = new Date();
-        rootElem.setAttribute("date", dateFormat.format(date));
+        try {
+            writer = factory.createXMLStreamWriter(output, "UTF-8");
+            depth = 0;
+            nested = false;
+            writer.writeStartDocument("UTF-8", "1.0");
+
+            startElement("testSuite");
+            attribute("name", suite.getName());
+            attribute("desc", suite.getTextDescription());
+            DateFormat dateFormat = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
+            Date date = new Date();
+            attribute("date", dateFormat.format(date));
+
+            deviceElement(suite);
+            startElement("tests");
+            flush();
+        } catch (XMLStreamException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write the contents of a test element of the testable, the element itself is started and
+     * ended by the caller. Attributes can only be written before any child element.
+     *
+     * @param t the testable
+     * @throws XMLStreamException if writing fails.
+     */
+    protected abstract void testableElement(Testable t) throws XMLStreamException;
+
+    /**
+     * Write the device element of the suite.
+     *
+     * @param suite the test suite
+     * @throws XMLStreamException if writing fails.
+     */
+    protected abstract void deviceElement(TestSuite suite) throws XMLStreamException;
+
+    protected void startElement(String name) throws XMLStreamException {
+        newline();
+        writer.writeStartElement(name);
+        depth++;
+        nested = false;
+    }
+
+    protected void attribute(String name, String value) throws XMLStreamException {
+        writer.writeAttribute(name, value == null ? "" : value);
+    }
+
+    protected void text(String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeCharacters(value);
+        }
+    }
 
-        root = rootElem;
-        doc.appendChild(root);
-        root.appendChild(deviceElement(suite));
-        tests = doc.createElement("tests");
-        root.appendChild(tests);
+    protected void endElement() throws XMLStreamException {
+        depth--;
+        if (nested) {
+            newline();
+        }
+        writer.writeEndElement();
+        nested = true;
     }
 
-    protected abstract Element testableElement(Testable t);
+    /**
+     * Write an element containing only text.
+     */
+    protected void textElement(String name, String value) throws XMLStreamException {
+        startElement(name);
+        text(value);
+        endElement();
+    }
 
-    protected abstract Element deviceElement(TestSuite suite);
+    private void newline() throws XMLStreamException {
+        StringBuilder sb = new StringBuilder(System.lineSeparator());
+        for (int i = 0; i < depth; ++i) {
+            sb.append(INDENT);
+        }
+        writer.writeCharacters(sb.toString());
+    }
+
+    private void flush() throws XMLStreamException, IOException {
+        writer.flush();
+        output.flush();
+    }
 
     private String causeString(Object cause) {
         if (cause == null) {
@@ -70,74 +136,113 @@ public abstract class BaseXMLTestWriter implements TestWriter {
         }
     }
 
-    private Element resultElement(Result result) {
-        Element resultElem = doc.createElement("result");
-
-        Element ok = doc.createElement("ok");
-        ok.setTextContent(String.valueOf(result.ok()));
-        Element value = doc.createElement("value");
-        value.setTextContent(result.getValue().name());
-        Element cause = doc.createElement("cause");
-        cause.setTextContent(causeString(result.getCause()));
-
-        resultElem.appendChild(ok);
-        resultElem.appendChild(value);
-        resultElem.appendChild(cause);
+    private void resultElement(Result result) throws XMLStreamException {
+        startElement("result");
+        textElement("ok", String.valueOf(result.ok()));
+        textElement("value", result.getValue().name());
+        textElement("cause", causeString(result.getCause()));
+        endElement();
+    }
 
-        return resultElem;
+    private void statisticsElement(Statistics statistics) throws XMLStreamException {
+        startElement("statistics");
+        for (Map.Entry<String, Object> entry : statistics.toMap().entrySet()) {
+            startElement("stat");
+            attribute("name", entry.getKey());
+            text(String.valueOf(entry.getValue()));
+            endElement();
+        }
+        endElement();
     }
 
-    private Element testElement(Test t, int index) {
-        Element testElem;
+    private void testElement(Test t, int index) throws XMLStreamException {
+        startElement("test");
         if (t instanceof CompoundTest) {
             CompoundTest test = (CompoundTest) t;
-            testElem = doc.createElement("test");
-            testElem.setAttribute("type", "compound");
+            attribute("type", "compound");
+            if (index != -1) {
+                attribute("index", String.valueOf(index));
+            }
             for (Test innerTest : test.getStartedTests()) {
-                testElem.appendChild(testElement(innerTest, -1));
+                testElement(innerTest, -1);
             }
         } else {
             SimpleTest<? extends BaseTestable> test = (SimpleTest<? extends BaseTestable>) t;
-            testElem = testableElement(test.getTestable());
-        }
-
-        Element description = doc.createElement("desc");
-        description.setTextContent(t.getDescription());
-        testElem.appendChild(description);
-
-        Element result = resultElement(t.getResult());
-        testElem.appendChild(result);
-
-        if (index != -1) {
-            testElem.setAttribute("index", String.valueOf(index));
+            if (index != -1) {
+                attribute("index", String.valueOf(index));
+            }
+            testableElement(test.getTestable());
+            if (t instanceof BasePerformanceTest && ((BasePerformanceTest<?>) t).getStatistics() != null) {
+                statisticsElement(((BasePerformanceTest<?>) t).getStatistics());
+            }
         }
 
-        return testElem;
+        textElement("desc", t.getDescription());
+        resultElement(t.getResult());
+        endElement();
     }
 
     @Override
     public void outputTest(Test t, int index) {
         if (!t.hasRun())
             return;
-        tests.appendChild(testElement(t, index));
+        outputError(t, null, index);
     }
 
     @Override
     public void outputError(Test t, Throwable cause, int index) {
-        tests.appendChild(testElement(t, index));
+        try {
+            testElement(t, index);
+            flush();
+        } catch (XMLStreamException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String record(Test t, int index) {
+        XMLStreamWriter previous = writer;
+        int previousDepth = depth;
+        boolean previousNested = nested;
+        StringWriter record = new StringWriter();
+        try {
+            writer = factory.createXMLStreamWriter(record);
+            testElement(t, index);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            e.printStackTrace();
+        } finally {
+            writer = previous;
+            depth = previousDepth;
+            nested = previousNested;
+        }
+        return record.toString();
+    }
+
+    @Override
+    public void replay(String record, int index) {
+        try {
+            // Make the writer close the start tag it may have left open, before writing past it.
+            writer.writeCharacters("");
+            writer.flush();
+            output.write(record.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            nested = true;
+        } catch (XMLStreamException | IOException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
     public void end() {
         try {
-            DOMSource domSource = new DOMSource(doc);
-            StreamResult result = new StreamResult(output);
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer transformer = tf.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            transformer.transform(domSource, result);
-        } catch (TransformerException e) {
+            endElement();
+            endElement();
+            writer.writeEndDocument();
+            writer.close();
+            output.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (XMLStreamException | IOException e) {
             e.printStackTrace();
         }
     }
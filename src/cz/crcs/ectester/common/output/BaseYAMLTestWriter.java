@@ -12,7 +12,7 @@ import java.util.*;
 /**
  * @author Jan Jancar johny@neuromancer.sk
  */
-public abstract class BaseYAMLTestWriter implements TestWriter {
+public abstract class BaseYAMLTestWriter implements RecordingTestWriter {
     private PrintStream output;
     private Map<String, Object> testRun;
     private Map<String, String> testSuite;
@@ -80,6 +80,9 @@ public abstract class BaseYAMLTestWriter implements TestWriter {
         } else {
             SimpleTest<? extends BaseTestable> test = (SimpleTest<? extends BaseTestable>) t;
             testObj = testableObject(test.getTestable());
+            if (t instanceof BasePerformanceTest && ((BasePerformanceTest<?>) t).getStatistics() != null) {
+                testObj.put("statistics", ((BasePerformanceTest<?>) t).getStatistics().toMap());
+            }
         }
 
         testObj.put("desc", t.getDescription());
@@ -103,6 +106,18 @@ public abstract class BaseYAMLTestWriter implements TestWriter {
         tests.add(testObject(t, index));
     }
 
+    @Override
+    public String record(Test t, int index) {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        return new Yaml(options).dump(testObject(t, index));
+    }
+
+    @Override
+    public void replay(String record, int index) {
+        tests.add(new Yaml().load(record));
+    }
+
     @Override
     public void end() {
         DumperOptions options = new DumperOptions();
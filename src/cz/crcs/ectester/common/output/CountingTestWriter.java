@@ -0,0 +1,85 @@
+package cz.crcs.ectester.common.output;
+
+import cz.crcs.ectester.common.test.Result;
+import cz.crcs.ectester.common.test.Test;
+import cz.crcs.ectester.common.test.TestSuite;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Does not output anything, only counts the results of the tests of a suite.
+ * Meant to be used along another writer in a {@link TeeTestWriter}.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class CountingTestWriter implements TestWriter {
+    private Map<Result.Value, Integer> counts = new EnumMap<>(Result.Value.class);
+    private int total;
+    private int ok;
+    private boolean errored;
+    private boolean finished;
+
+    @Override
+    public synchronized void begin(TestSuite suite) {
+        counts.clear();
+        total = 0;
+        ok = 0;
+        errored = false;
+        finished = false;
+    }
+
+    @Override
+    public synchronized void outputTest(Test t, int index) {
+        if (!t.hasRun())
+            return;
+        count(t.getResult());
+    }
+
+    @Override
+    public synchronized void outputError(Test t, Throwable cause, int index) {
+        errored = true;
+        if (t != null && t.getResult() != null) {
+            count(t.getResult());
+        }
+    }
+
+    private void count(Result result) {
+        total++;
+        if (result.ok()) {
+            ok++;
+        }
+        counts.merge(result.getValue(), 1, Integer::sum);
+    }
+
+    @Override
+    public synchronized void end() {
+        finished = true;
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized int getOk() {
+        return ok;
+    }
+
+    public synchronized int getCount(Result.Value value) {
+        return counts.getOrDefault(value, 0);
+    }
+
+    /**
+     * @return Whether the suite was aborted by an error.
+     */
+    public synchronized boolean hasErrored() {
+        return errored;
+    }
+
+    /**
+     * @return Whether the suite has finished.
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,26 @@
+package cz.crcs.ectester.common.output;
+
+import cz.crcs.ectester.common.test.Test;
+
+/**
+ * A TestWriter that can record its output of a test as a string and output the record again later,
+ * e.g. in another run of the same suite, as if it output the test itself.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public interface RecordingTestWriter extends TestWriter {
+    /**
+     * @param t     The test that was output.
+     * @param index The index it was output at.
+     * @return The record of the output of the test.
+     */
+    String record(Test t, int index);
+
+    /**
+     * Output the recorded test, in place of {@link #outputTest(Test, int)}.
+     *
+     * @param record The record, as returned by {@link #record(Test, int)} of the same kind of writer.
+     * @param index  The index of the test.
+     */
+    void replay(String record, int index);
+}
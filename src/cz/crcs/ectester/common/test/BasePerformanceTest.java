@@ -0,0 +1,134 @@
+package cz.crcs.ectester.common.test;
+
+import cz.crcs.ectester.common.util.Statistics;
+
+import java.util.Arrays;
+
+/**
+ * A test that repeatedly measures the duration of an operation on its testable.
+ * <p>
+ * First, <code>warmup</code> iterations are run and thrown away, then <code>count</code> samples are taken.
+ * If a <code>precision</code> is given, more samples are taken (in batches of <code>count</code>, up to
+ * <code>maxCount</code> in total) until the confidence interval of the median is at most
+ * <code>precision</code> times the median wide on each side.
+ *
+ * @param <T>
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public abstract class BasePerformanceTest<T extends BaseTestable> extends SimpleTest<T> {
+    protected final int warmup;
+    protected final int count;
+    protected final int maxCount;
+    protected final double precision;
+    private final String desc;
+    private long[] samples;
+    private int sampled;
+    private Statistics statistics;
+
+    protected BasePerformanceTest(T testable, String desc, int warmup, int count, int maxCount, double precision) {
+        super(testable, new TestCallback<T>() {
+            @Override
+            public Result apply(T testable) {
+                return new Result(Result.Value.SUCCESS);
+            }
+        });
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive.");
+        }
+        this.desc = desc;
+        this.warmup = warmup;
+        this.count = count;
+        this.maxCount = Math.max(count, maxCount);
+        this.precision = precision;
+    }
+
+    /**
+     * Called once before the warmup.
+     */
+    protected void prepare() {
+    }
+
+    /**
+     * Run one warmup iteration, by default a measurement that is thrown away.
+     */
+    protected void warmup() {
+        measure();
+    }
+
+    /**
+     * Run one iteration.
+     *
+     * @return the measured duration, in nanoseconds
+     */
+    protected abstract long measure();
+
+    @Override
+    protected void runSelf() {
+        prepare();
+        for (int i = 0; i < warmup; ++i) {
+            warmup();
+        }
+
+        samples = new long[count];
+        sampled = 0;
+        sample(count);
+        statistics = new Statistics(samples, sampled);
+        while (precision > 0 && sampled < maxCount && statistics.getPrecision() > precision) {
+            sample(Math.min(count, maxCount - sampled));
+            statistics = new Statistics(samples, sampled);
+        }
+        result = callback.apply(testable);
+    }
+
+    private void sample(int amount) {
+        if (sampled + amount > samples.length) {
+            samples = Arrays.copyOf(samples, Math.min(Math.max(samples.length * 2, sampled + amount), maxCount));
+        }
+        for (int i = 0; i < amount; ++i) {
+            samples[sampled++] = measure();
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        String rest = String.format("Mean = %d ns, Median = %d ns, Mode = %d ns", getMean(), getMedian(), getMode());
+        return (desc == null ? rest : desc + " (" + rest + ")");
+    }
+
+    /**
+     * @return the number of samples taken, or the number of samples to take if the test was not yet run
+     */
+    public long getCount() {
+        return statistics == null ? count : sampled;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @return the samples taken, in nanoseconds
+     */
+    public long[] getSamples() {
+        return samples == null ? null : Arrays.copyOf(samples, sampled);
+    }
+
+    /**
+     * @return the statistics of the samples, or null if the test was not yet run
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    public long getMean() {
+        return statistics == null ? 0 : statistics.getMean();
+    }
+
+    public long getMedian() {
+        return statistics == null ? 0 : statistics.getMedian();
+    }
+
+    public long getMode() {
+        return statistics == null ? 0 : statistics.getMode();
+    }
+}
@@ -1,7 +1,13 @@
 package cz.crcs.ectester.common.test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -16,6 +22,9 @@ public class CompoundTest extends Test implements Cloneable {
     private Test[] tests;
     private String description = "";
 
+    private static volatile ForkJoinPool pool;
+    private static final ThreadLocal<Boolean> sequential = ThreadLocal.withInitial(() -> false);
+
     private final static Consumer<Test[]> RUN_ALL = tests -> {
         for (Test t : tests) {
             t.run();
@@ -40,6 +49,70 @@ public class CompoundTest extends Test implements Cloneable {
         }
     };
 
+    private final static Consumer<Test[]> RUN_PARALLEL = tests -> runParallel(tests, false);
+
+    private final static Consumer<Test[]> RUN_PARALLEL_GREEDY_ALL = tests -> runParallel(tests, true);
+
+    /**
+     * Run the tests on the pool set by {@link #setParallelism(int)}, or one after another if there is none.
+     * The tests are started in order, by as many workers as the pool has threads, nested parallel compound tests
+     * share the pool. When <code>greedy</code>, the tests not yet started are skipped once a test is not ok,
+     * the ones already running are still finished.
+     */
+    private static void runParallel(Test[] tests, boolean greedy) {
+        ForkJoinPool executor = pool;
+        if (executor == null || tests.length < 2 || sequential.get()) {
+            (greedy ? RUN_GREEDY_ALL : RUN_ALL).accept(tests);
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(executor.getParallelism(), tests.length); ++i) {
+            workers.add(ForkJoinTask.adapt(() -> {
+                int index;
+                while (!(greedy && failed.get()) && (index = next.getAndIncrement()) < tests.length) {
+                    Test t = tests[index];
+                    t.run();
+                    if (!t.ok()) {
+                        failed.set(true);
+                    }
+                }
+            }));
+        }
+        if (ForkJoinTask.getPool() == executor) {
+            ForkJoinTask.invokeAll(workers);
+        } else {
+            executor.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(workers);
+            }));
+        }
+    }
+
+    /**
+     * Set the number of threads the parallel compound tests run their sub-tests on.
+     *
+     * @param threads the number of threads, with 1 the sub-tests are run one after another.
+     */
+    public static synchronized void setParallelism(int threads) {
+        ForkJoinPool old = pool;
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    /**
+     * Set whether the parallel compound tests run from the current thread run their sub-tests one after another
+     * regardless of {@link #setParallelism(int)}, e.g. when testing a library that is not thread-safe
+     * while other threads test ones that are.
+     *
+     * @param sequential whether to run the sub-tests one after another on the current thread.
+     */
+    public static void setSequential(boolean sequential) {
+        CompoundTest.sequential.set(sequential);
+    }
+
     private CompoundTest(Function<Test[], Result> resultCallback, Consumer<Test[]> runCallback, Test... tests) {
         this.resultCallback = resultCallback;
         this.runCallback = runCallback;
@@ -98,6 +171,35 @@ public class CompoundTest extends Test implements Cloneable {
         return result;
     }
 
+    /**
+     * Like {@link #all(Result.ExpectedValue, Test...)}, but runs the sub-tests in parallel, see {@link #setParallelism(int)}.
+     * The sub-tests must not share any mutable state, like KeyAgreement or Signature objects.
+     */
+    public static CompoundTest parallelAll(Result.ExpectedValue what, Test... all) {
+        return expectAll(what, RUN_PARALLEL, all);
+    }
+
+    public static CompoundTest parallelAll(Result.ExpectedValue what, String description, Test... all) {
+        CompoundTest result = CompoundTest.parallelAll(what, all);
+        result.setDescription(description);
+        return result;
+    }
+
+    /**
+     * Like {@link #greedyAll(Result.ExpectedValue, Test...)}, but runs the sub-tests in parallel, see {@link #setParallelism(int)}.
+     * The sub-tests that already started when one is not ok are still finished, so more of them may run
+     * than when run one after another.
+     */
+    public static CompoundTest parallelGreedyAll(Result.ExpectedValue what, Test... all) {
+        return expectAll(what, RUN_PARALLEL_GREEDY_ALL, all);
+    }
+
+    public static CompoundTest parallelGreedyAll(Result.ExpectedValue what, String description, Test... all) {
+        CompoundTest result = CompoundTest.parallelGreedyAll(what, all);
+        result.setDescription(description);
+        return result;
+    }
+
     public static CompoundTest greedyAllTry(Result.ExpectedValue what, Test... all) {
         return new CompoundTest((tests) -> {
             int run = 0;
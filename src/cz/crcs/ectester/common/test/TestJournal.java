@@ -0,0 +1,134 @@
+package cz.crcs.ectester.common.test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A journal of a run of a {@link TestSuite}, on disk, that lets a run that died (e.g. on a crash of a native
+ * library) be resumed. Every test index is journaled when it starts and again, with the record of its output,
+ * when it finishes. Every line is written out right away, a partially written last line is ignored.
+ * <p>
+ * The journal is a text file, the first line identifies the suite, the writer and the configuration of the run,
+ * as <code>suite &lt;name&gt; &lt;writer&gt; &lt;Base64 of the configuration&gt;</code>, the other lines are
+ * <code>start &lt;index&gt;</code> and <code>done &lt;index&gt; &lt;Base64 of the record&gt;</code>.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class TestJournal implements Closeable {
+    private final Path file;
+    private String header;
+    private final Set<Integer> started = new HashSet<>();
+    private final Map<Integer, String> done = new HashMap<>();
+    private PrintStream out;
+
+    /**
+     * Open the journal, reading the already journaled tests if it exists.
+     *
+     * @param file The journal file.
+     * @throws IOException if reading the journal fails.
+     */
+    public TestJournal(Path file) throws IOException {
+        this.file = file;
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(file);
+        String[] lines = new String(content, StandardCharsets.UTF_8).split("\n", -1);
+        // The last element is either empty, or a line the previous run did not get to finish.
+        for (int i = 0; i < lines.length - 1; ++i) {
+            String line = lines[i];
+            if (i == 0) {
+                header = line;
+                continue;
+            }
+            String[] parts = line.split(" ");
+            try {
+                int index = Integer.parseInt(parts[1]);
+                if (parts[0].equals("start") && parts.length == 2) {
+                    started.add(index);
+                } else if (parts[0].equals("done") && parts.length == 3) {
+                    done.put(index, new String(Base64.getDecoder().decode(parts[2]), StandardCharsets.UTF_8));
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ignored) {
+            }
+        }
+        if (content.length != 0 && content[content.length - 1] != '\n') {
+            try (OutputStream append = new FileOutputStream(file.toFile(), true)) {
+                append.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Start journaling a run of the suite with the writer and configuration, the journal has to be of the same
+     * suite, writer and configuration.
+     *
+     * @param suite         The name of the suite.
+     * @param writer        The name of the writer, the records are only valid for the same writer.
+     * @param configuration The configuration of the run, the results are only valid for the same one.
+     * @throws IllegalArgumentException if the journal is of a different suite, writer or configuration.
+     * @throws IOException              if the journal cannot be opened for writing.
+     */
+    void begin(String suite, String writer, String configuration) throws IOException {
+        String expected = "suite " + suite + " " + writer + " " + Base64.getEncoder().encodeToString(configuration.getBytes(StandardCharsets.UTF_8));
+        if (header != null && !header.equals(expected)) {
+            throw new IllegalArgumentException("The journal " + file + " is of a different suite, output format, library or suite options.");
+        }
+        if (out == null) {
+            out = new PrintStream(new FileOutputStream(file.toFile(), true), true, "UTF-8");
+        }
+        if (header == null) {
+            header = expected;
+            line(expected);
+        }
+    }
+
+    private void line(String line) {
+        out.print(line);
+        out.print('\n');
+        out.flush();
+    }
+
+    /**
+     * @param index The index of the test.
+     * @return The record of the output of the test, if it finished in a previous run, null otherwise.
+     */
+    public String getRecord(int index) {
+        return done.get(index);
+    }
+
+    /**
+     * @param index The index of the test.
+     * @return Whether the test was started but did not finish in a previous run, i.e. it most likely crashed it.
+     */
+    public boolean hasCrashed(int index) {
+        return started.contains(index) && !done.containsKey(index);
+    }
+
+    /**
+     * @return The number of tests that finished in previous runs.
+     */
+    public int getDone() {
+        return done.size();
+    }
+
+    void started(int index) {
+        started.add(index);
+        line("start " + index);
+    }
+
+    void finished(int index, String record) {
+        done.put(index, record);
+        line("done " + index + " " + Base64.getEncoder().encodeToString(record.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            out.close();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package cz.crcs.ectester.common.test;
 
+import cz.crcs.ectester.common.output.RecordingTestWriter;
 import cz.crcs.ectester.common.output.TestWriter;
 
+import java.io.IOException;
+
 /**
  * @author Jan Jancar johny@neuromancer.sk
  */
@@ -13,6 +16,7 @@ public abstract class TestSuite {
     private int ran = 0;
     private int runFrom = 0;
     private int runTo = -1;
+    private TestJournal journal;
 
     public TestSuite(TestWriter writer, String name, String... description) {
         this.writer = writer;
@@ -46,6 +50,26 @@ public abstract class TestSuite {
         writer.end();
     }
 
+    /**
+     * Journal the runs of the suite, the tests already finished in the journal are not run again,
+     * only their recorded output is output. So the tests whose side effects later tests use have to be run
+     * by {@link #doStatefulTest(Test)}, or by {@link #runTest(Test)} as a part of every test that uses them.
+     *
+     * @param journal       The journal to use.
+     * @param configuration The configuration of the suite, e.g. the tested library and the options,
+     *                      the journal can only be resumed with the same one.
+     * @throws IllegalArgumentException if the writer of the suite cannot record tests, or the journal
+     *                                  is of a different suite, writer or configuration.
+     * @throws IOException              if the journal cannot be written.
+     */
+    public void setJournal(TestJournal journal, String configuration) throws IOException {
+        if (!(writer instanceof RecordingTestWriter)) {
+            throw new IllegalArgumentException("The output format does not support journaling.");
+        }
+        journal.begin(name, writer.getClass().getName(), configuration);
+        this.journal = journal;
+    }
+
     /**
      * Run the given test and return it back.
      *
@@ -68,14 +92,57 @@ public abstract class TestSuite {
      * @throws TestException
      */
     protected <T extends Test> T doTest(T t) {
+        return doTest(t, false);
+    }
+
+    /**
+     * Run the given test, whose side effects (e.g. a generated keypair) the later tests of the suite use,
+     * output it and return it back. When resuming a journaled run, the test is run again even if it finished
+     * in a previous run, only its output is the recorded one.
+     *
+     * @param t The test to run.
+     * @return The test that was run.
+     */
+    protected <T extends Test> T doStatefulTest(T t) {
+        return doTest(t, true);
+    }
+
+    private <T extends Test> T doTest(T t, boolean stateful) {
         if (ran >= runFrom && (runTo < 0 || ran <= runTo)) {
-            runTest(t);
-            writer.outputTest(t, ran);
+            if (journal == null) {
+                runTest(t);
+                writer.outputTest(t, ran);
+            } else {
+                doJournaledTest(t, stateful);
+            }
         }
         ran++;
         return t;
     }
 
+    private void doJournaledTest(Test t, boolean stateful) {
+        RecordingTestWriter recorder = (RecordingTestWriter) writer;
+        String record = journal.getRecord(ran);
+        if (record != null) {
+            if (stateful) {
+                runTest(t);
+            }
+            recorder.replay(record, ran);
+            return;
+        }
+        if (journal.hasCrashed(ran)) {
+            // Do not run it again, as it would most likely crash this run as well.
+            t.hasStarted = true;
+            t.hasRun = true;
+            t.result = new Result(Result.Value.ERROR, "The test did not finish in a previous run of the suite.");
+        } else {
+            journal.started(ran);
+            runTest(t);
+        }
+        writer.outputTest(t, ran);
+        journal.finished(ran, recorder.record(t, ran));
+    }
+
     /**
      *
      */
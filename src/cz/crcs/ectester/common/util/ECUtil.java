@@ -317,7 +317,7 @@ public class ECUtil {
         if (curve == null) {
             throw new IllegalArgumentException("pubkey curve not found: " + pubkey.getCurve());
         }
-        return new RawECPublicKey(toPoint(pubkey), curve.toSpec());
+        return pubkey.toPublicKey(curve.toSpec());
     }
 
     public static ECPrivateKey toPrivateKey(EC_Key.Private privkey) {
@@ -328,7 +328,7 @@ public class ECUtil {
         if (curve == null) {
             throw new IllegalArgumentException("privkey curve not found: " + privkey.getCurve());
         }
-        return new RawECPrivateKey(toScalar(privkey), curve.toSpec());
+        return privkey.toPrivateKey(curve.toSpec());
     }
 
     public static KeyPair toKeyPair(EC_Keypair kp) {
@@ -339,8 +339,9 @@ public class ECUtil {
         if (curve == null) {
             throw new IllegalArgumentException("keypair curve not found: " + kp.getCurve());
         }
-        ECPublicKey pubkey = new RawECPublicKey(toPoint(kp), curve.toSpec());
-        ECPrivateKey privkey = new RawECPrivateKey(toScalar(kp), curve.toSpec());
+        ECParameterSpec spec = curve.toSpec();
+        ECPublicKey pubkey = new RawECPublicKey(toPoint(kp), spec);
+        ECPrivateKey privkey = new RawECPrivateKey(toScalar(kp), spec);
         return new KeyPair(pubkey, privkey);
     }
 
@@ -353,7 +354,7 @@ public class ECUtil {
 
     public static BigInteger[] fromDERSignature(byte[] signature) throws IOException {
         ASN1StreamParser parser = new ASN1StreamParser(signature);
-        DERSequence sequence = (DERSequence) ((DLSequenceParser) parser.readObject()).getLoadedObject();
+        ASN1Sequence sequence = (ASN1Sequence) ((ASN1SequenceParser) parser.readObject()).getLoadedObject();
         ASN1Integer r = (ASN1Integer) sequence.getObjectAt(0);
         ASN1Integer s = (ASN1Integer) sequence.getObjectAt(1);
         return new BigInteger[]{r.getPositiveValue(), s.getPositiveValue()};
@@ -0,0 +1,208 @@
+package cz.crcs.ectester.common.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Summary statistics of a sample of durations (or other integer measurements).
+ * <p>
+ * Percentiles are taken by the nearest-rank method. The confidence interval is that of the median,
+ * computed by a percentile bootstrap with a fixed seed, so that the same samples always give the same interval.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class Statistics {
+    public static final double CONFIDENCE = 0.95;
+    public static final int RESAMPLES = 1000;
+    private static final long SEED = 0x5ec7e57e7L;
+
+    private final long[] sorted;
+    private final long mean;
+    private final long median;
+    private final long mode;
+    private final double stddev;
+    private final long mad;
+    private final long ciLow;
+    private final long ciHigh;
+
+    public Statistics(long[] samples) {
+        this(samples, samples.length);
+    }
+
+    /**
+     * @param samples the samples
+     * @param length  the number of samples to use, from the start of <code>samples</code>
+     */
+    public Statistics(long[] samples, int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("No samples.");
+        }
+        sorted = Arrays.copyOf(samples, length);
+        Arrays.sort(sorted);
+
+        double sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        double exactMean = sum / length;
+        mean = Math.round(exactMean);
+        double squares = 0;
+        for (long sample : sorted) {
+            squares += (sample - exactMean) * (sample - exactMean);
+        }
+        stddev = length > 1 ? Math.sqrt(squares / (length - 1)) : 0;
+
+        median = median(sorted);
+
+        long maxOccurrences = 0;
+        long currentMode = sorted[0];
+        int i = 0;
+        while (i < length) {
+            long currentValue = sorted[i];
+            long currentOccurrences = 0;
+            while (i < length && sorted[i] == currentValue) {
+                i++;
+                currentOccurrences++;
+            }
+            if (currentOccurrences > maxOccurrences) {
+                maxOccurrences = currentOccurrences;
+                currentMode = currentValue;
+            }
+        }
+        mode = currentMode;
+
+        long[] deviations = new long[length];
+        for (int j = 0; j < length; ++j) {
+            deviations[j] = Math.abs(sorted[j] - median);
+        }
+        Arrays.sort(deviations);
+        mad = median(deviations);
+
+        long[] medians = new long[RESAMPLES];
+        long[] resample = new long[length];
+        Random random = new Random(SEED);
+        for (int r = 0; r < RESAMPLES; ++r) {
+            for (int j = 0; j < length; ++j) {
+                resample[j] = sorted[random.nextInt(length)];
+            }
+            Arrays.sort(resample);
+            medians[r] = median(resample);
+        }
+        Arrays.sort(medians);
+        ciLow = percentile(medians, (1 - CONFIDENCE) / 2);
+        ciHigh = percentile(medians, 1 - (1 - CONFIDENCE) / 2);
+    }
+
+    private static long median(long[] sorted) {
+        int count = sorted.length;
+        if (count % 2 == 0) {
+            return (sorted[(count / 2) - 1] + sorted[count / 2]) / 2;
+        } else {
+            return sorted[count / 2];
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.min(Math.max(rank - 1, 0), sorted.length - 1)];
+    }
+
+    public int getCount() {
+        return sorted.length;
+    }
+
+    public long getMin() {
+        return sorted[0];
+    }
+
+    public long getMax() {
+        return sorted[sorted.length - 1];
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the sample standard deviation
+     */
+    public double getStdDev() {
+        return stddev;
+    }
+
+    /**
+     * @return the median absolute deviation from the median
+     */
+    public long getMAD() {
+        return mad;
+    }
+
+    /**
+     * @param p the percentile, between 0 and 1
+     * @return the nearest-rank percentile of the samples
+     */
+    public long getPercentile(double p) {
+        return percentile(sorted, p);
+    }
+
+    /**
+     * @return the lower bound of the {@link #CONFIDENCE} confidence interval of the median
+     */
+    public long getCILow() {
+        return ciLow;
+    }
+
+    /**
+     * @return the upper bound of the {@link #CONFIDENCE} confidence interval of the median
+     */
+    public long getCIHigh() {
+        return ciHigh;
+    }
+
+    /**
+     * @return the half-width of the confidence interval of the median, relative to the median
+     */
+    public double getPrecision() {
+        if (median == 0) {
+            return ciHigh == ciLow ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return (ciHigh - ciLow) / 2.0 / Math.abs(median);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("min", getMin());
+        map.put("max", getMax());
+        map.put("mean", mean);
+        map.put("median", median);
+        map.put("mode", mode);
+        map.put("stddev", Math.round(stddev));
+        map.put("mad", mad);
+        map.put("p50", getPercentile(0.5));
+        map.put("p90", getPercentile(0.9));
+        map.put("p99", getPercentile(0.99));
+        map.put("p99.9", getPercentile(0.999));
+        map.put("ci-confidence", CONFIDENCE);
+        map.put("ci-low", ciLow);
+        map.put("ci-high", ciHigh);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n = %d, p90 = %d ns, p99 = %d ns, p99.9 = %d ns, SD = %d ns, MAD = %d ns, %d%% CI of median = [%d, %d] ns",
+                getCount(), getPercentile(0.9), getPercentile(0.99), getPercentile(0.999), Math.round(stddev), mad,
+                Math.round(CONFIDENCE * 100), ciLow, ciHigh);
+    }
+}
@@ -26,14 +26,28 @@ import java.util.*;
 import java.util.function.Function;
 
 /**
+ * The store of curves, keys and results bundled in the cz.crcs.ectester.data package.
+ * <p>
+ * The store is loaded from the precompiled {@link EC_StoreSnapshot} if present and up to date,
+ * otherwise the XML descriptions and CSV data are parsed. Only the list of categories is read upfront,
+ * the objects of a category are loaded when it is first accessed, or all at once by {@link #preload()}.
+ * The store is safe to use from multiple threads.
+ *
  * @author Jan Jancar johny@neuromancer.sk
  */
 public class EC_Store {
     private DocumentBuilder db;
     private Map<String, EC_Category> categories;
-    private static EC_Store instance;
+    private static volatile EC_Store instance;
+
+    EC_Store(boolean useSnapshot) {
+        if (useSnapshot) {
+            categories = EC_StoreSnapshot.load();
+            if (categories != null) {
+                return;
+            }
+        }
 
-    private EC_Store() {
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 
         try {
@@ -108,7 +122,7 @@ public class EC_Store {
 
         NodeList catList = categoriesDoc.getElementsByTagName("category");
 
-        this.categories = new TreeMap<>();
+        Map<String, EC_Category> parsed = new TreeMap<>();
         for (int i = 0; i < catList.getLength(); ++i) {
             Node catNode = catList.item(i);
             if (catNode instanceof Element) {
@@ -117,15 +131,31 @@ public class EC_Store {
                 Node dir = catElem.getElementsByTagName("directory").item(0);
                 Node desc = catElem.getElementsByTagName("desc").item(0);
 
-                EC_Category category = parseCategory(name.getTextContent(), dir.getTextContent(), desc.getTextContent());
-                this.categories.put(name.getTextContent(), category);
+                String catName = name.getTextContent();
+                String catDir = dir.getTextContent();
+                EC_Category category = new EC_Category(catName, catDir, desc.getTextContent(), () -> loadCategory(catName, catDir));
+                parsed.put(catName, category);
             } else {
                 throw new SAXException("?");
             }
         }
+        this.categories = parsed;
+    }
+
+    /**
+     * Parse the objects of a category, called when the category is first accessed.
+     * Synchronized, as the document builder can only be used by one thread at a time.
+     */
+    private synchronized Map<String, EC_Data> loadCategory(String name, String dir) {
+        try {
+            return parseCategory(dir);
+        } catch (IOException | SAXException e) {
+            System.err.println("EC_Store | Could not load category " + name + " : " + e);
+            return new TreeMap<>();
+        }
     }
 
-    private EC_Category parseCategory(String name, String dir, String desc) throws ParserConfigurationException, IOException, SAXException {
+    private Map<String, EC_Data> parseCategory(String dir) throws IOException, SAXException {
 
         Map<String, EC_Data> objMap = new TreeMap<>();
 
@@ -228,7 +258,7 @@ public class EC_Store {
             results.close();
         }
 
-        return new EC_Category(name, dir, desc, objMap);
+        return objMap;
     }
 
     private EC_Data parseResultlike(String dir, Element elem) throws SAXException, IOException {
@@ -319,6 +349,19 @@ public class EC_Store {
         return csv;
     }
 
+    boolean isLoaded() {
+        return categories != null;
+    }
+
+    /**
+     * Load all categories now, instead of when they are first accessed.
+     */
+    public void preload() {
+        for (EC_Category category : categories.values()) {
+            category.load();
+        }
+    }
+
     public Map<String, EC_Category> getCategories() {
         return Collections.unmodifiableMap(categories);
     }
@@ -360,12 +403,19 @@ public class EC_Store {
     }
 
     private static <T extends EC_Data> Map<EC_Curve, List<T>> mapKeyToCurve(Collection<T> data, Function<T, String> getter) {
-        Map<EC_Curve, List<T>> curves = new TreeMap<>();
+        Map<String, List<T>> byName = new HashMap<>();
         for (T item : data) {
-            EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, getter.apply(item));
-            List<T> curveKeys = curves.getOrDefault(curve, new LinkedList<>());
-            curveKeys.add(item);
-            curves.putIfAbsent(curve, curveKeys);
+            byName.computeIfAbsent(getter.apply(item), (name) -> new LinkedList<>()).add(item);
+        }
+        Map<EC_Curve, List<T>> curves = new TreeMap<>();
+        for (Map.Entry<String, List<T>> entry : byName.entrySet()) {
+            EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, entry.getKey());
+            List<T> curveKeys = curves.get(curve);
+            if (curveKeys == null) {
+                curves.put(curve, entry.getValue());
+            } else {
+                curveKeys.addAll(entry.getValue());
+            }
         }
         for (List<T> keyList : curves.values()) {
             Collections.sort(keyList);
@@ -396,10 +446,17 @@ public class EC_Store {
     }
 
     public static EC_Store getInstance() {
-        if (instance == null) {
-            instance = new EC_Store();
+        EC_Store store = instance;
+        if (store == null) {
+            synchronized (EC_Store.class) {
+                store = instance;
+                if (store == null) {
+                    store = new EC_Store(true);
+                    instance = store;
+                }
+            }
         }
-        return instance;
+        return store;
     }
 
 }
@@ -0,0 +1,344 @@
+package cz.crcs.ectester.data;
+
+import cz.crcs.ectester.common.ec.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A precompiled binary snapshot of the {@link EC_Store}, generated at build time by running this class,
+ * so that the store does not have to validate and parse the XML and CSV data on every start.
+ * <p>
+ * The snapshot starts with the magic <code>ECSS</code>, a version byte and a digest of the XML descriptions
+ * and CSV files it was built from, followed by an index of the categories (name, directory, description, offset
+ * and length of the category data) and the data of the categories. It is only used if the digest matches the XML
+ * descriptions and CSV files on the classpath, otherwise the store falls back to parsing them. The data of a category
+ * is only decoded when the category is first accessed.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class EC_StoreSnapshot {
+    static final String RESOURCE = "/cz/crcs/ectester/data/store.bin";
+    private static final byte[] MAGIC = {'E', 'C', 'S', 'S'};
+    private static final byte VERSION = 1;
+    private static final String[] CATEGORY_FILES = {"curves.xml", "keys.xml", "results.xml"};
+    private static final Pattern FILE_ELEMENT = Pattern.compile("<file>\\s*([^<]*?)\\s*</file>");
+
+    private static final byte CURVE = 0;
+    private static final byte PUBKEY = 1;
+    private static final byte PRIVKEY = 2;
+    private static final byte KEYPAIR = 3;
+    private static final byte KA_RESULT = 4;
+    private static final byte SIG_RESULT = 5;
+
+    private EC_StoreSnapshot() {
+    }
+
+    /**
+     * Load the categories from the snapshot on the classpath.
+     *
+     * @return The categories, or <code>null</code> if the snapshot is missing, malformed or stale.
+     */
+    static Map<String, EC_Category> load() {
+        InputStream in = EC_StoreSnapshot.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(readAll(in));
+            byte[] magic = new byte[MAGIC.length];
+            buf.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buf.get() != VERSION) {
+                return null;
+            }
+            byte[] digest = getBytes(buf);
+
+            int count = buf.getInt();
+            String[][] index = new String[count][];
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; ++i) {
+                index[i] = new String[]{getString(buf), getString(buf), getString(buf)};
+                offsets[i] = buf.getInt();
+            }
+            List<String> dirs = new LinkedList<>();
+            for (String[] entry : index) {
+                dirs.add(entry[1]);
+            }
+            if (!Arrays.equals(digest, digest(dirs))) {
+                return null;
+            }
+
+            ByteBuffer data = buf.slice();
+            Map<String, EC_Category> categories = new TreeMap<>();
+            for (int i = 0; i < count; ++i) {
+                String name = index[i][0];
+                int offset = offsets[i];
+                categories.put(name, new EC_Category(name, index[i][1], index[i][2], () -> loadCategory(name, data, offset)));
+            }
+            return categories;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            System.err.println("EC_Store | Invalid snapshot : " + ex);
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Map<String, EC_Data> loadCategory(String name, ByteBuffer data, int offset) {
+        ByteBuffer buf = data.duplicate();
+        try {
+            buf.position(offset);
+            return readObjects(buf);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            System.err.println("EC_Store | Could not load category " + name + " : " + ex);
+            return new TreeMap<>();
+        }
+    }
+
+    /**
+     * Write the categories as a snapshot.
+     *
+     * @param categories The categories to write.
+     * @param out        The stream to write to.
+     * @throws IOException if writing fails.
+     */
+    static void write(Map<String, EC_Category> categories, OutputStream out) throws IOException {
+        List<String> dirs = new LinkedList<>();
+        List<byte[]> payloads = new LinkedList<>();
+        for (EC_Category category : categories.values()) {
+            dirs.add(category.getDirectory());
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            writeObjects(category.getObjects(), new DataOutputStream(payload));
+            payloads.add(payload.toByteArray());
+        }
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.write(MAGIC);
+        dos.writeByte(VERSION);
+        putBytes(dos, digest(dirs));
+        dos.writeInt(categories.size());
+        int offset = 0;
+        Iterator<byte[]> it = payloads.iterator();
+        for (EC_Category category : categories.values()) {
+            putString(dos, category.getName());
+            putString(dos, category.getDirectory());
+            putString(dos, category.getDesc());
+            dos.writeInt(offset);
+            offset += it.next().length;
+        }
+        for (byte[] payload : payloads) {
+            dos.write(payload);
+        }
+        dos.flush();
+    }
+
+    private static void writeObjects(Map<String, EC_Data> objects, DataOutputStream out) throws IOException {
+        out.writeInt(objects.size());
+        for (Map.Entry<String, EC_Data> entry : objects.entrySet()) {
+            EC_Data obj = entry.getValue();
+            putString(out, entry.getKey());
+            putString(out, obj.getId());
+            if (obj instanceof EC_Curve) {
+                EC_Curve curve = (EC_Curve) obj;
+                out.writeByte(CURVE);
+                out.writeShort(curve.getBits());
+                out.writeByte(curve.getField());
+                putString(out, curve.getDesc());
+            } else if (obj instanceof EC_Key) {
+                EC_Key key = (EC_Key) obj;
+                out.writeByte(key instanceof EC_Key.Public ? PUBKEY : PRIVKEY);
+                putString(out, key.getCurve());
+                putString(out, key.getDesc());
+            } else if (obj instanceof EC_Keypair) {
+                EC_Keypair keypair = (EC_Keypair) obj;
+                out.writeByte(KEYPAIR);
+                putString(out, keypair.getCurve());
+                putString(out, keypair.getDesc());
+            } else if (obj instanceof EC_KAResult) {
+                EC_KAResult result = (EC_KAResult) obj;
+                out.writeByte(KA_RESULT);
+                putString(out, result.getKA());
+                putString(out, result.getCurve());
+                putString(out, result.getOneKey());
+                putString(out, result.getOtherKey());
+                putString(out, result.getDesc());
+            } else if (obj instanceof EC_SigResult) {
+                EC_SigResult result = (EC_SigResult) obj;
+                out.writeByte(SIG_RESULT);
+                putString(out, result.getSig());
+                putString(out, result.getCurve());
+                putString(out, result.getSignKey());
+                putString(out, result.getVerifyKey());
+                putString(out, result.getSigDataHex());
+                putString(out, result.getDesc());
+            } else {
+                throw new IOException("Unknown object type: " + obj.getClass().getName());
+            }
+            byte[][] data = obj.getData();
+            out.writeInt(data.length);
+            for (byte[] param : data) {
+                putBytes(out, param);
+            }
+        }
+    }
+
+    private static Map<String, EC_Data> readObjects(ByteBuffer buf) throws IOException {
+        Map<String, EC_Data> objects = new TreeMap<>();
+        int count = buf.getInt();
+        for (int i = 0; i < count; ++i) {
+            String key = getString(buf);
+            String id = getString(buf);
+            byte type = buf.get();
+            EC_Data obj;
+            switch (type) {
+                case CURVE:
+                    short bits = buf.getShort();
+                    byte field = buf.get();
+                    obj = new EC_Curve(id, bits, field, getString(buf));
+                    break;
+                case PUBKEY:
+                    obj = new EC_Key.Public(id, getString(buf), getString(buf));
+                    break;
+                case PRIVKEY:
+                    obj = new EC_Key.Private(id, getString(buf), getString(buf));
+                    break;
+                case KEYPAIR:
+                    obj = new EC_Keypair(id, getString(buf), getString(buf));
+                    break;
+                case KA_RESULT:
+                    obj = new EC_KAResult(id, getString(buf), getString(buf), getString(buf), getString(buf), getString(buf));
+                    break;
+                case SIG_RESULT:
+                    obj = new EC_SigResult(id, getString(buf), getString(buf), getString(buf), getString(buf), getString(buf), getString(buf));
+                    break;
+                default:
+                    throw new IOException("Unknown object type: " + type);
+            }
+            byte[][] data = new byte[buf.getInt()][];
+            for (int j = 0; j < data.length; ++j) {
+                data[j] = getBytes(buf);
+            }
+            if (!obj.readByteArray(data)) {
+                throw new IOException("Invalid data. " + id);
+            }
+            objects.put(key, obj);
+        }
+        return objects;
+    }
+
+    /**
+     * Compute the digest of the XML descriptions of the store and of the CSV files they reference,
+     * used to detect a stale snapshot.
+     */
+    private static byte[] digest(List<String> dirs) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digestResource(md, "categories.xml");
+        for (String dir : dirs) {
+            for (String file : CATEGORY_FILES) {
+                byte[] xml = digestResource(md, dir + "/" + file);
+                if (xml == null) {
+                    continue;
+                }
+                Matcher m = FILE_ELEMENT.matcher(new String(xml, StandardCharsets.UTF_8));
+                while (m.find()) {
+                    digestResource(md, dir + "/" + m.group(1));
+                }
+            }
+        }
+        return md.digest();
+    }
+
+    /**
+     * Add the name and the contents of the data resource to the digest.
+     *
+     * @return The contents of the resource, <code>null</code> if it does not exist.
+     */
+    private static byte[] digestResource(MessageDigest md, String resource) throws IOException {
+        md.update(resource.getBytes(StandardCharsets.UTF_8));
+        InputStream in = EC_StoreSnapshot.class.getResourceAsStream("/cz/crcs/ectester/data/" + resource);
+        if (in == null) {
+            md.update((byte) 0);
+            return null;
+        }
+        md.update((byte) 1);
+        byte[] content;
+        try {
+            content = readAll(in);
+        } finally {
+            in.close();
+        }
+        md.update(content);
+        return content;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buf)) >= 0) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void putBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        putBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] bytes = getBytes(buf);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the XML descriptions and write the snapshot to the file given as the only argument.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: EC_StoreSnapshot <output file>");
+            System.exit(1);
+        }
+        EC_Store store = new EC_Store(false);
+        if (!store.isLoaded()) {
+            System.err.println("Could not parse the EC_Store data.");
+            System.exit(1);
+        }
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            write(store.getCategories(), out);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cz.crcs.ectester.reader;
 
+import com.licel.jcardsim.base.SimulatorRuntime;
 import com.licel.jcardsim.io.JavaxSmartCardInterface;
 import cz.crcs.ectester.common.util.ByteUtil;
 import javacard.framework.AID;
@@ -24,6 +25,14 @@ public class CardMngr {
     private boolean simulate = false;
     private boolean verbose = true;
     private boolean chunking = false;
+    private boolean performData = false;
+    private int bufferLength = 0;
+
+    // Round-trip statistics of the session
+    private long commands = 0;
+    private long apdus = 0;
+    private long chunked = 0;
+    private long saved = 0;
 
     private final byte[] selectCM = {
             (byte) 0x00, (byte) 0xa4, (byte) 0x04, (byte) 0x00, (byte) 0x07, (byte) 0xa0, (byte) 0x00, (byte) 0x00,
@@ -37,6 +46,8 @@ public class CardMngr {
     public static final byte OFFSET_DATA = 0x05;
     public static final byte HEADER_LENGTH = 0x05;
 
+    public static final int CHUNK_LENGTH = 0xff;
+
     public static final short DATA_RECORD_LENGTH = (short) 0x80; // 128B per record
     public static final short NUMBER_OF_RECORDS = (short) 0x0a; // 10 records
 
@@ -183,6 +194,60 @@ public class CardMngr {
         chunking = state;
     }
 
+    public boolean isChunking() {
+        return chunking;
+    }
+
+    /**
+     * @param length the length of the applet buffer that chunked commands are assembled in, 0 if unknown
+     */
+    public void setBufferLength(int length) {
+        bufferLength = length;
+    }
+
+    /**
+     * @param state whether the perform command can carry the last chunk of a chunked command
+     */
+    public void setPerformData(boolean state) {
+        performData = state;
+    }
+
+    /**
+     * Checks the card capabilities in the historical bytes of the ATR (ISO 7816-4, compact-TLV tag 7).
+     *
+     * @return false if the ATR states that the card does not support extended length APDUs, true otherwise.
+     */
+    public boolean supportsExtendedLength() {
+        ATR atr = getATR();
+        if (atr == null) {
+            return true;
+        }
+        byte[] historical = atr.getHistoricalBytes();
+        if (historical.length == 0 || (historical[0] != (byte) 0x80 && historical[0] != 0x00)) {
+            return true;
+        }
+        // With category indicator 0x00 the last three bytes are a status indicator.
+        int end = historical[0] == 0x00 ? historical.length - 3 : historical.length;
+        int offset = 1;
+        while (offset < end) {
+            int tag = (historical[offset] >> 4) & 0x0f;
+            int length = historical[offset] & 0x0f;
+            if (tag == 0x07 && length >= 3 && offset + 3 < historical.length) {
+                return (historical[offset + 3] & 0x40) != 0;
+            }
+            offset += 1 + length;
+        }
+        return true;
+    }
+
+    /**
+     * @return a line describing how many commands and APDUs were sent in this session
+     * and how many round-trips were saved by extended length APDUs and by the perform command carrying data.
+     */
+    public String getRoundTrips() {
+        return String.format("Sent %d commands in %d APDUs, %d chunked, %d round-trips saved.", commands, apdus, chunked, saved);
+    }
+
     public String getProtocol() {
         if (simulate) {
             return simulator.getProtocol();
@@ -345,25 +410,43 @@ public class CardMngr {
         }
     }
 
+    /**
+     * Prepares a command for sending. If it has to be chunked, sends all of its chunks but the last one,
+     * which is carried by the returned perform command, if the applet supports it.
+     */
+    private CommandAPDU prepare(CommandAPDU apdu) throws CardException {
+        commands++;
+        if (apdu.getNc() < CHUNK_LENGTH) {
+            return apdu;
+        }
+        int numChunks = (apdu.getBytes().length + CHUNK_LENGTH - 1) / CHUNK_LENGTH;
+        if (!chunking) {
+            // Sent as one extended length APDU instead of the chunks and the perform command.
+            saved += numChunks;
+            return apdu;
+        }
+        chunked++;
+        return chunk(apdu);
+    }
+
     private CommandAPDU chunk(CommandAPDU apdu) throws CardException {
+        byte[] data = apdu.getBytes();
+        if (bufferLength > 0 && data.length > bufferLength) {
+            throw new CardException(String.format("Command of %d bytes does not fit into the applet buffer of %d bytes.", data.length, bufferLength));
+        }
         if (verbose) {
             System.out.print("Chunking:");
         }
-        byte[] data = apdu.getBytes();
-        int numChunks = (data.length + 254) / 255;
-        for (int i = 0; i < numChunks; ++i) {
-            int chunkStart = i * 255;
-            int chunkLength = 255;
-            if (chunkStart + chunkLength > data.length) {
-                chunkLength = data.length - chunkStart;
-            }
+        int numChunks = (data.length + CHUNK_LENGTH - 1) / CHUNK_LENGTH;
+        int buffered = performData ? numChunks - 1 : numChunks;
+        for (int i = 0; i < buffered; ++i) {
+            byte[] chunk = getChunk(data, i);
             if (verbose) {
-                System.out.print(" " + chunkLength);
+                System.out.print(" " + chunk.length);
             }
-            byte[] chunk = new byte[chunkLength];
-            System.arraycopy(data, chunkStart, chunk, 0, chunkLength);
             CommandAPDU cmd = new CommandAPDU(apdu.getCLA(), 0x7a, 0, 0, chunk);
             ResponseAPDU resp;
+            apdus++;
             if (simulate) {
                 resp = simulator.transmitCommand(cmd);
             } else {
@@ -373,11 +456,27 @@ public class CardMngr {
                 throw new CardException("Chunking failed!");
             }
         }
+        if (performData) {
+            byte[] last = getChunk(data, numChunks - 1);
+            if (verbose) {
+                System.out.println(" " + last.length + " (perform)");
+            }
+            saved++;
+            return new CommandAPDU(apdu.getCLA(), 0x7b, 0, 0, last, 0xff);
+        }
         if (verbose)
             System.out.println();
         return new CommandAPDU(apdu.getCLA(), 0x7b, 0, 0, 0xff);
     }
 
+    private static byte[] getChunk(byte[] data, int index) {
+        int chunkStart = index * CHUNK_LENGTH;
+        int chunkLength = Math.min(CHUNK_LENGTH, data.length - chunkStart);
+        byte[] chunk = new byte[chunkLength];
+        System.arraycopy(data, chunkStart, chunk, 0, chunkLength);
+        return chunk;
+    }
+
     public ResponseAPDU sendAPDU(CommandAPDU apdu) throws CardException {
         if (verbose) {
             System.out.println(">>>>");
@@ -387,13 +486,12 @@ public class CardMngr {
         }
 
         long elapsed;
-        if (chunking && apdu.getNc() >= 0xff) {
-            apdu = chunk(apdu);
-        }
+        apdu = prepare(apdu);
 
         elapsed = -System.nanoTime();
 
         ResponseAPDU responseAPDU = channel.transmit(apdu);
+        apdus++;
 
         elapsed += System.nanoTime();
 
@@ -408,6 +506,7 @@ public class CardMngr {
                     responseAPDU.getSW2());
 
             responseAPDU = channel.transmit(apduToSend);
+            apdus++;
             if (verbose)
                 System.out.println(ByteUtil.bytesToHex(responseAPDU.getBytes()));
         }
@@ -426,7 +525,8 @@ public class CardMngr {
     }
 
     public boolean prepareLocalSimulatorApplet(byte[] appletAIDArray, byte[] installData, Class<? extends Applet> appletClass) {
-        simulator = new JavaxSmartCardInterface();
+        // Every simulator gets its own runtime, so that several of them can be used at once.
+        simulator = new JavaxSmartCardInterface(new SimulatorRuntime());
         AID appletAID = new AID(appletAIDArray, (short) 0, (byte) appletAIDArray.length);
 
         simulator.installApplet(appletAID, appletClass, installData, (short) 0, (byte) installData.length);
@@ -440,11 +540,10 @@ public class CardMngr {
             System.out.println(ByteUtil.bytesToHex(apdu.getBytes()));
         }
 
-        if (chunking && apdu.getNc() >= 0xff) {
-            apdu = chunk(apdu);
-        }
+        apdu = prepare(apdu);
 
         ResponseAPDU response = simulator.transmitCommand(apdu);
+        apdus++;
         byte[] responseBytes = response.getBytes();
 
         if (verbose) {
@@ -28,8 +28,10 @@ import cz.crcs.ectester.applet.EC_Consts;
 import cz.crcs.ectester.common.cli.CLITools;
 import cz.crcs.ectester.common.cli.Colors;
 import cz.crcs.ectester.common.ec.EC_Curve;
+import cz.crcs.ectester.common.ec.RawECPublicKey;
 import cz.crcs.ectester.common.output.OutputLogger;
 import cz.crcs.ectester.common.output.TestWriter;
+import cz.crcs.ectester.common.test.TestSuiteException;
 import cz.crcs.ectester.common.util.Util;
 import cz.crcs.ectester.common.util.*;
 import cz.crcs.ectester.data.EC_Store;
@@ -45,14 +47,19 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import javax.smartcardio.CardException;
 import javax.smartcardio.ResponseAPDU;
-import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.math.BigInteger;
 import java.net.URL;
 import java.nio.file.Files;
+import java.security.GeneralSecurityException;
 import java.security.Security;
+import java.security.Signature;
 import java.security.spec.ECParameterSpec;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Manifest;
 
 import static cz.crcs.ectester.applet.EC_Consts.KeyAgreement_ALG_EC_SVDP_DH;
@@ -192,6 +199,8 @@ public class ECTesterReader {
                 }
             }
 
+            negotiate(cardManager);
+
             // Setup logger and respWriter
             logger = new OutputLogger(true, cfg.log);
             respWriter = new ResponseWriter(logger.getPrintStream());
@@ -220,6 +229,10 @@ public class ECTesterReader {
                 info();
             }
 
+            if (cfg.verbose || cfg.log != null) {
+                logger.println(cardManager.getRoundTrips());
+            }
+
             //disconnect
             cardManager.disconnectFromCard();
             logger.close();
@@ -264,8 +277,6 @@ public class ECTesterReader {
             if (logger != null)
                 logger.println(ex.getMessage());
             ex.printStackTrace();
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
         } finally {
             if (logger != null)
                 logger.flush();
@@ -288,7 +299,7 @@ public class ECTesterReader {
         actions.addOption(Option.builder("ls").longOpt("list-suites").desc("List supported test suites.").build());
         actions.addOption(Option.builder("e").longOpt("export").desc("Export the defaut curve parameters of the card(if any).").build());
         actions.addOption(Option.builder("g").longOpt("generate").desc("Generate <amount> of EC keys.").hasArg().argName("amount").optionalArg(true).build());
-        actions.addOption(Option.builder("t").longOpt("test").desc("Test ECC support. Optionally specify a test number to run only a part of a test suite. <test_suite>:\n- default\n- compression\n- invalid\n- twist\n- degenerate\n- cofactor\n- wrong\n- signature\n- composite\n- test-vectors\n- edge-cases\n- miscellaneous").hasArg().argName("test_suite[:from[:to]]").optionalArg(true).build());
+        actions.addOption(Option.builder("t").longOpt("test").desc("Test ECC support. Optionally specify a test number to run only a part of a test suite, or several comma-separated test suites. <test_suite>:\n- default\n- compression\n- invalid\n- twist\n- degenerate\n- cofactor\n- wrong\n- signature\n- composite\n- test-vectors\n- edge-cases\n- miscellaneous").hasArg().argName("test_suite[:from[:to]]|test_suite,...").optionalArg(true).build());
         actions.addOption(Option.builder("dh").longOpt("ecdh").desc("Do EC KeyAgreement (ECDH...), [count] times.").hasArg().argName("count").optionalArg(true).build());
         actions.addOption(Option.builder("dsa").longOpt("ecdsa").desc("Sign data with ECDSA, [count] times.").hasArg().argName("count").optionalArg(true).build());
         actions.addOption(Option.builder("nf").longOpt("info").desc("Get applet info.").build());
@@ -320,6 +331,7 @@ public class ECTesterReader {
         key.addOption(Option.builder("k").longOpt("key").desc("Use keyPair from file <key_file> (wx,wy,s).").hasArg().argName("key_file").build());
         opts.addOptionGroup(key);
 
+        opts.addOption(Option.builder().longOpt("batch").desc("Sign up to <size> times per APDU on the card, with --fixed key. The signatures are only verified on the host.").hasArg().argName("size").build());
         opts.addOption(Option.builder("i").longOpt("input").desc("Input from file <input_file>, for ECDSA signing.").hasArg().argName("input_file").build());
         opts.addOption(Option.builder("o").longOpt("output").desc("Output into file <output_file>. The file can be prefixed by the format (one of text,yml,xml), such as: xml:<output_file>.").hasArgs().argName("output_file").build());
         opts.addOption(Option.builder("l").longOpt("log").desc("Log output into file [log_file].").hasArg().argName("log_file").optionalArg(true).build());
@@ -335,6 +347,7 @@ public class ECTesterReader {
         opts.addOption(Option.builder().longOpt("time-unit").desc("Use given time unit in measurement, one of: milli, micro, nano.").hasArg().argName("unit").build());
         opts.addOption(Option.builder().longOpt("cleanup").desc("Send the cleanup command trigerring JCSystem.requestObjectDeletion() after some operations.").build());
         opts.addOption(Option.builder("s").longOpt("simulate").desc("Simulate a card with jcardsim instead of using a terminal.").build());
+        opts.addOption(Option.builder().longOpt("shards").desc("Run the selected test suites on <n> simulated cards in parallel, requires -s.").hasArg().argName("n").build());
         opts.addOption(Option.builder("y").longOpt("yes").desc("Accept all warnings and prompts.").build());
         opts.addOption(Option.builder("to").longOpt("test-options").desc("Test options to use:\n- preset: Use preset semi-random private keys (derived from curve) instead of generating keypairs on the cards when the test needs one.\n- random: Use fully random private keys instead of generating keypairs.").hasArg().argName("options").build());
 
@@ -373,12 +386,30 @@ public class ECTesterReader {
         System.out.println("For more information, look at the documentation at https://github.com/crocs-muni/ECTester.");
     }
 
+    /**
+     * Negotiates how commands are sent to the applet, based on the applet info and the ATR of the card.
+     * Extended length APDUs are used if both the applet and the card support them, otherwise
+     * long commands are chunked into the applet buffer.
+     */
+    static void negotiate(CardMngr cardManager) throws CardException {
+        Response.GetInfo info = new Command.GetInfo(cardManager).send();
+        if (!info.successful()) {
+            return;
+        }
+        if (info.getBase() == ECTesterApplet.BASE_221 || !cardManager.supportsExtendedLength()) {
+            cardManager.setChunking(true);
+        }
+        cardManager.setBufferLength(info.getApduArrayLength());
+        cardManager.setPerformData(info.getPerformDataSupport());
+    }
+
     private void info() throws CardException {
         Response.GetInfo info = new Command.GetInfo(cardManager).send();
         System.out.println(String.format("Card ATR:\t\t\t\t%s", ByteUtil.bytesToHex(cardManager.getATR().getBytes(), false)));
         System.out.println(String.format("Card protocol:\t\t\t\t%s", cardManager.getProtocol()));
         System.out.println(String.format("ECTester applet version:\t\t%s", info.getVersion()));
         System.out.println(String.format("ECTester applet APDU support:\t\t%s", (info.getBase() == ECTesterApplet.BASE_221) ? "basic" : "extended length"));
+        System.out.println(String.format("Long commands sent:\t\t\t%s", cardManager.isChunking() ? (info.getPerformDataSupport() ? "chunked, last chunk with perform" : "chunked") : "in extended length APDUs"));
         System.out.println(String.format("JavaCard API version:\t\t\t%.1f", info.getJavaCardVersion()));
         System.out.println(String.format("JavaCard supports system cleanup:\t%s", info.getCleanupSupport()));
         System.out.println(String.format("Array sizes (apduBuf,ram,ram2,apduArr):\t%d %d %d %d", info.getApduBufferLength(), info.getRamArrayLength(), info.getRamArray2Length(), info.getApduArrayLength()));
@@ -452,6 +483,7 @@ public class ECTesterReader {
 
         int generated = 0;
         int retry = 0;
+        Long dryRun = null;
         while (generated < cfg.generateAmount || cfg.generateAmount == 0) {
             if ((cfg.fresh || generated == 0) && curve != null) {
                 Response fresh = curve.send();
@@ -461,7 +493,10 @@ public class ECTesterReader {
             Command.Generate generate = new Command.Generate(cardManager, ECTesterApplet.KEYPAIR_LOCAL);
             long time = 0;
             if (cfg.time) {
-                time = -Command.dryRunTime(cardManager, generate, 2, respWriter);
+                if (dryRun == null) {
+                    dryRun = Command.dryRunTime(cardManager, generate, 2, respWriter);
+                }
+                time = -dryRun;
             }
             Response.Generate response = generate.send();
             time += response.getDuration();
@@ -498,72 +533,130 @@ public class ECTesterReader {
     /**
      * Tests Elliptic curve support for a given curve/curves.
      *
-     * @throws IOException if an IO error occurs
+     * @throws IOException   if an IO error occurs
+     * @throws CardException if the simulated cards could not be established
      */
-    private void test() throws ParserConfigurationException, IOException {
+    private void test() throws IOException, CardException {
+        List<String> dangerous = new LinkedList<>();
+        for (String suite : cfg.testSuites) {
+            if (!Arrays.asList("default", "test-vectors", "compression", "miscellaneous", "signature").contains(suite)) {
+                dangerous.add(suite);
+            }
+        }
+        if (!dangerous.isEmpty()) {
+            // These run are dangerous, prompt before them.
+            System.out.println("The test you selected (" + String.join(",", dangerous) + ") is potentially dangerous.");
+            System.out.println("Some of these run have caused temporary(or even permanent) DoS of some cards.");
+            if (!cfg.yes) {
+                System.out.print("Do you want to proceed? (y/n): ");
+                Scanner in = new Scanner(System.in);
+                String confirmation = in.nextLine().toLowerCase();
+                if (!Arrays.asList("yes", "y").contains(confirmation)) {
+                    return;
+                }
+                in.close();
+            }
+        }
+
+        if (cfg.shards > 1) {
+            testSharded();
+            return;
+        }
         TestWriter writer = new FileTestWriter(cfg.format, true, cfg.outputs);
+        for (String suiteName : cfg.testSuites) {
+            createSuite(suiteName, writer, cardManager).run(cfg.testFrom, cfg.testTo);
+        }
+    }
 
-        CardTestSuite suite;
+    /**
+     * Runs the test suites on a pool of simulated cards. Every suite is written into its own buffers,
+     * which are output in the order the suites were selected in once they all finish, so the output
+     * does not depend on which shard finished first.
+     */
+    private void testSharded() throws IOException, CardException {
+        int fLength = cfg.outputs == null ? 0 : cfg.outputs.length;
+        SimulatorPool pool = new SimulatorPool(Math.min(cfg.shards, cfg.testSuites.length), ByteUtil.concatenate(AID_PREFIX, AID_CURRENT_VERSION, AID_SUFFIX_221), INSTALL_DATA, ECTesterApplet.class);
+        ExecutorService executor = Executors.newFixedThreadPool(pool.size());
+        List<Future<ByteArrayOutputStream[]>> futures = new LinkedList<>();
+        for (String suiteName : cfg.testSuites) {
+            futures.add(executor.submit(() -> {
+                ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[fLength + 1];
+                PrintStream[] streams = new PrintStream[fLength + 1];
+                for (int i = 0; i < buffers.length; ++i) {
+                    buffers[i] = new ByteArrayOutputStream();
+                    streams[i] = new PrintStream(buffers[i], true);
+                }
+                TestWriter writer = new FileTestWriter(cfg.format, streams[0], cfg.outputs, Arrays.copyOfRange(streams, 1, streams.length));
+                CardMngr card = pool.take();
+                try {
+                    createSuite(suiteName, writer, card).run(cfg.testFrom, cfg.testTo);
+                } catch (TestSuiteException e) {
+                    System.err.println(Colors.error(suiteName + ": " + e.getCause()));
+                } finally {
+                    pool.release(card);
+                }
+                return buffers;
+            }));
+        }
+
+        List<OutputStream> files = new LinkedList<>();
+        try {
+            for (int i = 0; i < fLength; ++i) {
+                files.add(new FileOutputStream(FileTestWriter.getFileName(cfg.outputs[i])));
+            }
+            for (Future<ByteArrayOutputStream[]> future : futures) {
+                ByteArrayOutputStream[] buffers;
+                try {
+                    buffers = future.get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    continue;
+                }
+                buffers[0].writeTo(System.out);
+                for (int i = 0; i < fLength; ++i) {
+                    buffers[i + 1].writeTo(files.get(i));
+                }
+            }
+            System.out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            for (OutputStream file : files) {
+                file.close();
+            }
+        }
+    }
 
-        switch (cfg.testSuite) {
+    private CardTestSuite createSuite(String suiteName, TestWriter writer, CardMngr card) {
+        switch (suiteName) {
             case "default":
-                suite = new CardDefaultSuite(writer, cfg, cardManager);
-                break;
+                return new CardDefaultSuite(writer, cfg, card);
             case "test-vectors":
-                suite = new CardTestVectorSuite(writer, cfg, cardManager);
-                break;
+                return new CardTestVectorSuite(writer, cfg, card);
             case "compression":
-                suite = new CardCompressionSuite(writer, cfg, cardManager);
-                break;
+                return new CardCompressionSuite(writer, cfg, card);
             case "miscellaneous":
-                suite = new CardMiscSuite(writer, cfg, cardManager);
-                break;
+                return new CardMiscSuite(writer, cfg, card);
             case "signature":
-                suite = new CardSignatureSuite(writer, cfg, cardManager);
-                break;
+                return new CardSignatureSuite(writer, cfg, card);
+            case "wrong":
+                return new CardWrongSuite(writer, cfg, card);
+            case "composite":
+                return new CardCompositeSuite(writer, cfg, card);
+            case "invalid":
+                return new CardInvalidSuite(writer, cfg, card);
+            case "degenerate":
+                return new CardDegenerateSuite(writer, cfg, card);
+            case "twist":
+                return new CardTwistSuite(writer, cfg, card);
+            case "cofactor":
+                return new CardCofactorSuite(writer, cfg, card);
+            case "edge-cases":
+                return new CardEdgeCasesSuite(writer, cfg, card);
             default:
-                // These run are dangerous, prompt before them.
-                System.out.println("The test you selected (" + cfg.testSuite + ") is potentially dangerous.");
-                System.out.println("Some of these run have caused temporary(or even permanent) DoS of some cards.");
-                if (!cfg.yes) {
-                    System.out.print("Do you want to proceed? (y/n): ");
-                    Scanner in = new Scanner(System.in);
-                    String confirmation = in.nextLine().toLowerCase();
-                    if (!Arrays.asList("yes", "y").contains(confirmation)) {
-                        return;
-                    }
-                    in.close();
-                }
-                switch (cfg.testSuite) {
-                    case "wrong":
-                        suite = new CardWrongSuite(writer, cfg, cardManager);
-                        break;
-                    case "composite":
-                        suite = new CardCompositeSuite(writer, cfg, cardManager);
-                        break;
-                    case "invalid":
-                        suite = new CardInvalidSuite(writer, cfg, cardManager);
-                        break;
-                    case "degenerate":
-                        suite = new CardDegenerateSuite(writer, cfg, cardManager);
-                        break;
-                    case "twist":
-                        suite = new CardTwistSuite(writer, cfg, cardManager);
-                        break;
-                    case "cofactor":
-                        suite = new CardCofactorSuite(writer, cfg, cardManager);
-                        break;
-                    case "edge-cases":
-                        suite = new CardEdgeCasesSuite(writer, cfg, cardManager);
-                        break;
-                    default:
-                        System.err.println(Colors.error("Unknown test suite."));
-                        return;
-                }
-                break;
+                throw new IllegalArgumentException("Unknown test suite " + suiteName);
         }
-
-        suite.run(cfg.testFrom, cfg.testTo);
     }
 
     /**
@@ -617,33 +710,67 @@ public class ECTesterReader {
         if (kp != 0) {
             generate = new Command.Generate(cardManager, kp);
         }
+        // Generate, export and do ECDH in one APDU, unless timing, then the generation is done separately,
+        // so that it is not included in the time. Falls back to separate commands if the applet cannot do it.
+        Command.GenerateECDH generateECDH = new Command.GenerateECDH(cardManager, cfg.time ? 0 : kp, ECTesterApplet.EXPORT_TRUE, EC_Consts.TRANSFORMATION_NONE, cfg.ECKAType);
+        Command.Export exportRemote = new Command.Export(cardManager, ECTesterApplet.KEYPAIR_REMOTE, EC_Consts.KEY_PUBLIC, EC_Consts.PARAMETER_W);
+        Command.Export exportLocal = new Command.Export(cardManager, ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.KEY_PRIVATE, EC_Consts.PARAMETER_S);
+        Command.ECDH perform = new Command.ECDH(cardManager, ECTesterApplet.KEYPAIR_REMOTE, ECTesterApplet.KEYPAIR_LOCAL, ECTesterApplet.EXPORT_TRUE, EC_Consts.TRANSFORMATION_NONE, cfg.ECKAType);
+        boolean combined = true;
+        boolean combinedWorks = false;
+        Long dryRun = null;
 
         int retry = 0;
         int done = 0;
         while (done < cfg.ECKACount || cfg.ECKACount == 0) {
-            if (generate != null) {
+            if (generate != null && (cfg.time || !combined)) {
                 Response regen = generate.send();
                 respWriter.outputResponse(regen);
             }
 
-            Response.Export exportRemote = new Command.Export(cardManager, ECTesterApplet.KEYPAIR_REMOTE, EC_Consts.KEY_PUBLIC, EC_Consts.PARAMETER_W).send();
-            respWriter.outputResponse(exportRemote);
-            Response.Export exportLocal = new Command.Export(cardManager, ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.KEY_PRIVATE, EC_Consts.PARAMETER_S).send();
-            respWriter.outputResponse(exportLocal);
-            byte[] pubkey_bytes = exportRemote.getParameter(ECTesterApplet.KEYPAIR_REMOTE, EC_Consts.PARAMETER_W);
-            byte[] privkey_bytes = exportLocal.getParameter(ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.PARAMETER_S);
-
-            Command.ECDH perform = new Command.ECDH(cardManager, ECTesterApplet.KEYPAIR_REMOTE, ECTesterApplet.KEYPAIR_LOCAL, ECTesterApplet.EXPORT_TRUE, EC_Consts.TRANSFORMATION_NONE, cfg.ECKAType);
+            byte[] pubkey_bytes;
+            byte[] privkey_bytes;
+            byte[] secret = null;
+            long time;
+            if (combined) {
+                if (cfg.time && dryRun == null) {
+                    dryRun = Command.dryRunTime(cardManager, generateECDH, 2, respWriter);
+                }
+                Response.GenerateECDH result = generateECDH.send();
+                respWriter.outputResponse(result);
+                if (result.error() && !combinedWorks) {
+                    combined = false;
+                    dryRun = null;
+                    continue;
+                }
+                combinedWorks = true;
 
-            long time = 0;
-            if (cfg.time) {
-                time = -Command.dryRunTime(cardManager, perform, 2, respWriter);
+                pubkey_bytes = result.getPubkey();
+                privkey_bytes = result.getPrivkey();
+                if (result.successful() && result.hasSecret()) {
+                    secret = result.getSecret();
+                }
+                time = result.getDuration();
+            } else {
+                Response.Export remote = exportRemote.send();
+                respWriter.outputResponse(remote);
+                Response.Export local = exportLocal.send();
+                respWriter.outputResponse(local);
+                pubkey_bytes = remote.getParameter(ECTesterApplet.KEYPAIR_REMOTE, EC_Consts.PARAMETER_W);
+                privkey_bytes = local.getParameter(ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.PARAMETER_S);
+
+                if (cfg.time && dryRun == null) {
+                    dryRun = Command.dryRunTime(cardManager, perform, 2, respWriter);
+                }
+                Response.ECDH result = perform.send();
+                respWriter.outputResponse(result);
+                if (result.successful() && result.hasSecret()) {
+                    secret = result.getSecret();
+                }
+                time = result.getDuration();
             }
 
-            Response.ECDH result = perform.send();
-            respWriter.outputResponse(result);
-
-            if (!result.successful() || !result.hasSecret()) {
+            if (secret == null) {
                 if (retry < 10) {
                     ++retry;
                     continue;
@@ -654,9 +781,11 @@ public class ECTesterReader {
             }
 
             if (out != null) {
-                time += result.getDuration();
+                if (cfg.time) {
+                    time -= dryRun;
+                }
 
-                out.write(String.format("%d;%d;%s;%s;%s\n", done, Util.convertTime(time, cfg.timeUnit), ByteUtil.bytesToHex(pubkey_bytes, false), ByteUtil.bytesToHex(privkey_bytes, false), ByteUtil.bytesToHex(result.getSecret(), false)));
+                out.write(String.format("%d;%d;%s;%s;%s\n", done, Util.convertTime(time, cfg.timeUnit), ByteUtil.bytesToHex(pubkey_bytes, false), ByteUtil.bytesToHex(privkey_bytes, false), ByteUtil.bytesToHex(secret, false)));
                 out.flush();
             }
 
@@ -725,9 +854,16 @@ public class ECTesterReader {
             respWriter.outputResponse(exported);
         }
 
+        boolean batched = false;
+        if (cfg.ECDSABatch > 0) {
+            batched = ecdsaBatch(data, exported, keyClass, out);
+        }
+
         int retry = 0;
         int done = 0;
-        while (done < cfg.ECDSACount || cfg.ECDSACount == 0) {
+        Long signDryRun = null;
+        Long verifyDryRun = null;
+        while (!batched && (done < cfg.ECDSACount || cfg.ECDSACount == 0)) {
             if (!cfg.fixedKey) {
                 respWriter.outputResponse(generate.send());
                 exported = export.send();
@@ -738,7 +874,10 @@ public class ECTesterReader {
 
             long signTime = 0;
             if (cfg.time) {
-                signTime = -Command.dryRunTime(cardManager, sign, 2, respWriter);
+                if (signDryRun == null) {
+                    signDryRun = Command.dryRunTime(cardManager, sign, 2, respWriter);
+                }
+                signTime = -signDryRun;
             }
 
             Response.ECDSA signResp = sign.send();
@@ -757,7 +896,10 @@ public class ECTesterReader {
             Command.ECDSA_verify verify = new Command.ECDSA_verify(cardManager, ECTesterApplet.KEYPAIR_LOCAL, cfg.ECDSAType, data, signature);
             long verifyTime = 0;
             if (cfg.time) {
-                verifyTime = -Command.dryRunTime(cardManager, verify, 2, respWriter);
+                if (verifyDryRun == null) {
+                    verifyDryRun = Command.dryRunTime(cardManager, verify, 2, respWriter);
+                }
+                verifyTime = -verifyDryRun;
             }
             Response.ECDSA verifyResp = verify.send();
             verifyTime += verifyResp.getDuration();
@@ -801,6 +943,95 @@ public class ECTesterReader {
             out.close();
     }
 
+    /**
+     * Signs the data with the fixed local keypair, packing as many signatures into one response as fit.
+     * The signatures are verified on the host, if the curve is known.
+     *
+     * @return whether the applet supports batched signing.
+     */
+    private boolean ecdsaBatch(byte[] data, Response.Export exported, byte keyClass, OutputStreamWriter out) throws CardException, IOException {
+        Response.GetInfo info = new Command.GetInfo(cardManager).send();
+        respWriter.outputResponse(info);
+        boolean extended = info.successful() && info.getBase() != ECTesterApplet.BASE_221;
+
+        byte[] pubW = exported.getParameter(ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.PARAMETER_W);
+        byte[] privS = exported.getParameter(ECTesterApplet.KEYPAIR_LOCAL, EC_Consts.PARAMETER_S);
+        String pub = ByteUtil.bytesToHex(pubW, false);
+        String priv = ByteUtil.bytesToHex(privS, false);
+        String dataString = (cfg.input != null) ? "" : ByteUtil.bytesToHex(data, false);
+        BigInteger privkey = new BigInteger(1, privS);
+
+        EC_Curve actualCurve = Command.findCurve(cfg, cfg.bits, keyClass);
+        ECParameterSpec params = null;
+        Signature verifier = null;
+        if (actualCurve != null) {
+            params = actualCurve.toSpec();
+            try {
+                verifier = Signature.getInstance(CardUtil.getSigHashAlgo(cfg.ECDSAType) + "withECDSA");
+                verifier.initVerify(new RawECPublicKey(ECUtil.fromX962(pubW, params.getCurve()), params));
+            } catch (GeneralSecurityException | IllegalArgumentException ex) {
+                System.err.println(Colors.error("Cannot verify the signatures on the host: " + ex.getMessage()));
+                verifier = null;
+            }
+        }
+
+        int retry = 0;
+        int done = 0;
+        while (done < cfg.ECDSACount || cfg.ECDSACount == 0) {
+            int count = cfg.ECDSABatch;
+            if (cfg.ECDSACount != 0) {
+                count = Math.min(count, cfg.ECDSACount - done);
+            }
+            Response.ECDSA_signBatch batch = new Command.ECDSA_signBatch(cardManager, ECTesterApplet.KEYPAIR_LOCAL, cfg.ECDSAType, count, data, extended).send();
+            respWriter.outputResponse(batch);
+            if (done == 0 && batch.getNaturalSW() == ISO7816.SW_INS_NOT_SUPPORTED) {
+                System.err.println(Colors.error("The applet does not support batched signing, signing one by one."));
+                return false;
+            }
+
+            int signatures = 0;
+            while (signatures < batch.getNumSignatures() && batch.hasSignature(signatures)) {
+                ++signatures;
+            }
+            if (signatures == 0) {
+                if (retry < 10) {
+                    ++retry;
+                    continue;
+                } else {
+                    System.err.println(Colors.error("Couldn't obtain ECDSA signature from card response."));
+                    break;
+                }
+            }
+
+            if (out != null) {
+                long signTime = batch.getDuration() / signatures;
+                for (int i = 0; i < signatures; ++i) {
+                    byte[] signature = batch.getSignature(i);
+                    String k = "";
+                    String valid = "";
+                    if (params != null) {
+                        BigInteger kValue = ECUtil.recoverSignatureNonce(signature, data, privkey, params, CardUtil.getSigHashName(cfg.ECDSAType));
+                        if (kValue != null) {
+                            k = ByteUtil.bytesToHex(kValue.toByteArray(), false);
+                        }
+                    }
+                    if (verifier != null) {
+                        try {
+                            verifier.update(data);
+                            valid = verifier.verify(signature) ? "1" : "0";
+                        } catch (GeneralSecurityException ex) {
+                            valid = "0";
+                        }
+                    }
+                    out.write(String.format("%d;%d;%d;%s;%s;%s;%s;%s;%s\n", done + i, Util.convertTime(signTime, cfg.timeUnit), 0, dataString, pub, priv, ByteUtil.bytesToHex(signature, false), k, valid));
+                }
+                out.flush();
+            }
+            done += signatures;
+        }
+        return true;
+    }
+
     public static void main(String[] args) {
         ECTesterReader app = new ECTesterReader();
         app.run(args);
@@ -853,13 +1084,15 @@ public class ECTesterReader {
 
         //Action-related options
         public String listNamed;
-        public String testSuite;
+        public String[] testSuites;
+        public int shards;
         public int testFrom;
         public int testTo;
         public int generateAmount;
         public int ECKACount;
         public byte ECKAType = KeyAgreement_ALG_EC_SVDP_DH;
         public int ECDSACount;
+        public int ECDSABatch;
         public byte ECDSAType = Signature_ALG_ECDSA_SHA;
         public Set<String> testOptions;
 
@@ -992,9 +1225,12 @@ public class ECTesterReader {
                 }
 
                 String suiteOpt = cli.getOptionValue("test", "default").toLowerCase();
-                if (suiteOpt.contains(":")) {
+                if (suiteOpt.contains(":") && suiteOpt.contains(",")) {
+                    System.err.println(Colors.error("Cannot select a part of more than one test suite."));
+                    return false;
+                } else if (suiteOpt.contains(":")) {
                     String[] parts = suiteOpt.split(":");
-                    testSuite = parts[0];
+                    suiteOpt = parts[0];
                     try {
                         testFrom = Integer.parseInt(parts[1]);
                     } catch (NumberFormatException nfe) {
@@ -1015,28 +1251,46 @@ public class ECTesterReader {
                         testTo = -1;
                     }
                 } else {
-                    testSuite = suiteOpt;
                     testFrom = 0;
                     testTo = -1;
                 }
 
                 String[] tests = new String[]{"default", "composite", "compression", "invalid", "degenerate", "test-vectors", "wrong", "twist", "cofactor", "edge-cases", "miscellaneous", "signature"};
-                String selected = null;
-                for (String test : tests) {
-                    if (test.startsWith(testSuite)) {
-                        if (selected != null) {
-                            System.err.println(Colors.error("Test suite ambiguous " + test + " or " + selected + "?"));
-                            return false;
-                        } else {
-                            selected = test;
+                List<String> suites = new LinkedList<>();
+                for (String suite : suiteOpt.split(",")) {
+                    String selected = null;
+                    for (String test : tests) {
+                        if (test.startsWith(suite)) {
+                            if (selected != null) {
+                                System.err.println(Colors.error("Test suite ambiguous " + test + " or " + selected + "?"));
+                                return false;
+                            } else {
+                                selected = test;
+                            }
                         }
                     }
+                    if (suite.isEmpty() || selected == null) {
+                        System.err.println(Colors.error("Unknown test suite " + suite + ". Should be one of: " + Arrays.toString(tests)));
+                        return false;
+                    }
+                    if (!suites.contains(selected)) {
+                        suites.add(selected);
+                    }
                 }
-                if (selected == null) {
-                    System.err.println(Colors.error("Unknown test suite " + testSuite + ". Should be one of: " + Arrays.toString(tests)));
+                testSuites = suites.toArray(new String[0]);
+                if (testSuites.length > 1 && ("xml".equals(format) || (outputs != null && Arrays.stream(outputs).anyMatch(output -> output.startsWith("xml:"))))) {
+                    System.err.println(Colors.error("The XML output holds a single test suite, select only one test suite to output XML."));
+                    return false;
+                }
+
+                shards = Integer.parseInt(cli.getOptionValue("shards", "1"));
+                if (shards < 1) {
+                    System.err.println(Colors.error("Number of shards must be positive."));
+                    return false;
+                }
+                if (shards > 1 && !simulate) {
+                    System.err.println(Colors.error("Running test suites in shards requires a simulated card (-s)."));
                     return false;
-                } else {
-                    testSuite = selected;
                 }
 
                 String[] opts = cli.getOptionValue("test-options", "").split(",");
@@ -1097,6 +1351,22 @@ public class ECTesterReader {
                 }
 
                 ECDSAType = CardUtil.parseSigType(cli.getOptionValue("sig-type", "17"));
+
+                if (cli.hasOption("batch")) {
+                    ECDSABatch = Integer.parseInt(cli.getOptionValue("batch"));
+                    if (ECDSABatch < 1 || ECDSABatch > 255) {
+                        System.err.println(Colors.error("ECDSA batch size must be between 1 and 255."));
+                        return false;
+                    }
+                    if (!fixedKey) {
+                        System.err.println(Colors.error("Batched signing needs a fixed key, use --fixed."));
+                        return false;
+                    }
+                    if (time) {
+                        System.err.println(Colors.error("Batched signing cannot be timed with --time, the card signs the whole batch at once."));
+                        return false;
+                    }
+                }
             }
             return true;
         }
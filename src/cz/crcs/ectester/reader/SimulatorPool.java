@@ -0,0 +1,144 @@
+package cz.crcs.ectester.reader;
+
+import cz.crcs.ectester.reader.command.Command;
+import javacard.framework.Applet;
+
+import javax.smartcardio.CardException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A pool of independent simulated cards, so that test suites can be run on them in parallel.
+ * <p>
+ * jCardSim keeps its runtime per thread, but the applet keeps some state in static fields
+ * (see {@link cz.crcs.ectester.applet.EC_Consts}), so every simulator in the pool loads the applet
+ * classes with its own class loader. The simulators are kept for the whole run, a card taken from
+ * the pool is cleaned up when it is returned, or gets a freshly installed applet if that fails.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class SimulatorPool {
+    private static final String APPLET_PACKAGE = "cz.crcs.ectester.applet.";
+
+    private final BlockingQueue<CardMngr> cards;
+    private final int size;
+    private final byte[] aid;
+    private final byte[] installData;
+    private final String appletClass;
+
+    /**
+     * @param size        number of simulators
+     * @param aid         the AID to install the applet under
+     * @param installData the install data of the applet
+     * @param appletClass the applet class to install
+     * @throws CardException if a simulator could not be established
+     */
+    public SimulatorPool(int size, byte[] aid, byte[] installData, Class<? extends Applet> appletClass) throws CardException {
+        this.size = size;
+        this.aid = aid;
+        this.installData = installData;
+        this.appletClass = appletClass.getName();
+        this.cards = new LinkedBlockingQueue<>();
+        for (int i = 0; i < size; ++i) {
+            CardMngr card = new CardMngr(false, true);
+            install(card);
+            cards.add(card);
+        }
+    }
+
+    private void install(CardMngr card) throws CardException {
+        Class<? extends Applet> isolated;
+        try {
+            isolated = new IsolatingClassLoader(getClass().getClassLoader()).loadClass(appletClass).asSubclass(Applet.class);
+        } catch (ClassNotFoundException e) {
+            throw new CardException(e);
+        }
+        if (!card.prepareLocalSimulatorApplet(aid, installData, isolated)) {
+            throw new CardException("Failed to establish a simulator.");
+        }
+        ECTesterReader.negotiate(card);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take a card from the pool, waiting for one to be returned if all of them are in use.
+     *
+     * @return the card
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public CardMngr take() throws InterruptedException {
+        return cards.take();
+    }
+
+    /**
+     * Return a card taken from the pool.
+     *
+     * @param card the card
+     */
+    public void release(CardMngr card) {
+        try {
+            if (!new Command.Cleanup(card).send().successful()) {
+                install(card);
+            }
+        } catch (CardException e) {
+            try {
+                install(card);
+            } catch (CardException ex) {
+                System.err.println("Failed to reinstall the simulated applet: " + ex.getMessage());
+                return;
+            }
+        }
+        cards.add(card);
+    }
+
+    /**
+     * Loads the applet classes itself, everything else (javacard, jCardSim) is shared with the parent.
+     */
+    private static class IsolatingClassLoader extends ClassLoader {
+        IsolatingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(APPLET_PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    c = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[4096];
+                int read;
+                while ((read = in.read(buf)) >= 0) {
+                    out.write(buf, 0, read);
+                }
+                byte[] bytes = out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}
@@ -607,6 +607,69 @@ public abstract class Command implements Cloneable {
         }
     }
 
+    /**
+     *
+     */
+    public static class GenerateECDH extends Command {
+        private byte keyPair;
+        private byte export;
+        private short transformation;
+        private byte type;
+
+        /**
+         * Creates the INS_GENERATE_ECDH instruction, which generates the keyPairs, exports the remote pubkey and
+         * the local privkey and performs ECDH between them.
+         *
+         * @param cardManager    cardManager to send APDU through
+         * @param keyPair        which keyPair to generate, local/remote (KEYPAIR_* | ...), 0 to not generate
+         * @param export         whether to export ECDH secret
+         * @param transformation whether to transform the pubkey before ECDH (EC_Consts.TRANSFORMATION_* | ...)
+         * @param type           ECDH algorithm type (EC_Consts.KA_* | ...)
+         */
+        public GenerateECDH(CardMngr cardManager, byte keyPair, byte export, short transformation, byte type) {
+            super(cardManager);
+            this.keyPair = keyPair;
+            this.export = export;
+            this.transformation = transformation;
+            this.type = type;
+
+            byte[] data = new byte[]{0, 0, type};
+            ByteUtil.setShort(data, 0, transformation);
+
+            this.cmd = new CommandAPDU(ECTesterApplet.CLA_ECTESTERAPPLET, ECTesterApplet.INS_GENERATE_ECDH, keyPair, export, data);
+        }
+
+        @Override
+        public Response.GenerateECDH send() throws CardException {
+            long elapsed = -System.nanoTime();
+            ResponseAPDU response = cardManager.send(cmd);
+            elapsed += System.nanoTime();
+            return new Response.GenerateECDH(response, getDescription(), elapsed, keyPair, export, transformation, type);
+        }
+
+        @Override
+        public String getDescription() {
+            String algo = CardUtil.getKATypeString(type);
+
+            String generate;
+            if (keyPair == 0) {
+                generate = "";
+            } else if (keyPair == ECTesterApplet.KEYPAIR_BOTH) {
+                generate = "Generate both keypairs, ";
+            } else {
+                generate = String.format("Generate %s keypair, ", (keyPair == ECTesterApplet.KEYPAIR_LOCAL) ? "local" : "remote");
+            }
+
+            String validity;
+            if (transformation == EC_Consts.TRANSFORMATION_NONE) {
+                validity = "";
+            } else {
+                validity = String.format("(%s point)", CardUtil.getTransformation(transformation));
+            }
+            return String.format("%s%s of remote pubkey and local privkey%s", generate, algo, validity);
+        }
+    }
+
     /**
      *
      */
@@ -775,6 +838,65 @@ public abstract class Command implements Cloneable {
         }
     }
 
+    public static class ECDSA_signBatch extends Command {
+        private byte keyPair;
+        private byte sigType;
+        private int count;
+        private byte[] raw;
+
+        /**
+         * Creates the INS_ECDSA_SIGN_BATCH instruction, which signs the data up to <code>count</code> times
+         * and returns as many of the signatures as fit into one response.
+         *
+         * @param cardManager cardManager to send APDU through
+         * @param keyPair     keyPair to use for signing (KEYPAIR_LOCAL || KEYPAIR_REMOTE)
+         * @param sigType     Signature type to use
+         * @param count       how many signatures to make at most (1-255)
+         * @param raw         data to sign, can be null, in which case random data is signed.
+         * @param extended    whether the applet supports extended length APDUs
+         */
+        public ECDSA_signBatch(CardMngr cardManager, byte keyPair, byte sigType, int count, byte[] raw, boolean extended) {
+            super(cardManager);
+            if (keyPair == ECTesterApplet.KEYPAIR_BOTH) {
+                throw new IllegalArgumentException();
+            }
+            if (count < 1 || count > 255) {
+                throw new IllegalArgumentException();
+            }
+
+            this.keyPair = keyPair;
+            this.sigType = sigType;
+            this.count = count;
+            this.raw = raw;
+
+            int len = raw != null ? raw.length : 0;
+            byte[] data = new byte[3 + len];
+            data[0] = sigType;
+            ByteUtil.setShort(data, 1, (short) len);
+            if (raw != null) {
+                System.arraycopy(raw, 0, data, 3, len);
+            }
+
+            this.cmd = new CommandAPDU(ECTesterApplet.CLA_ECTESTERAPPLET, ECTesterApplet.INS_ECDSA_SIGN_BATCH, keyPair, count, data, extended ? 65536 : 256);
+        }
+
+        @Override
+        public Response.ECDSA_signBatch send() throws CardException {
+            long elapsed = -System.nanoTime();
+            ResponseAPDU response = cardManager.send(cmd);
+            elapsed += System.nanoTime();
+            return new Response.ECDSA_signBatch(response, getDescription(), elapsed, keyPair, sigType, raw);
+        }
+
+        @Override
+        public String getDescription() {
+            String algo = CardUtil.getSigTypeString(sigType);
+            String key = keyPair == ECTesterApplet.KEYPAIR_LOCAL ? "local" : "remote";
+            String data = raw == null ? "random" : "provided";
+            return String.format("%s signature batch of %d with %s keypair(%s data)", algo, count, key, data);
+        }
+    }
+
     public static class ECDSA_verify extends Command {
         private byte keyPair;
         private byte sigType;
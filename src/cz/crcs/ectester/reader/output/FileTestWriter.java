@@ -3,7 +3,6 @@ package cz.crcs.ectester.reader.output;
 import cz.crcs.ectester.common.output.TeeTestWriter;
 import cz.crcs.ectester.common.output.TestWriter;
 
-import javax.xml.parsers.ParserConfigurationException;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
@@ -16,25 +15,56 @@ public class FileTestWriter extends TeeTestWriter {
 
     private static final Pattern PREFIX = Pattern.compile("(text|xml|yaml|yml):.+");
 
-    public FileTestWriter(String defaultFormat, boolean systemOut, String[] files) throws ParserConfigurationException, FileNotFoundException {
+    public FileTestWriter(String defaultFormat, boolean systemOut, String[] files) throws FileNotFoundException {
+        this(defaultFormat, systemOut ? System.out : null, files, open(files));
+    }
+
+    /**
+     * Writes the output for the <code>files</code> into the given streams instead of the files themselves,
+     * in the format given by the prefix of the file name.
+     *
+     * @param defaultFormat the format to write to <code>out</code> in
+     * @param out           the stream to write to in the default format, can be null
+     * @param files         the (possibly prefixed) file names
+     * @param streams       the streams to write the output for the files to
+     */
+    public FileTestWriter(String defaultFormat, PrintStream out, String[] files, PrintStream[] streams) {
         int fLength = files == null ? 0 : files.length;
-        writers = new TestWriter[systemOut ? fLength + 1 : fLength];
-        if (systemOut) {
-            writers[0] = createWriter(defaultFormat, System.out);
+        int offset = out != null ? 1 : 0;
+        writers = new TestWriter[fLength + offset];
+        if (out != null) {
+            writers[0] = createWriter(defaultFormat, out);
         }
         for (int i = 0; i < fLength; ++i) {
-            String fName = files[i];
             String format = null;
-            if (PREFIX.matcher(fName).matches()) {
-                String[] split = fName.split(":", 2);
-                format = split[0];
-                fName = split[1];
+            if (PREFIX.matcher(files[i]).matches()) {
+                format = files[i].split(":", 2)[0];
             }
-            writers[i + 1] = createWriter(format, new PrintStream(new FileOutputStream(fName)));
+            writers[i + offset] = createWriter(format, streams[i]);
+        }
+    }
+
+    /**
+     * @param file the (possibly prefixed) file name
+     * @return the file name without the format prefix
+     */
+    public static String getFileName(String file) {
+        if (PREFIX.matcher(file).matches()) {
+            return file.split(":", 2)[1];
+        }
+        return file;
+    }
+
+    private static PrintStream[] open(String[] files) throws FileNotFoundException {
+        int fLength = files == null ? 0 : files.length;
+        PrintStream[] streams = new PrintStream[fLength];
+        for (int i = 0; i < fLength; ++i) {
+            streams[i] = new PrintStream(new FileOutputStream(getFileName(files[i])));
         }
+        return streams;
     }
 
-    private TestWriter createWriter(String format, PrintStream out) throws ParserConfigurationException {
+    private TestWriter createWriter(String format, PrintStream out) {
         if (format == null) {
             return new TextTestWriter(out);
         }
@@ -10,10 +10,9 @@ import cz.crcs.ectester.reader.command.Command;
 import cz.crcs.ectester.reader.response.Response;
 import cz.crcs.ectester.reader.test.CardTestSuite;
 import cz.crcs.ectester.reader.test.CommandTestable;
-import org.w3c.dom.Element;
 
 import javax.smartcardio.CardException;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.OutputStream;
 import java.util.Map;
 
@@ -21,139 +20,107 @@ import java.util.Map;
  * @author Jan Jancar johny@neuromancer.sk
  */
 public class XMLTestWriter extends BaseXMLTestWriter {
-    public XMLTestWriter(OutputStream output) throws ParserConfigurationException {
+    public XMLTestWriter(OutputStream output) {
         super(output);
     }
 
-    private Element commandElement(Command c) {
-        Element commandElem = doc.createElement("command");
-        if (c == null) {
-            return commandElem;
+    private void commandElement(Command c) throws XMLStreamException {
+        startElement("command");
+        if (c != null) {
+            textElement("apdu", ByteUtil.bytesToHex(c.getAPDU().getBytes()));
+            textElement("desc", c.getDescription());
         }
-
-        Element apdu = doc.createElement("apdu");
-        apdu.setTextContent(ByteUtil.bytesToHex(c.getAPDU().getBytes()));
-        commandElem.appendChild(apdu);
-
-        Element description = doc.createElement("desc");
-        description.setTextContent(c.getDescription());
-        commandElem.appendChild(description);
-
-        return commandElem;
+        endElement();
     }
 
-    private Element responseElement(Response r) {
-        Element responseElem = doc.createElement("response");
-        if (r == null) {
-            return responseElem;
-        }
-
-        responseElem.setAttribute("successful", r.successful() ? "true" : "false");
+    private void responseElement(Response r) throws XMLStreamException {
+        startElement("response");
+        if (r != null) {
+            attribute("successful", r.successful() ? "true" : "false");
 
-        Element apdu = doc.createElement("apdu");
-        apdu.setTextContent(ByteUtil.bytesToHex(r.getAPDU().getBytes()));
-        responseElem.appendChild(apdu);
+            textElement("apdu", ByteUtil.bytesToHex(r.getAPDU().getBytes()));
+            textElement("natural-sw", String.valueOf(Short.toUnsignedInt(r.getNaturalSW())));
 
-        Element naturalSW = doc.createElement("natural-sw");
-        naturalSW.setTextContent(String.valueOf(Short.toUnsignedInt(r.getNaturalSW())));
-        responseElem.appendChild(naturalSW);
+            startElement("sws");
+            for (int i = 0; i < r.getNumSW(); ++i) {
+                textElement("sw", String.valueOf(Short.toUnsignedInt(r.getSW(i))));
+            }
+            endElement();
 
-        Element sws = doc.createElement("sws");
-        for (int i = 0; i < r.getNumSW(); ++i) {
-            Element sw = doc.createElement("sw");
-            sw.setTextContent(String.valueOf(Short.toUnsignedInt(r.getSW(i))));
-            sws.appendChild(sw);
+            textElement("duration", String.valueOf(r.getDuration()));
+            textElement("desc", r.getDescription());
         }
-        responseElem.appendChild(sws);
-
-        Element duration = doc.createElement("duration");
-        duration.setTextContent(String.valueOf(r.getDuration()));
-        responseElem.appendChild(duration);
-
-        Element description = doc.createElement("desc");
-        description.setTextContent(r.getDescription());
-        responseElem.appendChild(description);
-
-        return responseElem;
+        endElement();
     }
 
     @Override
-    protected Element testableElement(Testable t) {
+    protected void testableElement(Testable t) throws XMLStreamException {
         if (t instanceof CommandTestable) {
             CommandTestable cmd = (CommandTestable) t;
-            Element result = doc.createElement("test");
-            result.setAttribute("type", "command");
-            result.appendChild(commandElement(cmd.getCommand()));
-            result.appendChild(responseElement(cmd.getResponse()));
-            return result;
+            attribute("type", "command");
+            commandElement(cmd.getCommand());
+            responseElement(cmd.getResponse());
         }
-        return null;
     }
 
-    private Element cplcElement(CardMngr card) {
-        Element result = doc.createElement("cplc");
+    private void cplcElement(CardMngr card) throws XMLStreamException {
+        Map<CardMngr.CPLC.Field, byte[]> values = null;
         try {
-            CardMngr.CPLC cplc = card.getCPLC();
-            if (!cplc.values().isEmpty()) {
-                for (Map.Entry<CardMngr.CPLC.Field, byte[]> entry : cplc.values().entrySet()) {
-                    CardMngr.CPLC.Field field = entry.getKey();
-                    byte[] value = entry.getValue();
-                    Element keyVal = doc.createElement(field.name());
-                    keyVal.setTextContent(ByteUtil.bytesToHex(value, false));
-                    result.appendChild(keyVal);
-                }
-            }
+            values = card.getCPLC().values();
         } catch (CardException ignored) {
         }
-        return result;
+
+        startElement("cplc");
+        if (values != null) {
+            for (Map.Entry<CardMngr.CPLC.Field, byte[]> entry : values.entrySet()) {
+                textElement(entry.getKey().name(), ByteUtil.bytesToHex(entry.getValue(), false));
+            }
+        }
+        endElement();
     }
 
-    private Element appletElement(CardMngr card) {
-        Element result = doc.createElement("applet");
+    private void lengthElement(String name, int length) throws XMLStreamException {
+        startElement("length");
+        attribute("name", name);
+        text(String.valueOf(length));
+        endElement();
+    }
+
+    private void appletElement(CardMngr card) throws XMLStreamException {
+        Response.GetInfo info = null;
         try {
-            Response.GetInfo info = new Command.GetInfo(card).send();
-            result.setAttribute("version", info.getVersion());
-            result.setAttribute("javacard", String.format("%.1f", info.getJavaCardVersion()));
-            result.setAttribute("base", String.format("%#x", info.getBase()));
-            result.setAttribute("cleanup", String.valueOf(info.getCleanupSupport()));
-            Element arrays = doc.createElement("arrays");
-            Element apduBuf = doc.createElement("length");
-            apduBuf.setAttribute("name", "apduBuf");
-            apduBuf.setTextContent(String.valueOf(info.getApduBufferLength()));
-            Element ramArray = doc.createElement("length");
-            ramArray.setAttribute("name", "ramArray");
-            ramArray.setTextContent(String.valueOf(info.getRamArrayLength()));
-            Element ramArray2 = doc.createElement("length");
-            ramArray2.setAttribute("name", "ramArray2");
-            ramArray2.setTextContent(String.valueOf(info.getRamArray2Length()));
-            Element apduArray = doc.createElement("length");
-            apduArray.setAttribute("name", "apduArray");
-            apduArray.setTextContent(String.valueOf(info.getApduArrayLength()));
-            arrays.appendChild(apduBuf);
-            arrays.appendChild(ramArray);
-            arrays.appendChild(ramArray2);
-            arrays.appendChild(apduArray);
-            result.appendChild(arrays);
+            info = new Command.GetInfo(card).send();
         } catch (CardException ignored) {
         }
-        return result;
+
+        startElement("applet");
+        if (info != null) {
+            attribute("version", info.getVersion());
+            attribute("javacard", String.format("%.1f", info.getJavaCardVersion()));
+            attribute("base", String.format("%#x", info.getBase()));
+            attribute("cleanup", String.valueOf(info.getCleanupSupport()));
+            startElement("arrays");
+            lengthElement("apduBuf", info.getApduBufferLength());
+            lengthElement("ramArray", info.getRamArrayLength());
+            lengthElement("ramArray2", info.getRamArray2Length());
+            lengthElement("apduArray", info.getApduArrayLength());
+            endElement();
+        }
+        endElement();
     }
 
     @Override
-    protected Element deviceElement(TestSuite suite) {
+    protected void deviceElement(TestSuite suite) throws XMLStreamException {
         if (suite instanceof CardTestSuite) {
             CardTestSuite cardSuite = (CardTestSuite) suite;
-            Element result = doc.createElement("device");
-            result.setAttribute("type", "card");
-            result.setAttribute("ectester", ECTesterReader.VERSION + ECTesterReader.GIT_COMMIT);
-            result.appendChild(cplcElement(cardSuite.getCard()));
-            result.appendChild(appletElement(cardSuite.getCard()));
-
-            Element atr = doc.createElement("ATR");
-            atr.setTextContent(ByteUtil.bytesToHex(cardSuite.getCard().getATR().getBytes(), false));
-            result.appendChild(atr);
-            return result;
+            startElement("device");
+            attribute("type", "card");
+            attribute("ectester", ECTesterReader.VERSION + ECTesterReader.GIT_COMMIT);
+            cplcElement(cardSuite.getCard());
+            appletElement(cardSuite.getCard());
+
+            textElement("ATR", ByteUtil.bytesToHex(cardSuite.getCard().getATR().getBytes(), false));
+            endElement();
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -398,6 +398,53 @@ public abstract class Response {
         }
     }
 
+    /**
+     *
+     */
+    public static class GenerateECDH extends Response {
+        private byte keyPair;
+        private byte export;
+        private short transformation;
+        private byte type;
+
+        public GenerateECDH(ResponseAPDU response, String description, long time, byte keyPair, byte export, short transformation, byte type) {
+            super(response, description, time);
+            this.keyPair = keyPair;
+            this.export = export;
+            this.transformation = transformation;
+            this.type = type;
+
+            int generated = 0;
+            if ((keyPair & ECTesterApplet.KEYPAIR_LOCAL) != 0) generated++;
+            if ((keyPair & ECTesterApplet.KEYPAIR_REMOTE) != 0) generated++;
+            parse(generated + 3, (export == ECTesterApplet.EXPORT_TRUE) ? 3 : 2);
+        }
+
+        public short getTransformation() {
+            return transformation;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public byte[] getPubkey() {
+            return getParam(0);
+        }
+
+        public byte[] getPrivkey() {
+            return getParam(1);
+        }
+
+        public boolean hasSecret() {
+            return hasParam(2);
+        }
+
+        public byte[] getSecret() {
+            return getParam(2);
+        }
+    }
+
     /**
      *
      */
@@ -426,6 +473,43 @@ public abstract class Response {
         }
     }
 
+    /**
+     *
+     */
+    public static class ECDSA_signBatch extends Response {
+        private byte keyPair;
+        private byte sigType;
+        private byte[] raw;
+
+        public ECDSA_signBatch(ResponseAPDU response, String description, long time, byte keyPair, byte sigType, byte[] raw) {
+            super(response, description, time);
+            this.keyPair = keyPair;
+            this.sigType = sigType;
+            this.raw = raw;
+
+            byte[] data = response.getData();
+            int count = 0;
+            int offset = 2;
+            while (data.length - offset >= 2) {
+                offset += 2 + (ByteUtil.getShort(data, offset) & 0xffff);
+                count++;
+            }
+            parse(1, count);
+        }
+
+        public int getNumSignatures() {
+            return getParams().length;
+        }
+
+        public boolean hasSignature(int index) {
+            return hasParam(index);
+        }
+
+        public byte[] getSignature(int index) {
+            return getParam(index);
+        }
+    }
+
     /**
      *
      */
@@ -449,6 +533,7 @@ public abstract class Response {
         private short ramArrayLength;
         private short ramArray2Length;
         private short apduArrayLength;
+        private short features;
 
         public GetInfo(ResponseAPDU response, String description, long time) {
             super(response, description, time);
@@ -469,6 +554,10 @@ public abstract class Response {
             ramArray2Length = ByteUtil.getShort(data, offset);
             offset += 2;
             apduArrayLength = ByteUtil.getShort(data, offset);
+            offset += 2;
+            if (data.length >= offset + 2) {
+                features = ByteUtil.getShort(data, offset);
+            }
         }
 
         public String getVersion() {
@@ -510,6 +599,13 @@ public abstract class Response {
         public short getApduArrayLength() {
             return apduArrayLength;
         }
+
+        /**
+         * @return Whether the INS_PERFORM instruction can carry the last chunk of a buffered command.
+         */
+        public boolean getPerformDataSupport() {
+            return (features & ECTesterApplet.FEATURE_PERFORM_DATA) != 0;
+        }
     }
 
     /**
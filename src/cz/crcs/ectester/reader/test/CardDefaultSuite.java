@@ -82,7 +82,7 @@ public class CardDefaultSuite extends CardTestSuite {
 
                     Test compound;
                     if (ka.ok()) {
-                        Test perfTest = runTest(PerformanceTest.repeat(this.card, ecdh, 10));
+                        Test perfTest = runTest(PerformanceTest.repeat(this.card, null, ecdh, 1, 10, 10, 0));
                         compound = runTest(CompoundTest.function(kaCallback, kaDesc, allocate, ka, kaCompressed, perfTest));
                     } else {
                         compound = runTest(CompoundTest.function(kaCallback, kaDesc, allocate, ka, kaCompressed));
@@ -113,10 +113,10 @@ public class CardDefaultSuite extends CardTestSuite {
                     Test compound;
                     if (expect.ok()) {
                         Command ecdsaSign = new Command.ECDSA_sign(this.card, ECTesterApplet.KEYPAIR_LOCAL, sigType, ECTesterApplet.EXPORT_TRUE, sigData);
-                        PerformanceTest signTest = runTest(PerformanceTest.repeat(this.card, "Sign", ecdsaSign, 10));
+                        PerformanceTest signTest = runTest(PerformanceTest.repeat(this.card, "Sign", ecdsaSign, 1, 10, 10, 0));
                         byte[] signature = signTest.getResponses()[0].getParam(0);
                         Command ecdsaVerify = new Command.ECDSA_verify(this.card, ECTesterApplet.KEYPAIR_LOCAL, sigType, sigData, signature);
-                        PerformanceTest verifyTest = runTest(PerformanceTest.repeat(this.card, "Verify", ecdsaVerify, 10));
+                        PerformanceTest verifyTest = runTest(PerformanceTest.repeat(this.card, "Verify", ecdsaVerify, 1, 10, 10, 0));
                         compound = runTest(CompoundTest.all(ExpectedValue.SUCCESS, signDesc, allocate, expect, signTest, verifyTest));
                     } else {
                         compound = runTest(CompoundTest.all(ExpectedValue.SUCCESS, signDesc, allocate, expect));
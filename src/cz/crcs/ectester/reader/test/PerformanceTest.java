@@ -1,60 +1,56 @@
 package cz.crcs.ectester.reader.test;
 
 import cz.crcs.ectester.applet.ECTesterApplet;
-import cz.crcs.ectester.common.test.Result;
-import cz.crcs.ectester.common.test.SimpleTest;
-import cz.crcs.ectester.common.test.TestCallback;
+import cz.crcs.ectester.common.test.BasePerformanceTest;
 import cz.crcs.ectester.common.test.TestException;
 import cz.crcs.ectester.reader.CardMngr;
 import cz.crcs.ectester.reader.command.Command;
 import cz.crcs.ectester.reader.response.Response;
 
 import javax.smartcardio.CardException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * Measures the duration of a command, reduced by the duration of the command in dry run mode.
+ *
  * @author Jan Jancar johny@neuromancer.sk
  */
-public class PerformanceTest extends SimpleTest<CommandTestable> {
+public class PerformanceTest extends BasePerformanceTest<CommandTestable> {
     private CardMngr cardManager;
-    private long[] times;
-    private long[] reducedTimes;
-    private Response[] responses;
-    private long mean;
-    private long median;
-    private long mode;
-    private int count;
-    private String desc;
+    private long baseTime;
+    private List<Response> responses;
+    private List<Long> times;
 
-    private PerformanceTest(CardMngr cardManager, CommandTestable testable, int count, String desc) {
-        super(testable, new TestCallback<CommandTestable>() {
-            @Override
-            public Result apply(CommandTestable testable) {
-                return new Result(Result.Value.SUCCESS);
-            }
-        });
+    private PerformanceTest(CardMngr cardManager, CommandTestable testable, String desc, int warmup, int count, int maxCount, double precision) {
+        super(testable, desc, warmup, count, maxCount, precision);
         this.cardManager = cardManager;
-        this.count = count;
-        this.desc = desc;
     }
 
     public static PerformanceTest repeat(CardMngr cardManager, Command cmd, int count) {
-        return new PerformanceTest(cardManager, new CommandTestable(cmd), count, null);
+        return new PerformanceTest(cardManager, new CommandTestable(cmd), null, 0, count, count, 0);
     }
 
     public static PerformanceTest repeat(CardMngr cardManager, String desc, Command cmd, int count) {
-        return new PerformanceTest(cardManager, new CommandTestable(cmd), count, desc);
+        return new PerformanceTest(cardManager, new CommandTestable(cmd), desc, 0, count, count, 0);
     }
 
-    @Override
-    public String getDescription() {
-        String rest = String.format("Mean = %d ns, Median = %d ns, Mode = %d ns", mean, median, mode);
-        return (desc == null ? rest : desc + " (" + rest + ")");
+    /**
+     * @param cardManager cardManager to send the command through
+     * @param desc        description, can be null
+     * @param cmd         the command to measure
+     * @param warmup      number of iterations to run before measuring
+     * @param count       number of samples to take
+     * @param maxCount    maximum number of samples to take, if the precision is not reached
+     * @param precision   relative half-width of the confidence interval of the median to reach, 0 to take exactly <code>count</code> samples
+     * @return the test
+     */
+    public static PerformanceTest repeat(CardMngr cardManager, String desc, Command cmd, int warmup, int count, int maxCount, double precision) {
+        return new PerformanceTest(cardManager, new CommandTestable(cmd), desc, warmup, count, maxCount, precision);
     }
 
     @Override
-    protected void runSelf() {
-        long baseTime;
+    protected void prepare() {
         try {
             new Command.SetDryRunMode(cardManager, ECTesterApplet.MODE_DRY_RUN).send();
             testable.run();
@@ -68,47 +64,24 @@ public class PerformanceTest extends SimpleTest<CommandTestable> {
         } catch (CardException ce) {
             throw new TestException(ce);
         }
+        responses = new ArrayList<>(count);
+        times = new ArrayList<>(count);
+    }
 
-        times = new long[count];
-        reducedTimes = new long[count];
-        responses = new Response[count];
-        for (int i = 0; i < count; ++i) {
-            testable.run();
-            responses[i] = testable.getResponse();
-            times[i] = responses[i].getDuration();
-            reducedTimes[i] = times[i] - baseTime;
-            testable.reset();
-        }
-
-        mean = Arrays.stream(reducedTimes).sum() / count;
-
-        long[] sorted = reducedTimes.clone();
-        Arrays.sort(sorted);
-        if (count % 2 == 0) {
-            median = (sorted[(count / 2) - 1] + sorted[count / 2]) / 2;
-        } else {
-            median = sorted[count / 2];
-        }
-
-        long max_occurences = 0;
-        int i = 0;
-        while (i < count) {
-            long current_value = sorted[i];
-            long current_occurences = 0;
-            while (i < count && sorted[i] == current_value) {
-                i++;
-                current_occurences++;
-            }
-            if (current_occurences > max_occurences) {
-                max_occurences = current_occurences;
-                mode = current_value;
-            }
-        }
-        result = callback.apply(testable);
+    @Override
+    protected void warmup() {
+        testable.run();
+        testable.reset();
     }
 
-    public long getCount() {
-        return count;
+    @Override
+    protected long measure() {
+        testable.run();
+        Response response = testable.getResponse();
+        responses.add(response);
+        times.add(response.getDuration());
+        testable.reset();
+        return response.getDuration() - baseTime;
     }
 
     public Command getCommand() {
@@ -116,26 +89,14 @@ public class PerformanceTest extends SimpleTest<CommandTestable> {
     }
 
     public Response[] getResponses() {
-        return responses;
+        return responses == null ? null : responses.toArray(new Response[0]);
     }
 
     public long[] getTimes() {
-        return times;
+        return times == null ? null : times.stream().mapToLong(Long::longValue).toArray();
     }
 
     public long[] getReducedTimes() {
-        return reducedTimes;
-    }
-
-    public long getMean() {
-        return mean;
-    }
-
-    public long getMedian() {
-        return median;
-    }
-
-    public long getMode() {
-        return mode;
+        return getSamples();
     }
 }
@@ -26,33 +26,43 @@ package cz.crcs.ectester.standalone;
 import cz.crcs.ectester.applet.EC_Consts;
 import cz.crcs.ectester.common.cli.*;
 import cz.crcs.ectester.common.ec.EC_Curve;
+import cz.crcs.ectester.common.ec.RawECPrivateKey;
+import cz.crcs.ectester.common.output.CountingTestWriter;
+import cz.crcs.ectester.common.output.TeeTestWriter;
 import cz.crcs.ectester.common.output.TestWriter;
+import cz.crcs.ectester.common.test.CompoundTest;
 import cz.crcs.ectester.common.test.TestException;
-import cz.crcs.ectester.common.util.ByteUtil;
+import cz.crcs.ectester.common.test.TestJournal;
 import cz.crcs.ectester.common.util.ECUtil;
 import cz.crcs.ectester.common.util.FileUtil;
+import cz.crcs.ectester.common.util.Statistics;
 import cz.crcs.ectester.data.EC_Store;
+import cz.crcs.ectester.standalone.analysis.EcdsaColumns;
+import cz.crcs.ectester.standalone.analysis.NonceAnalysisTask;
+import cz.crcs.ectester.standalone.analysis.NonceStatistics;
+import cz.crcs.ectester.standalone.analysis.TimingSummary;
+import cz.crcs.ectester.standalone.analysis.WelchTest;
 import cz.crcs.ectester.standalone.consts.KeyAgreementIdent;
 import cz.crcs.ectester.standalone.consts.KeyPairGeneratorIdent;
 import cz.crcs.ectester.standalone.consts.SignatureIdent;
 import cz.crcs.ectester.standalone.libs.*;
-import cz.crcs.ectester.standalone.output.TextTestWriter;
-import cz.crcs.ectester.standalone.output.XMLTestWriter;
-import cz.crcs.ectester.standalone.output.YAMLTestWriter;
+import cz.crcs.ectester.standalone.libs.jni.NativeProvider;
+import cz.crcs.ectester.standalone.output.*;
 import cz.crcs.ectester.standalone.test.suites.*;
 import org.apache.commons.cli.*;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
 
 import javax.crypto.KeyAgreement;
 import javax.crypto.SecretKey;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.lang.reflect.InvocationTargetException;
+import java.io.*;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.*;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
@@ -60,6 +70,9 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.ECGenParameterSpec;
 import java.security.spec.ECParameterSpec;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -69,7 +82,7 @@ import java.util.stream.Collectors;
  * @version v0.3.3
  */
 public class ECTesterStandalone {
-    private ProviderECLibrary[] libs;
+    private LibraryDescriptor[] libs;
     private Config cfg;
 
     private Options opts = new Options();
@@ -82,6 +95,16 @@ public class ECTesterStandalone {
     private static final String CLI_FOOTER = "\n" + LICENSE;
 
     public static String LIB_RESOURCE_DIR = "/cz/crcs/ectester/standalone/libs/jni/";
+    private static final String[] SUITES = new String[]{"default", "test-vectors", "invalid", "wrong", "degenerate", "cofactor",
+            "edge-cases", "signature", "composite", "twist", "miscellaneous", "performance"};
+    /* The most signatures made upfront for ecdsa --verify-only, longer runs cycle through them. */
+    private static final int VERIFY_CORPUS_SIZE = 1 << 16;
+    /* The number of measurements of the leakage test used to set the cropping thresholds, which are then discarded. */
+    private static final int LEAKAGE_CALIBRATION = 1000;
+    /* The number of cropping thresholds of the leakage test. */
+    private static final int LEAKAGE_PERCENTILES = 10;
+    /* The number of rows recover-nonces reads and processes at once. */
+    private static final int RECOVER_BATCH_SIZE = 1 << 12;
 
     private void run(String[] args) {
         try {
@@ -100,49 +123,7 @@ public class ECTesterStandalone {
                 return;
             }
 
-            Path reqs = FileUtil.getRequirementsDir();
-            reqs.toFile().mkdirs();
-
-            if (!System.getProperty("os.name").startsWith("Windows")) {
-                FileUtil.writeNewer(LIB_RESOURCE_DIR + "lib_timing.so", reqs.resolve("lib_timing.so"));
-                System.load(reqs.resolve("lib_timing.so").toString());
-            }
-
-            List<ProviderECLibrary> libObjects = new LinkedList<>();
-            Class[] libClasses = new Class[]{SunECLib.class,
-                    BouncyCastleLib.class,
-                    TomcryptLib.class,
-                    BotanLib.class,
-                    CryptoppLib.class,
-                    OpensslLib.class,
-                    BoringsslLib.class,
-                    GcryptLib.class,
-                    MscngLib.class,
-                    WolfCryptLib.class,
-                    MbedTLSLib.class,
-                    IppcpLib.class,
-                    MatrixsslLib.class,
-                    NettleLib.class,
-                    LibresslLib.class};
-            for (Class c : libClasses) {
-                try {
-                    libObjects.add((ProviderECLibrary) c.getDeclaredConstructor().newInstance());
-                } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
-                         InvocationTargetException e) {
-
-                }
-            }
-            libs = libObjects.toArray(new ProviderECLibrary[0]);
-
-            //TODO: push this further down to only initialize if necessary.
-            //      and only initialize the chosen lib (so give libs a name in Java only)
-            for (ECLibrary lib : libs) {
-                try {
-                    lib.initialize();
-                } catch (Exception ex) {
-                    System.err.println(ex.getMessage());
-                }
-            }
+            libs = LibraryDescriptor.all();
 
             cfg = new Config(libs);
             if (!cfg.readOptions(cli)) {
@@ -161,15 +142,25 @@ public class ECTesterStandalone {
                 ecdh();
             } else if (cli.isNext("ecdsa")) {
                 ecdsa();
+            } else if (cli.isNext("leakage")) {
+                leakage();
             } else if (cli.isNext("generate")) {
                 generate();
             } else if (cli.isNext("test")) {
                 test();
+            } else if (cli.isNext("test-all")) {
+                testAll();
             } else if (cli.isNext("export")) {
                 export();
+            } else if (cli.isNext("convert")) {
+                convert();
+            } else if (cli.isNext("recover-nonces")) {
+                recoverNonces();
+            } else if (cli.isNext("analyze")) {
+                analyze();
             }
 
-        } catch (ParseException | ParserConfigurationException | IOException ex) {
+        } catch (ParseException | IOException ex) {
             System.err.println(ex.getMessage());
         } catch (InvalidAlgorithmParameterException | InvalidParameterException e) {
             System.err.println("Invalid algorithm parameter: " + e.getMessage());
@@ -177,6 +168,8 @@ public class ECTesterStandalone {
             System.err.println("Algorithm not supported by the selected library: " + nsaex.getMessage());
         } catch (InvalidKeyException | SignatureException e) {
             e.printStackTrace();
+        } catch (GeneralSecurityException e) {
+            e.printStackTrace();
         }
     }
 
@@ -198,6 +191,11 @@ public class ECTesterStandalone {
         Option bits = Option.builder("b").longOpt("bits").hasArg().argName("n").optionalArg(false).desc("What size of curve to use.").numberOfArgs(1).build();
         Option output = Option.builder("o").longOpt("output").desc("Output into file <output_file>.").hasArgs().argName("output_file").optionalArg(false).numberOfArgs(1).build();
         Option timeSource = Option.builder("ts").longOpt("time-source").desc("Use a given native timing source: {rdtsc, monotonic, monotonic-raw, cputime-process, cputime-thread, perfcount}").hasArgs().argName("source").optionalArg(false).numberOfArgs(1).build();
+        Option format = Option.builder().longOpt("format").desc("Set the sample output format, one of csv,binary. Binary output can be converted to CSV with the convert command.").hasArg().argName("format").optionalArg(false).build();
+        Option threads = Option.builder().longOpt("threads").desc("Collect samples using [n] worker threads, rows are tagged by their index but may be output out of order. Libraries that are not thread-safe always use 1.").hasArg().argName("n").optionalArg(false).build();
+        Option summary = Option.builder().longOpt("summary").desc("Write a summary of the times, overall and by the bit-length and Hamming weight of the private key, into [file].").hasArg().argName("file").optionalArg(false).build();
+        Option summaryFormat = Option.builder().longOpt("summary-format").desc("Set the summary format, one of text,yaml.").hasArg().argName("format").optionalArg(false).build();
+        Option noSamples = Option.builder().longOpt("no-samples").desc("Do not output the samples, only the summary.").build();
 
         Options testOpts = new Options();
         testOpts.addOption(bits);
@@ -208,17 +206,45 @@ public class ECTesterStandalone {
         testOpts.addOption(Option.builder("st").longOpt("sig-type").desc("Set the Signature object [type].").hasArg().argName("type").optionalArg(false).build());
         testOpts.addOption(Option.builder("f").longOpt("format").desc("Set the output format, one of text,yaml,xml.").hasArg().argName("format").optionalArg(false).build());
         testOpts.addOption(Option.builder().longOpt("key-type").desc("Set the key [algorithm] for which the key should be derived in KeyAgreements with KDF. Default is \"AES\".").hasArg().argName("algorithm").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("perf-warmup").desc("Run [n] iterations before measuring in the performance suite. Default is 10.").hasArg().argName("n").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("perf-count").desc("Take [n] samples in the performance suite. Default is 100.").hasArg().argName("n").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("perf-max").desc("Take at most [n] samples in the performance suite, when trying to reach --perf-precision.").hasArg().argName("n").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("perf-precision").desc("Keep sampling in the performance suite until the 95% confidence interval of the median is within [ratio] of it (e.g. 0.01), up to --perf-max samples.").hasArg().argName("ratio").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("test-threads").desc("Run the independent sub-tests of the invalid, twist, degenerate, cofactor, composite and edge-cases suites on [n] threads. Default is 1, libraries that are not thread-safe always use 1.").hasArg().argName("n").optionalArg(false).build());
+        testOpts.addOption(Option.builder().longOpt("no-curve-cache").desc("Do not reuse prepared curves in native libraries, set up the curve for every operation.").build());
+        testOpts.addOption(Option.builder().longOpt("journal").desc("Journal the run into [file], if it exists resume the run journaled in it, skipping the finished tests and the test the run died on.").hasArg().argName("file").optionalArg(false).build());
         List<Argument> testArgs = new LinkedList<>();
         testArgs.add(new Argument("test-suite", "The test suite to run.", true));
         ParserOptions test = new ParserOptions(new TreeParser(Collections.emptyMap(), true, testArgs), testOpts, "Test a library.");
         actions.put("test", test);
 
+        Options testAllOpts = new Options();
+        for (Option opt : testOpts.getOptions()) {
+            // Only the test action can be journaled, test-all tees its output into a counter.
+            if (!"journal".equals(opt.getLongOpt())) {
+                testAllOpts.addOption(opt);
+            }
+        }
+        testAllOpts.addOption(Option.builder("o").longOpt("output").desc("Output the results into the [dir]ectory, as <dir>/<suite>/<library>/results.<format>. Default is \"results\".").hasArg().argName("dir").optionalArg(false).build());
+        testAllOpts.addOption(Option.builder().longOpt("suites").desc("Run the comma separated [suites], all by default.").hasArg().argName("suites").optionalArg(false).build());
+        testAllOpts.addOption(Option.builder().longOpt("libs").desc("Test the comma separated [libs], all by default.").hasArg().argName("libs").optionalArg(false).build());
+        testAllOpts.addOption(Option.builder().longOpt("threads").desc("Test [n] libraries in parallel, the number of processors by default.").hasArg().argName("n").optionalArg(false).build());
+        testAllOpts.addOption(Option.builder().longOpt("preload-data").desc("Load all of the curve, key and result data upfront, instead of when the suites first use it.").build());
+        testAllOpts.addOption(Option.builder().longOpt("timeout").desc("Give up on a library if a suite takes longer than [seconds].").hasArg().argName("seconds").optionalArg(false).build());
+        ParserOptions testAll = new ParserOptions(new DefaultParser(), testAllOpts, "Test many libraries with many test suites, output a summary.");
+        actions.put("test-all", testAll);
+
         Options ecdhOpts = new Options();
         ecdhOpts.addOption(bits);
         ecdhOpts.addOption(namedCurve);
         ecdhOpts.addOption(curveName);
         ecdhOpts.addOption(output);
+        ecdhOpts.addOption(format);
         ecdhOpts.addOption(timeSource);
+        ecdhOpts.addOption(threads);
+        ecdhOpts.addOption(summary);
+        ecdhOpts.addOption(summaryFormat);
+        ecdhOpts.addOption(noSamples);
         ecdhOpts.addOption(Option.builder("t").longOpt("type").desc("Set KeyAgreement object [type].").hasArg().argName("type").optionalArg(false).build());
         ecdhOpts.addOption(Option.builder().longOpt("key-type").desc("Set the key [algorithm] for which the key should be derived in KeyAgreements with KDF. Default is \"AES\".").hasArg().argName("algorithm").optionalArg(false).build());
         ecdhOpts.addOption(Option.builder("n").longOpt("amount").hasArg().argName("amount").optionalArg(false).desc("Do ECDH [amount] times.").build());
@@ -234,22 +260,47 @@ public class ECTesterStandalone {
         ecdsaOpts.addOption(namedCurve);
         ecdsaOpts.addOption(curveName);
         ecdsaOpts.addOption(output);
+        ecdsaOpts.addOption(format);
         ecdsaOpts.addOption(timeSource);
+        ecdsaOpts.addOption(threads);
         ecdsaOpts.addOptionGroup(privateKey);
         ecdsaOpts.addOptionGroup(publicKey);
         ecdsaOpts.addOption(Option.builder().longOpt("fixed").desc("Perform all ECDSA with fixed keypair.").build());
         ecdsaOpts.addOption(Option.builder("t").longOpt("type").desc("Set Signature object [type].").hasArg().argName("type").optionalArg(false).build());
         ecdsaOpts.addOption(Option.builder("n").longOpt("amount").hasArg().argName("amount").optionalArg(false).desc("Do ECDSA [amount] times.").build());
         ecdsaOpts.addOption(Option.builder("f").longOpt("file").hasArg().argName("file").optionalArg(false).desc("Input [file] to sign.").build());
+        OptionGroup ecdsaMode = new OptionGroup();
+        ecdsaMode.addOption(Option.builder().longOpt("sign-only").desc("Only sign, do not verify the signatures.").build());
+        ecdsaMode.addOption(Option.builder().longOpt("verify-only").desc("Only verify, signatures are made upfront and cycled through if there are more than 65536 samples.").build());
+        ecdsaOpts.addOptionGroup(ecdsaMode);
+        ecdsaOpts.addOption(Option.builder().longOpt("no-nonce").desc("Do not recover the nonces of the signatures, use the recover-nonces command afterwards.").build());
         ParserOptions ecdsa = new ParserOptions(new DefaultParser(), ecdsaOpts, "Perform EC based Signature.");
         actions.put("ecdsa", ecdsa);
 
+        Options leakageOpts = new Options();
+        leakageOpts.addOption(namedCurve);
+        leakageOpts.addOption(output);
+        leakageOpts.addOption(timeSource);
+        leakageOpts.addOption(Option.builder().longOpt("operation").desc("Test the [operation] for leakage, one of ecdh,ecdsa. Default is ecdh.").hasArg().argName("operation").optionalArg(false).build());
+        leakageOpts.addOption(Option.builder("t").longOpt("type").desc("Set the KeyAgreement or Signature object [type].").hasArg().argName("type").optionalArg(false).build());
+        leakageOpts.addOption(Option.builder("n").longOpt("amount").desc("Take at most [amount] measurements. Default is 1000000.").hasArg().argName("amount").optionalArg(false).build());
+        leakageOpts.addOption(Option.builder().longOpt("time-budget").desc("Stop after [seconds], if the test is not conclusive before.").hasArg().argName("seconds").optionalArg(false).build());
+        leakageOpts.addOption(Option.builder().longOpt("threshold").desc("Report leakage once the absolute t statistic exceeds [t]. Default is 10.").hasArg().argName("t").optionalArg(false).build());
+        leakageOpts.addOption(Option.builder().longOpt("report").desc("Report the progress every [n] measurements. Default is 10000.").hasArg().argName("n").optionalArg(false).build());
+        ParserOptions leakage = new ParserOptions(new DefaultParser(), leakageOpts, "Test for timing leakage of the private key, by a Welch t-test of fixed vs random keys.");
+        actions.put("leakage", leakage);
+
         Options generateOpts = new Options();
         generateOpts.addOption(bits);
         generateOpts.addOption(namedCurve);
         generateOpts.addOption(curveName);
         generateOpts.addOption(output);
+        generateOpts.addOption(format);
         generateOpts.addOption(timeSource);
+        generateOpts.addOption(threads);
+        generateOpts.addOption(summary);
+        generateOpts.addOption(summaryFormat);
+        generateOpts.addOption(noSamples);
         generateOpts.addOption(Option.builder("n").longOpt("amount").hasArg().argName("amount").optionalArg(false).desc("Generate [amount] of EC keys.").build());
         generateOpts.addOption(Option.builder("t").longOpt("type").hasArg().argName("type").optionalArg(false).desc("Set KeyPairGenerator object [type].").build());
         ParserOptions generate = new ParserOptions(new DefaultParser(), generateOpts, "Generate EC keypairs.");
@@ -262,6 +313,34 @@ public class ECTesterStandalone {
         ParserOptions export = new ParserOptions(new DefaultParser(), exportOpts, "Export default curve parameters.");
         actions.put("export", export);
 
+        Options convertOpts = new Options();
+        convertOpts.addOption(output);
+        List<Argument> convertArgs = new LinkedList<>();
+        convertArgs.add(new Argument("input", "The binary sample file to convert.", true));
+        ParserOptions convert = new ParserOptions(new TreeParser(Collections.emptyMap(), true, convertArgs), convertOpts, "Convert binary sample output of generate/ecdh/ecdsa to CSV.");
+        actions.put("convert", convert);
+
+        Options recoverOpts = new Options();
+        recoverOpts.addOption(namedCurve);
+        recoverOpts.addOption(output);
+        recoverOpts.addOption(format);
+        recoverOpts.addOption(Option.builder().longOpt("threads").desc("Recover the nonces using [n] threads, the number of processors by default.").hasArg().argName("n").optionalArg(false).build());
+        List<Argument> recoverArgs = new LinkedList<>();
+        recoverArgs.add(new Argument("input", "The CSV or binary sample file of ecdsa.", true));
+        ParserOptions recover = new ParserOptions(new TreeParser(Collections.emptyMap(), true, recoverArgs), recoverOpts, "Recover the missing nonces in the sample output of ecdsa.");
+        actions.put("recover-nonces", recover);
+
+        Options analyzeOpts = new Options();
+        analyzeOpts.addOption(namedCurve);
+        analyzeOpts.addOption(output);
+        analyzeOpts.addOption(Option.builder("f").longOpt("format").desc("Set the output format, one of text,yaml.").hasArg().argName("format").optionalArg(false).build());
+        analyzeOpts.addOption(Option.builder().longOpt("threads").desc("Analyze using [n] threads, the number of processors by default.").hasArg().argName("n").optionalArg(false).build());
+        analyzeOpts.addOption(Option.builder().longOpt("skip").desc("Skip the first [n] samples, which are usually outliers.").hasArg().argName("n").optionalArg(false).build());
+        List<Argument> analyzeArgs = new LinkedList<>();
+        analyzeArgs.add(new Argument("input", "The CSV or binary sample file of ecdsa.", true));
+        ParserOptions analyze = new ParserOptions(new TreeParser(Collections.emptyMap(), true, analyzeArgs), analyzeOpts, "Analyze the nonces in the sample output of ecdsa, their bias and relation to the signing time.");
+        actions.put("analyze", analyze);
+
         Options listDataOpts = new Options();
         List<Argument> listDataArgs = new LinkedList<>();
         listDataArgs.add(new Argument("what", "what to list.", false));
@@ -295,29 +374,28 @@ public class ECTesterStandalone {
      *
      */
     private void listLibraries() {
-        for (ProviderECLibrary lib : libs) {
-            if (lib.isInitialized() && (cfg.selected == null || lib == cfg.selected)) {
-                System.out.println("\t- " + Colors.bold(lib.name()));
-                System.out.println(Colors.bold("\t\t- Version: ") + String.format("%f", lib.getProvider().getVersion()));
-                System.out.println(Colors.bold("\t\t- Supports native timing: ") + lib.getNativeTimingSupport().toString());
-                Set<KeyPairGeneratorIdent> kpgs = lib.getKPGs();
-                if (!kpgs.isEmpty()) {
-                    System.out.println(Colors.bold("\t\t- KeyPairGenerators: ") + String.join(", ", kpgs.stream().map(KeyPairGeneratorIdent::getName).collect(Collectors.toList())));
-                }
-                Set<KeyAgreementIdent> eckas = lib.getKAs();
-                if (!eckas.isEmpty()) {
-                    System.out.println(Colors.bold("\t\t- KeyAgreements: ") + String.join(", ", eckas.stream().map(KeyAgreementIdent::getName).collect(Collectors.toList())));
-                }
-                Set<SignatureIdent> sigs = lib.getSigs();
-                if (!sigs.isEmpty()) {
-                    System.out.println(Colors.bold("\t\t- Signatures: ") + String.join(", ", sigs.stream().map(SignatureIdent::getName).collect(Collectors.toList())));
-                }
-                Set<String> curves = lib.getCurves();
-                if (!curves.isEmpty()) {
-                    System.out.println(Colors.bold("\t\t- Curves: ") + String.join(", ", curves));
-                }
-                System.out.println();
+        List<ProviderECLibrary> listed = cfg.selected != null ? Collections.singletonList(cfg.selected) : Config.findLibraries(libs, null);
+        for (ProviderECLibrary lib : listed) {
+            System.out.println("\t- " + Colors.bold(lib.name()));
+            System.out.println(Colors.bold("\t\t- Version: ") + String.format("%f", lib.getProvider().getVersion()));
+            System.out.println(Colors.bold("\t\t- Supports native timing: ") + lib.getNativeTimingSupport().toString());
+            Set<KeyPairGeneratorIdent> kpgs = lib.getKPGs();
+            if (!kpgs.isEmpty()) {
+                System.out.println(Colors.bold("\t\t- KeyPairGenerators: ") + String.join(", ", kpgs.stream().map(KeyPairGeneratorIdent::getName).collect(Collectors.toList())));
             }
+            Set<KeyAgreementIdent> eckas = lib.getKAs();
+            if (!eckas.isEmpty()) {
+                System.out.println(Colors.bold("\t\t- KeyAgreements: ") + String.join(", ", eckas.stream().map(KeyAgreementIdent::getName).collect(Collectors.toList())));
+            }
+            Set<SignatureIdent> sigs = lib.getSigs();
+            if (!sigs.isEmpty()) {
+                System.out.println(Colors.bold("\t\t- Signatures: ") + String.join(", ", sigs.stream().map(SignatureIdent::getName).collect(Collectors.toList())));
+            }
+            Set<String> curves = lib.getCurves();
+            if (!curves.isEmpty()) {
+                System.out.println(Colors.bold("\t\t- Curves: ") + String.join(", ", curves));
+            }
+            System.out.println();
         }
     }
 
@@ -325,20 +403,8 @@ public class ECTesterStandalone {
      *
      */
     private void listSuites() {
-        StandaloneTestSuite[] suites = new StandaloneTestSuite[]{
-                new StandaloneDefaultSuite(null, null, null),
-                new StandaloneTestVectorSuite(null, null, null),
-                new StandaloneInvalidSuite(null, null, null),
-                new StandaloneWrongSuite(null, null, null),
-                new StandaloneDegenerateSuite(null, null, null),
-                new StandaloneCofactorSuite(null, null, null),
-                new StandaloneEdgeCasesSuite(null, null, null),
-                new StandaloneSignatureSuite(null, null, null),
-                new StandaloneCompositeSuite(null, null, null),
-                new StandaloneTwistSuite(null, null, null),
-                new StandaloneMiscSuite(null, null, null),
-                new StandalonePerformanceSuite(null, null, null)};
-        for (StandaloneTestSuite suite : suites) {
+        for (String name : SUITES) {
+            StandaloneTestSuite suite = createSuite(name, null, null, null);
             System.out.println(" - " + suite.getName());
             for (String line : suite.getDescription()) {
                 System.out.println("\t" + line);
@@ -367,7 +433,7 @@ public class ECTesterStandalone {
     /**
      *
      */
-    private void ecdh() throws NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException, IOException {
+    private void ecdh() throws GeneralSecurityException, IOException {
         ProviderECLibrary lib = cfg.selected;
 
         String algo = cli.getOptionValue("ecdh.type", "ECDH");
@@ -402,12 +468,10 @@ public class ECTesterStandalone {
             throw new NoSuchAlgorithmException(algo);
         }
 
-        KeyAgreement ka = kaIdent.getInstance(lib.getProvider());
-        KeyPairGenerator kpg = kpIdent.getInstance(lib.getProvider());
+        int bits = 0;
         AlgorithmParameterSpec spec = null;
         if (cli.hasOption("ecdh.bits")) {
-            int bits = Integer.parseInt(cli.getOptionValue("ecdh.bits"));
-            kpg.initialize(bits);
+            bits = Integer.parseInt(cli.getOptionValue("ecdh.bits"));
         } else if (cli.hasOption("ecdh.named-curve")) {
             String curveName = cli.getOptionValue("ecdh.named-curve");
             EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
@@ -416,12 +480,11 @@ public class ECTesterStandalone {
                 return;
             }
             spec = curve.toSpec();
-            kpg.initialize(spec);
         } else if (cli.hasOption("ecdh.curve-name")) {
             String curveName = cli.getOptionValue("ecdh.curve-name");
             spec = new ECGenParameterSpec(curveName);
-            kpg.initialize(spec);
         }
+        KeyPairGenerator kpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), bits, spec);
 
         if (cli.hasOption("ecdh.time-source")) {
             if (!lib.setNativeTimingType(cli.getOptionValue("ecdh.time-source"))) {
@@ -430,90 +493,95 @@ public class ECTesterStandalone {
             }
         }
 
-        PrintStream out;
-        if (cli.hasOption("ecdh.output")) {
-            out = new PrintStream(FileUtil.openStream(cli.getOptionValues("ecdh.output")));
-        } else {
-            out = System.out;
-        }
-
         String timeUnit = "nano";
         if (!lib.getNativeTimingSupport().isEmpty()) {
             timeUnit = lib.getNativeTimingUnit();
         }
 
         String hashAlgo = kaIdent.getBaseAlgo() != null ? String.format("[%s]", kaIdent.getBaseAlgo()) : "[NONE]";
-        out.println(String.format("index;time[%s];pubW;privS;secret%s", timeUnit, hashAlgo));
-
-        KeyPair one = null;
-        if (cli.hasOption("ecdh.fixed-private") && !cli.hasOption("ecdh.named-private") && !cli.hasOption("ecdh.private")) {
-            one = kpg.genKeyPair();
+        SampleWriter out = openSampleWriter("ecdh", String.format("index;time[%s];pubW;privS;secret%s", timeUnit, hashAlgo),
+                SampleWriter.Type.INTEGER, SampleWriter.Type.INTEGER, SampleWriter.Type.BYTES, SampleWriter.Type.BYTES, SampleWriter.Type.BYTES);
+        List<TimingSummary> summaries = cli.hasOption("ecdh.summary") ? Collections.synchronizedList(new LinkedList<>()) : null;
+
+        boolean givenPrivate = cli.hasOption("ecdh.named-private") || cli.hasOption("ecdh.private");
+        boolean givenPublic = cli.hasOption("ecdh.named-public") || cli.hasOption("ecdh.public");
+        KeyPair fixedOne = null;
+        if (cli.hasOption("ecdh.fixed-private") && !givenPrivate) {
+            fixedOne = kpg.genKeyPair();
         }
-        KeyPair other = null;
-        if (cli.hasOption("ecdh.fixed-public") && !cli.hasOption("ecdh.named-public") && !cli.hasOption("ecdh.public")) {
-            other = kpg.genKeyPair();
+        KeyPair fixedOther = null;
+        if (cli.hasOption("ecdh.fixed-public") && !givenPublic) {
+            fixedOther = kpg.genKeyPair();
         }
 
         ECPrivateKey privkey = (ECPrivateKey) ECUtil.loadKey(EC_Consts.PARAMETER_S, cli.getOptionValue("ecdh.named-private"), cli.getOptionValue("ecdh.private"), spec);
         ECPublicKey pubkey = (ECPublicKey) ECUtil.loadKey(EC_Consts.PARAMETER_W, cli.getOptionValue("ecdh.named-public"), cli.getOptionValue("ecdh.public"), spec);
 
         int amount = Integer.parseInt(cli.getOptionValue("ecdh.amount", "1"));
-        for (int i = 0; i < amount || amount == 0; ++i) {
-            if (!cli.hasOption("ecdh.fixed-private") && !cli.hasOption("ecdh.named-private") && !cli.hasOption("ecdh.private")) {
-                one = kpg.genKeyPair();
-            }
-            if (!cli.hasOption("ecdh.fixed-public") && !cli.hasOption("ecdh.named-public") && !cli.hasOption("ecdh.public")) {
-                other = kpg.genKeyPair();
-            }
-
-            if (!cli.hasOption("ecdh.named-private") && !cli.hasOption("ecdh.private")) {
-                privkey = (ECPrivateKey) one.getPrivate();
-            }
-
-            if (!cli.hasOption("ecdh.named-public") && !cli.hasOption("ecdh.public")) {
-                pubkey = (ECPublicKey) other.getPublic();
-            }
-
-            long elapsed = -System.nanoTime();
-            if (spec instanceof ECParameterSpec && lib instanceof NativeECLibrary) {
-                ka.init(privkey, spec);
-            } else {
-                ka.init(privkey);
-            }
-            ka.doPhase(pubkey, true);
-            elapsed += System.nanoTime();
-            SecretKey derived;
-            byte[] result;
-            elapsed -= System.nanoTime();
-            if (kaIdent.requiresKeyAlgo()) {
-                derived = ka.generateSecret(keyAlgo);
-                result = derived.getEncoded();
-            } else {
-                result = ka.generateSecret();
-            }
-            elapsed += System.nanoTime();
-            if (!lib.getNativeTimingSupport().isEmpty()) {
-                elapsed = lib.getLastNativeTiming();
-            }
-            ka = kaIdent.getInstance(lib.getProvider());
+        int threads = getSampleThreads("ecdh");
+        int kpgBits = bits;
+        AlgorithmParameterSpec kpgSpec = spec;
+        KeyPair one = fixedOne;
+        KeyPair other = fixedOther;
+        try {
+            collect(amount, threads, () -> {
+                KeyPairGenerator workerKpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), kpgBits, kpgSpec);
+                TimingSummary summary = newSummary(summaries);
+                return (i) -> {
+                    ECPrivateKey privateKey = privkey;
+                    ECPublicKey publicKey = pubkey;
+                    if (!givenPrivate) {
+                        privateKey = (ECPrivateKey) (one != null ? one : workerKpg.genKeyPair()).getPrivate();
+                    }
+                    if (!givenPublic) {
+                        publicKey = (ECPublicKey) (other != null ? other : workerKpg.genKeyPair()).getPublic();
+                    }
 
-            String pub = ByteUtil.bytesToHex(ECUtil.toX962Uncompressed(pubkey.getW(), pubkey.getParams()), false);
-            String priv = ByteUtil.bytesToHex(privkey.getS().toByteArray(), false);
-            String dh = ByteUtil.bytesToHex(result, false);
-            out.println(String.format("%d;%d;%s;%s;%s", i, elapsed, pub, priv, dh));
-        }
+                    KeyAgreement ka = kaIdent.getInstance(lib.getProvider());
+                    long elapsed = -System.nanoTime();
+                    if (kpgSpec instanceof ECParameterSpec && lib instanceof NativeECLibrary) {
+                        ka.init(privateKey, kpgSpec);
+                    } else {
+                        ka.init(privateKey);
+                    }
+                    ka.doPhase(publicKey, true);
+                    elapsed += System.nanoTime();
+                    SecretKey derived;
+                    byte[] result;
+                    elapsed -= System.nanoTime();
+                    if (kaIdent.requiresKeyAlgo()) {
+                        derived = ka.generateSecret(keyAlgo);
+                        result = derived.getEncoded();
+                    } else {
+                        result = ka.generateSecret();
+                    }
+                    elapsed += System.nanoTime();
+                    if (!lib.getNativeTimingSupport().isEmpty()) {
+                        elapsed = lib.getLastNativeTiming();
+                    }
 
-        if (cli.hasOption("ecdh.output")) {
-            out.close();
+                    if (summary != null) {
+                        summary.add(privateKey.getS(), elapsed);
+                    }
+                    if (out != null) {
+                        byte[] pub = ECUtil.toX962Uncompressed(publicKey.getW(), publicKey.getParams());
+                        byte[] priv = privateKey.getS().toByteArray();
+                        out.write(i, elapsed, pub, priv, result);
+                    }
+                };
+            });
+        } finally {
+            closeSampleWriter("ecdh", out);
+            writeSummary("ecdh", summaries, timeUnit);
         }
     }
 
     /**
      *
      */
-    private void ecdsa() throws NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException, IOException, SignatureException {
+    private void ecdsa() throws GeneralSecurityException, IOException {
         byte[] data;
-        String dataString;
+        byte[] dataOut;
         if (cli.hasOption("ecdsa.file")) {
             String fileName = cli.getOptionValue("ecdsa.file");
             File in = new File(fileName);
@@ -522,12 +590,12 @@ public class ECTesterStandalone {
                 throw new FileNotFoundException(fileName);
             }
             data = Files.readAllBytes(in.toPath());
-            dataString = "";
+            dataOut = null;
         } else {
             Random random = new Random();
             data = new byte[32];
             random.nextBytes(data);
-            dataString = ByteUtil.bytesToHex(data, false);
+            dataOut = data;
         }
         ProviderECLibrary lib = cfg.selected;
         String algo = cli.getOptionValue("ecdsa.type", "ECDSA");
@@ -559,12 +627,11 @@ public class ECTesterStandalone {
         if (sigIdent == null || kpIdent == null) {
             throw new NoSuchAlgorithmException(algo);
         }
-        Signature sig = sigIdent.getInstance(lib.getProvider());
-        KeyPairGenerator kpg = kpIdent.getInstance(lib.getProvider());
+        int bits = 0;
         ECParameterSpec spec = null;
+        AlgorithmParameterSpec kpgSpec = null;
         if (cli.hasOption("ecdsa.bits")) {
-            int bits = Integer.parseInt(cli.getOptionValue("ecdsa.bits"));
-            kpg.initialize(bits);
+            bits = Integer.parseInt(cli.getOptionValue("ecdsa.bits"));
         } else if (cli.hasOption("ecdsa.named-curve")) {
             String curveName = cli.getOptionValue("ecdsa.named-curve");
             EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
@@ -573,11 +640,12 @@ public class ECTesterStandalone {
                 return;
             }
             spec = curve.toSpec();
-            kpg.initialize(spec);
+            kpgSpec = spec;
         } else if (cli.hasOption("ecdsa.curve-name")) {
             String curveName = cli.getOptionValue("ecdsa.curve-name");
-            kpg.initialize(new ECGenParameterSpec(curveName));
+            kpgSpec = new ECGenParameterSpec(curveName);
         }
+        KeyPairGenerator kpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), bits, kpgSpec);
 
         if (cli.hasOption("ecdsa.time-source")) {
             if (!lib.setNativeTimingType(cli.getOptionValue("ecdsa.time-source"))) {
@@ -586,95 +654,305 @@ public class ECTesterStandalone {
             }
         }
 
-        PrintStream out;
-        if (cli.hasOption("ecdsa.output")) {
-            out = new PrintStream(FileUtil.openStream(cli.getOptionValues("ecdsa.output")));
-        } else {
-            out = System.out;
-        }
-
         String timeUnit = "nano";
         if (!lib.getNativeTimingSupport().isEmpty()) {
             timeUnit = lib.getNativeTimingUnit();
         }
 
-        String hashAlgo = sigIdent.getHashAlgo() != null ? String.format("[%s]", sigIdent.getHashAlgo()) : "";
-        out.println(String.format("index;signTime[%s];verifyTime[%s];data;pubW;privS;signature%s;nonce;verified", timeUnit, timeUnit, hashAlgo));
-
         ECPrivateKey privkey = (ECPrivateKey) ECUtil.loadKey(EC_Consts.PARAMETER_S, cli.getOptionValue("ecdsa.named-private"), cli.getOptionValue("ecdsa.private"), spec);
         ECPublicKey pubkey = (ECPublicKey) ECUtil.loadKey(EC_Consts.PARAMETER_W, cli.getOptionValue("ecdsa.named-public"), cli.getOptionValue("ecdsa.public"), spec);
 
-        KeyPair one;
-        if (cli.hasOption("ecdsa.fixed")) {
-            one = kpg.genKeyPair();
-            if (!cli.hasOption("ecdsa.named-private")) {
+        boolean namedPrivate = cli.hasOption("ecdsa.named-private");
+        boolean namedPublic = cli.hasOption("ecdsa.named-public");
+        boolean fixed = cli.hasOption("ecdsa.fixed");
+        if (fixed) {
+            KeyPair one = kpg.genKeyPair();
+            if (!namedPrivate) {
                 privkey = (ECPrivateKey) one.getPrivate();
             }
-            if (!cli.hasOption("ecdsa.named-public")) {
+            if (!namedPublic) {
                 pubkey = (ECPublicKey) one.getPublic();
             }
         }
 
-
         int amount = Integer.parseInt(cli.getOptionValue("ecdsa.amount", "1"));
-        for (int i = 0; i < amount || amount == 0; ++i) {
-            if ((!cli.hasOption("ecdsa.named-private") || !cli.hasOption("ecdsa.named-public")) && !cli.hasOption("ecdsa.fixed")) {
-                one = kpg.genKeyPair();
+        int threads = getSampleThreads("ecdsa");
+        boolean signOnly = cli.hasOption("ecdsa.sign-only");
+        boolean verifyOnly = cli.hasOption("ecdsa.verify-only");
+        boolean recoverNonce = !cli.hasOption("ecdsa.no-nonce") && !verifyOnly;
+        int kpgBits = bits;
+        AlgorithmParameterSpec workerKpgSpec = kpgSpec;
+        ECParameterSpec nonceSpec = spec;
+        ECPrivateKey fixedPrivate = privkey;
+        ECPublicKey fixedPublic = pubkey;
+
+        /* With --verify-only, the signatures are made upfront, into a corpus that is then cycled through. */
+        SignedSample[] corpus = null;
+        if (verifyOnly) {
+            corpus = new SignedSample[amount == 0 || amount > VERIFY_CORPUS_SIZE ? VERIFY_CORPUS_SIZE : amount];
+            SignedSample[] signed = corpus;
+            collect(corpus.length, threads, () -> {
+                Signature sig = sigIdent.getInstance(lib.getProvider());
+                KeyPairGenerator workerKpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), kpgBits, workerKpgSpec);
+                return (i) -> {
+                    KeyPair one = ecdsaKeyPair(workerKpg, fixed, namedPrivate, namedPublic, fixedPrivate, fixedPublic);
+                    sig.initSign(one.getPrivate());
+                    sig.update(data);
+                    signed[i] = new SignedSample(one, sig.sign());
+                };
+            });
+        }
+        SignedSample[] verifyCorpus = corpus;
 
-                if (!cli.hasOption("ecdsa.named-private")) {
-                    privkey = (ECPrivateKey) one.getPrivate();
-                }
-                if (!cli.hasOption("ecdsa.named-public")) {
-                    pubkey = (ECPublicKey) one.getPublic();
-                }
-            }
+        String hashAlgo = sigIdent.getHashAlgo() != null ? String.format("[%s]", sigIdent.getHashAlgo()) : "";
+        SampleWriter out = openSampleWriter("ecdsa", String.format("index;signTime[%s];verifyTime[%s];data;pubW;privS;signature%s;nonce;verified", timeUnit, timeUnit, hashAlgo),
+                SampleWriter.Type.INTEGER, SampleWriter.Type.INTEGER, SampleWriter.Type.INTEGER, SampleWriter.Type.BYTES, SampleWriter.Type.BYTES,
+                SampleWriter.Type.BYTES, SampleWriter.Type.BYTES, SampleWriter.Type.BYTES, SampleWriter.Type.INTEGER);
+        try {
+            collect(amount, threads, () -> {
+                Signature sig = sigIdent.getInstance(lib.getProvider());
+                KeyPairGenerator workerKpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), kpgBits, workerKpgSpec);
+                return (i) -> {
+                    ECPrivateKey privateKey;
+                    ECPublicKey publicKey;
+                    byte[] signature = null;
+                    if (verifyOnly) {
+                        SignedSample signed = verifyCorpus[i % verifyCorpus.length];
+                        privateKey = (ECPrivateKey) signed.keyPair.getPrivate();
+                        publicKey = (ECPublicKey) signed.keyPair.getPublic();
+                        signature = signed.signature;
+                    } else {
+                        KeyPair one = ecdsaKeyPair(workerKpg, fixed, namedPrivate, namedPublic, fixedPrivate, fixedPublic);
+                        privateKey = (ECPrivateKey) one.getPrivate();
+                        publicKey = (ECPublicKey) one.getPublic();
+                    }
 
-            sig.initSign(privkey);
-            sig.update(data);
+                    long signTime = 0;
+                    if (!verifyOnly) {
+                        sig.initSign(privateKey);
+                        sig.update(data);
 
-            long signTime = -System.nanoTime();
-            byte[] signature = sig.sign();
-            signTime += System.nanoTime();
-            if (!lib.getNativeTimingSupport().isEmpty()) {
-                signTime = lib.getLastNativeTiming();
-            }
+                        signTime = -System.nanoTime();
+                        signature = sig.sign();
+                        signTime += System.nanoTime();
+                        if (!lib.getNativeTimingSupport().isEmpty()) {
+                            signTime = lib.getLastNativeTiming();
+                        }
+                    }
 
-            sig.initVerify(pubkey);
-            sig.update(data);
+                    long verifyTime = 0;
+                    int verified = -1;
+                    if (!signOnly) {
+                        sig.initVerify(publicKey);
+                        sig.update(data);
+
+                        verifyTime = -System.nanoTime();
+                        verified = sig.verify(signature) ? 1 : 0;
+                        verifyTime += System.nanoTime();
+                        if (!lib.getNativeTimingSupport().isEmpty()) {
+                            verifyTime = lib.getLastNativeTiming();
+                        }
+                    }
+
+                    byte[] pub = ECUtil.toX962Uncompressed(publicKey.getW(), publicKey.getParams());
+                    byte[] priv = privateKey.getS().toByteArray();
+                    byte[] k = null;
+                    ECParameterSpec kSpec = nonceSpec;
+                    if (kSpec == null) {
+                        kSpec = privateKey.getParams();
+                    }
+                    if (recoverNonce && kSpec != null) {
+                        BigInteger kValue = ECUtil.recoverSignatureNonce(signature, data, privateKey.getS(), kSpec, sigIdent.getHashAlgo());
+                        if (kValue != null) {
+                            k = kValue.toByteArray();
+                        }
+                    }
+                    out.write(i, signTime, verifyTime, dataOut, pub, priv, signature, k, verified);
+                };
+            });
+        } finally {
+            closeSampleWriter("ecdsa", out);
+        }
+    }
+
+    /**
+     * Test an operation with the private key for timing leakage, the dudect way: the measurements of the operation
+     * with a fixed private key and with random private keys (in random order) are compared by Welch's t-test. As the
+     * durations have a heavy upper tail, the test is also done on the measurements cropped at several percentiles
+     * (set from a first few measurements). The test stops once any of the t statistics exceeds the threshold,
+     * or when the number of measurements or the time budget runs out.
+     */
+    private void leakage() throws GeneralSecurityException, IOException {
+        ProviderECLibrary lib = cfg.selected;
+        String operation = cli.getOptionValue("leakage.operation", "ecdh").toLowerCase();
+        String algo = cli.getOptionValue("leakage.type", operation.equals("ecdh") ? "ECDH" : "ECDSA");
+        String curveName = cli.getOptionValue("leakage.named-curve");
+        EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
+        if (curve == null) {
+            System.err.println("Curve not found: " + curveName);
+            return;
+        }
+        ECParameterSpec spec = curve.toSpec();
+
+        KeyPairGeneratorIdent kpIdent = lib.getKPGs().stream()
+                .filter((ident) -> ident.contains("EC"))
+                .findFirst()
+                .orElse(null);
+        if (kpIdent == null) {
+            throw new NoSuchAlgorithmException("EC");
+        }
+        KeyPairGenerator kpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), 0, spec);
+
+        KeyOperation op;
+        if (operation.equals("ecdh")) {
+            KeyAgreementIdent kaIdent = lib.getKAs().stream()
+                    .filter((ident) -> ident.contains(algo))
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchAlgorithmException(algo));
+            KeyAgreement ka = kaIdent.getInstance(lib.getProvider());
+            ECPublicKey other = (ECPublicKey) kpg.genKeyPair().getPublic();
+            op = (privateKey) -> {
+                long elapsed = -System.nanoTime();
+                if (lib instanceof NativeECLibrary) {
+                    ka.init(privateKey, spec);
+                } else {
+                    ka.init(privateKey);
+                }
+                ka.doPhase(other, true);
+                if (kaIdent.requiresKeyAlgo()) {
+                    ka.generateSecret("AES");
+                } else {
+                    ka.generateSecret();
+                }
+                elapsed += System.nanoTime();
+                return elapsed;
+            };
+        } else if (operation.equals("ecdsa")) {
+            SignatureIdent sigIdent = lib.getSigs().stream()
+                    .filter((ident) -> ident.contains(algo))
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchAlgorithmException(algo));
+            Signature sig = sigIdent.getInstance(lib.getProvider());
+            byte[] data = new byte[32];
+            new Random().nextBytes(data);
+            op = (privateKey) -> {
+                sig.initSign(privateKey);
+                sig.update(data);
+                long elapsed = -System.nanoTime();
+                sig.sign();
+                elapsed += System.nanoTime();
+                return elapsed;
+            };
+        } else {
+            System.err.println("Unknown operation " + operation + ".");
+            return;
+        }
 
-            long verifyTime = -System.nanoTime();
-            boolean verified = sig.verify(signature);
-            verifyTime += System.nanoTime();
-            if (!lib.getNativeTimingSupport().isEmpty()) {
-                verifyTime = lib.getLastNativeTiming();
+        if (cli.hasOption("leakage.time-source")) {
+            if (!lib.setNativeTimingType(cli.getOptionValue("leakage.time-source"))) {
+                System.err.println("Couldn't set native time source.");
+                return;
             }
+        }
+        boolean nativeTiming = !lib.getNativeTimingSupport().isEmpty();
+        String timeUnit = nativeTiming ? lib.getNativeTimingUnit() : "nano";
+
+        long amount = Long.parseLong(cli.getOptionValue("leakage.amount", "1000000"));
+        long deadline = cli.hasOption("leakage.time-budget") ? System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(cli.getOptionValue("leakage.time-budget"))) : Long.MAX_VALUE;
+        double threshold = Double.parseDouble(cli.getOptionValue("leakage.threshold", "10"));
+        long report = Long.parseLong(cli.getOptionValue("leakage.report", "10000"));
+
+        ECPrivateKey fixed = new RawECPrivateKey(ECUtil.toScalar(ECUtil.fixedRandomKey(curve)), spec);
+        Random classes = new SecureRandom();
+        KeyOperation measure = (privateKey) -> {
+            long elapsed = op.run(privateKey);
+            return nativeTiming ? lib.getLastNativeTiming() : elapsed;
+        };
+
+        /* The first measurements only set the cropping thresholds. */
+        long[] calibration = new long[LEAKAGE_CALIBRATION];
+        for (int i = 0; i < calibration.length; ++i) {
+            calibration[i] = measure.run(classes.nextBoolean() ? fixed : new RawECPrivateKey(ECUtil.toScalar(ECUtil.fullRandomKey(curve)), spec));
+        }
+        Statistics calibrated = new Statistics(calibration);
+        long[] crops = new long[LEAKAGE_PERCENTILES + 1];
+        crops[0] = Long.MAX_VALUE;
+        for (int i = 1; i < crops.length; ++i) {
+            crops[i] = calibrated.getPercentile(1 - Math.pow(0.5, 10.0 * i / LEAKAGE_PERCENTILES));
+        }
+        WelchTest[] tests = new WelchTest[crops.length];
+        for (int i = 0; i < tests.length; ++i) {
+            tests[i] = new WelchTest();
+        }
 
-            String pub = ByteUtil.bytesToHex(ECUtil.toX962Uncompressed(pubkey.getW(), pubkey.getParams()), false);
-            String priv = ByteUtil.bytesToHex(privkey.getS().toByteArray(), false);
-            String sign = ByteUtil.bytesToHex(signature, false);
-            String k = "";
-            ECParameterSpec kSpec = spec;
-            if (kSpec == null) {
-                kSpec = privkey.getParams();
+        String[] files = cli.getOptionValues("leakage.output");
+        PrintStream out = files == null ? System.out : new PrintStream(FileUtil.openStream(files));
+        out.printf("Testing %s of %s on %s, fixed vs random private key, time in %s.%n", algo, lib.name(), curveName, timeUnit);
+        long count = 0;
+        boolean leaking = false;
+        int worst = 0;
+        while (count < amount && System.nanoTime() < deadline) {
+            int cls = classes.nextBoolean() ? 1 : 0;
+            ECPrivateKey privateKey = cls == 0 ? fixed : new RawECPrivateKey(ECUtil.toScalar(ECUtil.fullRandomKey(curve)), spec);
+            long time = measure.run(privateKey);
+            for (int i = 0; i < tests.length; ++i) {
+                if (time < crops[i]) {
+                    tests[i].add(cls, time);
+                }
             }
-            if (kSpec != null) {
-                BigInteger kValue = ECUtil.recoverSignatureNonce(signature, data, privkey.getS(), kSpec, sigIdent.getHashAlgo());
-                if (kValue != null) {
-                    k = ByteUtil.bytesToHex(kValue.toByteArray(), false);
+            count++;
+
+            if (count % report == 0 || count == amount) {
+                worst = worstTest(tests);
+                out.printf("%d measurements, max |t| = %.2f%s, fixed mean %.1f, random mean %.1f.%n", count, Math.abs(tests[worst].getT()),
+                        worst == 0 ? "" : String.format(" (cropped at %d)", crops[worst]), tests[worst].get(0).getMean(), tests[worst].get(1).getMean());
+                out.flush();
+                if (Math.abs(tests[worst].getT()) > threshold) {
+                    leaking = true;
+                    break;
                 }
             }
-            out.println(String.format("%d;%d;%d;%s;%s;%s;%s;%s;%d", i, signTime, verifyTime, dataString, pub, priv, sign, k, verified ? 1 : 0));
         }
-
-        if (cli.hasOption("ecdsa.output")) {
+        worst = worstTest(tests);
+        double t = Math.abs(tests[worst].getT());
+        if (leaking) {
+            out.printf("Leakage detected: |t| = %.2f > %.2f after %d measurements.%n", t, threshold, count);
+        } else {
+            out.printf("No leakage detected: |t| = %.2f <= %.2f after %d measurements.%n", Double.isNaN(t) ? 0 : t, threshold, count);
+        }
+        if (files != null) {
             out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the index of the test with the largest absolute t statistic.
+     */
+    private static int worstTest(WelchTest[] tests) {
+        int worst = 0;
+        for (int i = 1; i < tests.length; ++i) {
+            double t = Math.abs(tests[i].getT());
+            if (t > Math.abs(tests[worst].getT()) || Double.isNaN(tests[worst].getT()) && !Double.isNaN(t)) {
+                worst = i;
+            }
         }
+        return worst;
+    }
+
+    /**
+     * Runs an operation with a private key and measures its duration.
+     */
+    @FunctionalInterface
+    private interface KeyOperation {
+        long run(ECPrivateKey privateKey) throws GeneralSecurityException;
     }
 
     /**
      *
      */
-    private void generate() throws NoSuchAlgorithmException, InvalidAlgorithmParameterException, FileNotFoundException {
+    private void generate() throws GeneralSecurityException, IOException {
         ProviderECLibrary lib = cfg.selected;
         KeyPairGeneratorIdent ident = null;
         String algo = cli.getOptionValue("generate.type", "EC");
@@ -687,10 +965,10 @@ public class ECTesterStandalone {
         if (ident == null) {
             throw new NoSuchAlgorithmException(algo);
         }
-        KeyPairGenerator kpg = ident.getInstance(lib.getProvider());
+        int bits = 0;
+        AlgorithmParameterSpec spec = null;
         if (cli.hasOption("generate.bits")) {
-            int bits = Integer.parseInt(cli.getOptionValue("generate.bits"));
-            kpg.initialize(bits);
+            bits = Integer.parseInt(cli.getOptionValue("generate.bits"));
         } else if (cli.hasOption("generate.named-curve")) {
             String curveName = cli.getOptionValue("generate.named-curve");
             EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
@@ -698,10 +976,10 @@ public class ECTesterStandalone {
                 System.err.println("Curve not found: " + curveName);
                 return;
             }
-            kpg.initialize(curve.toSpec());
+            spec = curve.toSpec();
         } else if (cli.hasOption("generate.curve-name")) {
             String curveName = cli.getOptionValue("generate.curve-name");
-            kpg.initialize(new ECGenParameterSpec(curveName));
+            spec = new ECGenParameterSpec(curveName);
         }
 
         if (cli.hasOption("generate.time-source")) {
@@ -716,97 +994,494 @@ public class ECTesterStandalone {
             timeUnit = lib.getNativeTimingUnit();
         }
 
-        PrintStream out;
-        if (cli.hasOption("generate.output")) {
-            out = new PrintStream(FileUtil.openStream(cli.getOptionValues("generate.output")));
+        SampleWriter out = openSampleWriter("generate", String.format("index;time[%s];pubW;privS", timeUnit),
+                SampleWriter.Type.INTEGER, SampleWriter.Type.INTEGER, SampleWriter.Type.BYTES, SampleWriter.Type.BYTES);
+        List<TimingSummary> summaries = cli.hasOption("generate.summary") ? Collections.synchronizedList(new LinkedList<>()) : null;
+
+        int amount = Integer.parseInt(cli.getOptionValue("generate.amount", "1"));
+        int threads = getSampleThreads("generate");
+        KeyPairGeneratorIdent kpIdent = ident;
+        int kpgBits = bits;
+        AlgorithmParameterSpec kpgSpec = spec;
+        try {
+            collect(amount, threads, () -> {
+                KeyPairGenerator kpg = initKeyPairGenerator(kpIdent.getInstance(lib.getProvider()), kpgBits, kpgSpec);
+                TimingSummary summary = newSummary(summaries);
+                return (i) -> {
+                    long elapsed = -System.nanoTime();
+                    KeyPair kp = kpg.genKeyPair();
+                    elapsed += System.nanoTime();
+                    if (!lib.getNativeTimingSupport().isEmpty()) {
+                        elapsed = lib.getLastNativeTiming();
+                    }
+                    ECPublicKey publicKey = (ECPublicKey) kp.getPublic();
+                    ECPrivateKey privateKey = (ECPrivateKey) kp.getPrivate();
+
+                    if (summary != null) {
+                        summary.add(privateKey.getS(), elapsed);
+                    }
+                    if (out != null) {
+                        byte[] pub = ECUtil.toX962Uncompressed(publicKey.getW(), publicKey.getParams());
+                        byte[] priv = privateKey.getS().toByteArray();
+                        out.write(i, elapsed, pub, priv);
+                    }
+                };
+            });
+        } finally {
+            closeSampleWriter("generate", out);
+            writeSummary("generate", summaries, timeUnit);
+        }
+    }
+
+    /**
+     * Open the sample output of the <code>action</code>, in the format and into the files given by its options.
+     *
+     * @return the writer, <code>null</code> if the action was told not to output the samples.
+     */
+    private SampleWriter openSampleWriter(String action, String header, SampleWriter.Type... types) throws IOException {
+        if (cli.hasOption(action + ".no-samples")) {
+            return null;
+        }
+        String[] files = cli.getOptionValues(action + ".output");
+        if (!cli.getOptionValue(action + ".format", "csv").equalsIgnoreCase("binary")) {
+            PrintStream out = files == null ? System.out : new PrintStream(FileUtil.openStream(files));
+            return new CSVSampleWriter(out, header, types);
+        }
+
+        WritableByteChannel channel;
+        if (files == null) {
+            channel = Channels.newChannel(System.out);
+        } else if (files.length == 1) {
+            channel = new FileOutputStream(files[0]).getChannel();
         } else {
-            out = System.out;
+            channel = Channels.newChannel(FileUtil.openStream(files));
         }
+        return new BinarySampleWriter(channel, header, types);
+    }
 
-        out.println(String.format("index;time[%s];pubW;privS", timeUnit));
+    /**
+     * Get the keypair to use for one ECDSA sample, the fixed or named keys where given, fresh ones otherwise.
+     */
+    private static KeyPair ecdsaKeyPair(KeyPairGenerator kpg, boolean fixed, boolean namedPrivate, boolean namedPublic, ECPrivateKey privateKey, ECPublicKey publicKey) {
+        if ((!namedPrivate || !namedPublic) && !fixed) {
+            KeyPair one = kpg.genKeyPair();
 
-        int amount = Integer.parseInt(cli.getOptionValue("generate.amount", "1"));
-        for (int i = 0; i < amount || amount == 0; ++i) {
-            long elapsed = -System.nanoTime();
-            KeyPair kp = kpg.genKeyPair();
-            elapsed += System.nanoTime();
-            if (!lib.getNativeTimingSupport().isEmpty()) {
-                elapsed = lib.getLastNativeTiming();
+            if (!namedPrivate) {
+                privateKey = (ECPrivateKey) one.getPrivate();
+            }
+            if (!namedPublic) {
+                publicKey = (ECPublicKey) one.getPublic();
             }
-            ECPublicKey publicKey = (ECPublicKey) kp.getPublic();
-            ECPrivateKey privateKey = (ECPrivateKey) kp.getPrivate();
+        }
+        return new KeyPair(publicKey, privateKey);
+    }
+
+    /**
+     * A signature made upfront, along with the keys used, for ecdsa --verify-only.
+     */
+    private static class SignedSample {
+        final KeyPair keyPair;
+        final byte[] signature;
 
-            String pub = ByteUtil.bytesToHex(ECUtil.toX962Uncompressed(publicKey.getW(), publicKey.getParams()), false);
-            String priv = ByteUtil.bytesToHex(privateKey.getS().toByteArray(), false);
-            out.println(String.format("%d;%d;%s;%s", i, elapsed, pub, priv));
+        SignedSample(KeyPair keyPair, byte[] signature) {
+            this.keyPair = keyPair;
+            this.signature = signature;
         }
+    }
 
-        if (cli.hasOption("generate.output")) {
+    /**
+     * Close the sample output of the <code>action</code> if it went into files, flush it otherwise.
+     */
+    private void closeSampleWriter(String action, SampleWriter out) throws IOException {
+        if (out == null) {
+            return;
+        }
+        if (cli.hasOption(action + ".output")) {
             out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Create the timing summary of one worker, if summaries are collected.
+     */
+    private static TimingSummary newSummary(List<TimingSummary> summaries) {
+        if (summaries == null) {
+            return null;
+        }
+        TimingSummary summary = new TimingSummary();
+        summaries.add(summary);
+        return summary;
+    }
+
+    /**
+     * Merge the timing summaries of the workers and write them into the --summary file of the <code>action</code>.
+     */
+    private void writeSummary(String action, List<TimingSummary> summaries, String timeUnit) throws IOException {
+        if (summaries == null) {
+            return;
+        }
+        TimingSummary merged = new TimingSummary();
+        synchronized (summaries) {
+            for (TimingSummary summary : summaries) {
+                merged.merge(summary);
+            }
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(cli.getOptionValue(action + ".summary")))) {
+            if (cli.getOptionValue(action + ".summary-format", "text").equalsIgnoreCase("yaml")) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("time_unit", timeUnit);
+                result.putAll(merged.toMap());
+                DumperOptions options = new DumperOptions();
+                options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+                out.print(new Yaml(options).dump(result));
+            } else {
+                out.println("time unit: " + timeUnit);
+                out.print(merged);
+            }
+        }
+    }
+
+    /**
+     * Initialize the KeyPairGenerator either with a bit-size (if non-zero) or the parameter spec (if not null).
+     */
+    private static KeyPairGenerator initKeyPairGenerator(KeyPairGenerator kpg, int bits, AlgorithmParameterSpec spec) throws InvalidAlgorithmParameterException {
+        if (bits != 0) {
+            kpg.initialize(bits);
+        } else if (spec != null) {
+            kpg.initialize(spec);
+        }
+        return kpg;
+    }
+
+    /**
+     * @param action The sample collecting action.
+     * @return The number of worker threads to collect the samples with, 1 if the library is not thread-safe.
+     */
+    private int getSampleThreads(String action) {
+        int threads = Integer.parseInt(cli.getOptionValue(action + ".threads", "1"));
+        if (threads > 1 && !cfg.selected.isThreadSafe()) {
+            System.err.println(cfg.selected.name() + " is not thread-safe, collecting the samples on a single thread.");
+            threads = 1;
+        }
+        return threads;
+    }
+
+    /**
+     * Collect <code>amount</code> samples (or keep collecting if it is zero) using <code>threads</code> workers.
+     * Every worker gets its own Sampler from the factory, so that no KeyPairGenerator, KeyAgreement
+     * or Signature instances are shared between threads. Indices are handed out from a shared counter,
+     * so every sample has a unique index, but with more than one thread they may complete out of order.
+     * The first worker to fail stops all the others.
+     */
+    private static void collect(int amount, int threads, SamplerFactory factory) throws GeneralSecurityException, IOException {
+        AtomicInteger counter = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Callable<Void> worker = () -> {
+            try {
+                Sampler sampler = factory.create();
+                int i;
+                while (((i = counter.getAndIncrement()) < amount || amount == 0) && !failed.get() && !Thread.currentThread().isInterrupted()) {
+                    sampler.sample(i);
+                }
+            } catch (Exception | Error e) {
+                failed.set(true);
+                throw e;
+            }
+            return null;
+        };
+
+        if (threads <= 1) {
+            try {
+                worker.call();
+            } catch (GeneralSecurityException | IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Wait for the workers in the order they finish, so that the first failure is seen right away.
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < threads; ++i) {
+                completion.submit(worker);
+            }
+            for (int i = 0; i < threads; ++i) {
+                completion.take().get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * Collects a single sample with a given index.
+     */
+    @FunctionalInterface
+    private interface Sampler {
+        void sample(int index) throws GeneralSecurityException, IOException;
+    }
+
+    /**
+     * Creates the per-thread state of a worker (its own KeyPairGenerator, KeyAgreement, Signature, ...).
+     */
+    @FunctionalInterface
+    private interface SamplerFactory {
+        Sampler create() throws GeneralSecurityException;
+    }
+
     /**
      *
      */
-    private void test() throws TestException, ParserConfigurationException {
-        TestWriter writer;
-        switch (cli.getOptionValue("test.format", "text").toLowerCase()) {
+    private void test() throws TestException, IOException {
+        TestWriter writer = createWriter(cli.getOptionValue("test.format", "text"), System.out);
+
+        if (cli.hasOption("test.no-curve-cache")) {
+            NativeProvider.setCurveCacheSize(0);
+        }
+        int testThreads = Integer.parseInt(cli.getOptionValue("test.test-threads", "1"));
+        if (testThreads > 1 && !cfg.selected.isThreadSafe()) {
+            System.err.println(cfg.selected.name() + " is not thread-safe, running its tests on a single thread.");
+            testThreads = 1;
+        }
+        CompoundTest.setParallelism(testThreads);
+
+        StandaloneTestSuite suite = createSuite(cli.getArg(0), writer, cfg, cli);
+        if (!cli.hasOption("test.journal")) {
+            suite.run();
+            return;
+        }
+        try (TestJournal journal = new TestJournal(Paths.get(cli.getOptionValue("test.journal")))) {
+            suite.setJournal(journal, getJournalConfiguration());
+            if (journal.getDone() != 0) {
+                System.err.println("Resuming the run, " + journal.getDone() + " tests already finished.");
+            }
+            suite.run();
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * @return The library and the options of the test action that change the results of the suite, a journal
+     * can only be resumed with the same ones. The options that only change how the tests are run are left out.
+     */
+    private String getJournalConfiguration() {
+        List<String> options = new LinkedList<>();
+        for (Option opt : cli.getNext().getThis().getOptions()) {
+            String name = opt.getLongOpt() != null ? opt.getLongOpt() : opt.getOpt();
+            if (Arrays.asList("journal", "test-threads", "no-curve-cache").contains(name)) {
+                continue;
+            }
+            options.add(opt.hasArg() ? "--" + name + "=" + String.join(",", opt.getValues()) : "--" + name);
+        }
+        Collections.sort(options);
+        return cfg.selected.name() + " " + String.join(" ", options);
+    }
+
+    /**
+     * Run a set of test suites against a set of libraries, with the libraries tested in parallel.
+     * The suites of a single library are run one after another, as not all of the native libraries
+     * can be used from multiple threads at once.
+     */
+    private void testAll() throws IOException {
+        String format = cli.getOptionValue("test-all.format", "text").toLowerCase();
+        String extension = format.equals("text") ? "txt" : format;
+        Path outDir = Paths.get(cli.getOptionValue("test-all.output", "results"));
+        int threads = Integer.parseInt(cli.getOptionValue("test-all.threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long timeout = Long.parseLong(cli.getOptionValue("test-all.timeout", "0"));
+
+        List<String> suites = cli.hasOption("test-all.suites") ? Arrays.asList(cli.getOptionValue("test-all.suites").toLowerCase().split(",")) : Arrays.asList(SUITES);
+        List<ProviderECLibrary> selectedLibs = new LinkedList<>();
+        if (cli.hasOption("test-all.libs")) {
+            for (String libName : cli.getOptionValue("test-all.libs").split(",")) {
+                for (ProviderECLibrary lib : Config.findLibraries(libs, libName)) {
+                    if (!selectedLibs.contains(lib)) {
+                        selectedLibs.add(lib);
+                    }
+                }
+            }
+        } else {
+            selectedLibs.addAll(Config.findLibraries(libs, null));
+        }
+
+        if (cli.hasOption("test-all.no-curve-cache")) {
+            NativeProvider.setCurveCacheSize(0);
+        }
+        CompoundTest.setParallelism(Integer.parseInt(cli.getOptionValue("test-all.test-threads", "1")));
+        if (cli.hasOption("test-all.preload-data")) {
+            EC_Store.getInstance().preload();
+        }
+
+        // The suites read their options under the "test" action.
+        TreeCommandLine suiteCli = new TreeCommandLine(cli.getThis(), new TreeCommandLine("test", cli.getNext().getThis(), null));
+        Map<ProviderECLibrary, Map<String, String>> summary = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, selectedLibs.size())));
+        try {
+            List<Future<?>> futures = new LinkedList<>();
+            for (ProviderECLibrary lib : selectedLibs) {
+                Map<String, String> results = Collections.synchronizedMap(new LinkedHashMap<>());
+                summary.put(lib, results);
+                futures.add(executor.submit(() -> {
+                    Config libCfg = new Config(libs);
+                    libCfg.selected = lib;
+                    libCfg.color = cfg.color;
+                    String libDir = lib.name().replaceAll("[^A-Za-z0-9.+-]", "_");
+                    boolean hung = false;
+                    for (String suiteName : suites) {
+                        if (hung) {
+                            results.put(suiteName, "SKIPPED");
+                            continue;
+                        }
+                        Path suiteDir = outDir.resolve(suiteName).resolve(libDir);
+                        try {
+                            Files.createDirectories(suiteDir);
+                            PrintStream out = new PrintStream(new FileOutputStream(suiteDir.resolve("results." + extension).toFile()), true);
+                            CountingTestWriter counter = new CountingTestWriter();
+                            StandaloneTestSuite suite = createSuite(suiteName, new TeeTestWriter(createWriter(format, out), counter), libCfg, suiteCli);
+
+                            List<Throwable> errors = Collections.synchronizedList(new LinkedList<>());
+                            Thread runner = new Thread(() -> {
+                                // The other libraries may still use the shared test threads.
+                                CompoundTest.setSequential(!lib.isThreadSafe());
+                                suite.run();
+                            }, "test-all " + lib.name() + " " + suiteName);
+                            runner.setDaemon(true);
+                            runner.setUncaughtExceptionHandler((thread, ex) -> errors.add(ex));
+                            runner.start();
+                            runner.join(timeout * 1000);
+                            if (runner.isAlive()) {
+                                // The library is stuck, there is no way to stop a native call, so leave it be,
+                                // but close its output so that whatever it does later is not written.
+                                runner.interrupt();
+                                out.println("# NOTE: Tests timed out after taking longer than " + timeout + "s, the results are incomplete.");
+                                out.close();
+                                results.put(suiteName, "TIMEOUT");
+                                hung = true;
+                                continue;
+                            }
+                            out.close();
+                            if (!errors.isEmpty()) {
+                                results.put(suiteName, "ERROR");
+                                System.err.println(lib.name() + " " + suiteName + ": " + errors.get(0).getMessage());
+                            } else {
+                                results.put(suiteName, String.format("%d/%d", counter.getOk(), counter.getTotal()) + (counter.hasErrored() ? "!" : ""));
+                            }
+                        } catch (IOException e) {
+                            results.put(suiteName, "ERROR");
+                            System.err.println(e.getMessage());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        printSummary(selectedLibs, suites, summary);
+    }
+
+    /**
+     * Print the matrix of results of the <code>test-all</code> command, the cells contain the number
+     * of tests that passed out of all tests that were run.
+     */
+    private void printSummary(List<ProviderECLibrary> selectedLibs, List<String> suites, Map<ProviderECLibrary, Map<String, String>> summary) {
+        int nameWidth = "Library".length();
+        for (ProviderECLibrary lib : selectedLibs) {
+            nameWidth = Math.max(nameWidth, lib.name().length());
+        }
+        int[] widths = new int[suites.size()];
+        for (int i = 0; i < widths.length; ++i) {
+            widths[i] = suites.get(i).length();
+            for (ProviderECLibrary lib : selectedLibs) {
+                widths[i] = Math.max(widths[i], summary.get(lib).getOrDefault(suites.get(i), "").length());
+            }
+        }
+
+        StringBuilder header = new StringBuilder(String.format("%-" + nameWidth + "s", "Library"));
+        for (int i = 0; i < widths.length; ++i) {
+            header.append(" | ").append(String.format("%-" + widths[i] + "s", suites.get(i)));
+        }
+        System.out.println(Colors.bold(header.toString()));
+        for (ProviderECLibrary lib : selectedLibs) {
+            StringBuilder row = new StringBuilder(String.format("%-" + nameWidth + "s", lib.name()));
+            for (int i = 0; i < widths.length; ++i) {
+                row.append(" | ").append(String.format("%-" + widths[i] + "s", summary.get(lib).getOrDefault(suites.get(i), "")));
+            }
+            System.out.println(row);
+        }
+    }
+
+    private static TestWriter createWriter(String format, PrintStream out) {
+        switch (format.toLowerCase()) {
             case "yaml":
             case "yml":
-                writer = new YAMLTestWriter(System.out);
-                break;
+                return new YAMLTestWriter(out);
             case "xml":
-                writer = new XMLTestWriter(System.out);
-                break;
+                return new XMLTestWriter(out);
             case "text":
             default:
-                writer = new TextTestWriter(System.out);
-                break;
+                return new TextTestWriter(out);
         }
+    }
 
-        StandaloneTestSuite suite;
-
-        switch (cli.getArg(0).toLowerCase()) {
+    private static StandaloneTestSuite createSuite(String name, TestWriter writer, Config cfg, TreeCommandLine cli) {
+        switch (name.toLowerCase()) {
             case "test-vectors":
-                suite = new StandaloneTestVectorSuite(writer, cfg, cli);
-                break;
+                return new StandaloneTestVectorSuite(writer, cfg, cli);
             case "wrong":
-                suite = new StandaloneWrongSuite(writer, cfg, cli);
-                break;
+                return new StandaloneWrongSuite(writer, cfg, cli);
             case "degenerate":
-                suite = new StandaloneDegenerateSuite(writer, cfg, cli);
-                break;
+                return new StandaloneDegenerateSuite(writer, cfg, cli);
             case "cofactor":
-                suite = new StandaloneCofactorSuite(writer, cfg, cli);
-                break;
+                return new StandaloneCofactorSuite(writer, cfg, cli);
             case "composite":
-                suite = new StandaloneCompositeSuite(writer, cfg, cli);
-                break;
+                return new StandaloneCompositeSuite(writer, cfg, cli);
             case "invalid":
-                suite = new StandaloneInvalidSuite(writer, cfg, cli);
-                break;
+                return new StandaloneInvalidSuite(writer, cfg, cli);
             case "edge-cases":
-                suite = new StandaloneEdgeCasesSuite(writer, cfg, cli);
-                break;
+                return new StandaloneEdgeCasesSuite(writer, cfg, cli);
             case "signature":
-                suite = new StandaloneSignatureSuite(writer, cfg, cli);
-                break;
+                return new StandaloneSignatureSuite(writer, cfg, cli);
             case "twist":
-                suite = new StandaloneTwistSuite(writer, cfg, cli);
-                break;
+                return new StandaloneTwistSuite(writer, cfg, cli);
             case "miscellaneous":
-                suite = new StandaloneMiscSuite(writer, cfg, cli);
-                break;
+                return new StandaloneMiscSuite(writer, cfg, cli);
             case "performance":
-                suite = new StandalonePerformanceSuite(writer, cfg, cli);
-                break;
+                return new StandalonePerformanceSuite(writer, cfg, cli);
             case "default":
+                return new StandaloneDefaultSuite(writer, cfg, cli);
             default:
-                suite = new StandaloneDefaultSuite(writer, cfg, cli);
+                throw new IllegalArgumentException("Unknown test suite " + name + ".");
         }
-
-        suite.run();
     }
 
     /**
@@ -838,6 +1513,155 @@ public class ECTesterStandalone {
         curve.writeCSV(System.out);
     }
 
+    /**
+     *
+     */
+    private void convert() throws IOException {
+        String[] files = cli.getOptionValues("convert.output");
+        PrintStream out = files == null ? System.out : new PrintStream(FileUtil.openStream(files));
+        try (BinarySampleReader reader = new BinarySampleReader(FileChannel.open(Path.of(cli.getArg(0))))) {
+            CSVSampleWriter writer = new CSVSampleWriter(out, reader.getHeader(), reader.getTypes());
+            Object[] sample;
+            while ((sample = reader.read()) != null) {
+                writer.write(sample);
+            }
+            if (files != null) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Recover the nonces missing from the sample output of ecdsa (collected with --no-nonce or --verify-only),
+     * from the signed data, the private key and the signature. The samples are read in batches,
+     * the nonces of a batch are recovered in parallel and the batch is then written out in the original order.
+     */
+    private void recoverNonces() throws IOException {
+        String curveName = cli.getOptionValue("recover-nonces.named-curve");
+        EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
+        if (curve == null) {
+            System.err.println("Curve not found: " + curveName);
+            return;
+        }
+        ECParameterSpec spec = curve.toSpec();
+        int threads = Integer.parseInt(cli.getOptionValue("recover-nonces.threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        try (SampleReader reader = SampleReader.open(Path.of(cli.getArg(0)))) {
+            EcdsaColumns columns = new EcdsaColumns(reader);
+            SampleWriter out = openSampleWriter("recover-nonces", reader.getHeader(), reader.getTypes());
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<Object[]> batch = new ArrayList<>(RECOVER_BATCH_SIZE);
+                boolean more = true;
+                while (more) {
+                    batch.clear();
+                    Object[] sample;
+                    while (batch.size() < RECOVER_BATCH_SIZE && (sample = reader.read()) != null) {
+                        batch.add(sample);
+                    }
+                    more = batch.size() == RECOVER_BATCH_SIZE;
+
+                    pool.submit(() -> batch.parallelStream().forEach((row) -> {
+                        if (columns.hasNonce(row)) {
+                            return;
+                        }
+                        BigInteger k = columns.getNonce(row, spec);
+                        if (k != null) {
+                            row[columns.nonce] = k.toByteArray();
+                        }
+                    })).get();
+
+                    for (Object[] row : batch) {
+                        out.write(row);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+                if (cli.hasOption("recover-nonces.output")) {
+                    out.close();
+                } else {
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Analyze the nonces in the sample output of ecdsa, recovering those that are missing. The samples are streamed
+     * in batches, every batch is analyzed by a fork/join task while the next one is being read and the statistics
+     * of the batches are merged into a summary.
+     */
+    private void analyze() throws IOException {
+        String curveName = cli.getOptionValue("analyze.named-curve");
+        EC_Curve curve = EC_Store.getInstance().getObject(EC_Curve.class, curveName);
+        if (curve == null) {
+            System.err.println("Curve not found: " + curveName);
+            return;
+        }
+        ECParameterSpec spec = curve.toSpec();
+        int threads = Integer.parseInt(cli.getOptionValue("analyze.threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long skip = Long.parseLong(cli.getOptionValue("analyze.skip", "0"));
+
+        NonceStatistics stats = new NonceStatistics(spec.getOrder());
+        String timeUnit;
+        try (SampleReader reader = SampleReader.open(Path.of(cli.getArg(0)))) {
+            EcdsaColumns columns = new EcdsaColumns(reader);
+            timeUnit = columns.timeUnit;
+            for (long i = 0; i < skip; ++i) {
+                if (reader.read() == null) {
+                    break;
+                }
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ForkJoinTask<NonceStatistics> pending = null;
+                while (true) {
+                    List<Object[]> batch = new ArrayList<>(RECOVER_BATCH_SIZE);
+                    Object[] sample;
+                    while (batch.size() < RECOVER_BATCH_SIZE && (sample = reader.read()) != null) {
+                        batch.add(sample);
+                    }
+                    if (pending != null) {
+                        stats.merge(pending.join());
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    pending = pool.submit(new NonceAnalysisTask(batch, columns, spec));
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        String[] files = cli.getOptionValues("analyze.output");
+        PrintStream out = files == null ? System.out : new PrintStream(FileUtil.openStream(files));
+        String format = cli.getOptionValue("analyze.format", "text").toLowerCase();
+        if (format.equals("text")) {
+            out.println("time unit: " + timeUnit);
+            out.print(stats);
+        } else {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("time_unit", timeUnit);
+            result.putAll(stats.toMap());
+            DumperOptions options = new DumperOptions();
+            options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+            out.print(new Yaml(options).dump(result));
+        }
+        if (files != null) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
     public static void main(String[] args) {
         ECTesterStandalone app = new ECTesterStandalone();
         app.run(args);
@@ -848,21 +1672,53 @@ public class ECTesterStandalone {
      *
      */
     public static class Config {
-        private ProviderECLibrary[] libs;
+        private LibraryDescriptor[] libs;
         public ProviderECLibrary selected = null;
         public boolean color = false;
 
-        public Config(ProviderECLibrary[] libs) {
+        public Config(LibraryDescriptor[] libs) {
             this.libs = libs;
         }
 
+        /**
+         * Find the libraries matching the name, only loading those that need to be loaded.
+         * The name is first matched against the names of the descriptors, if none match,
+         * all of the libraries are loaded and the name is matched against their full names (including versions).
+         *
+         * @param libs The library descriptors.
+         * @param libraryName The (part of a) name to look for, case-insensitive, <code>null</code> matches all libraries.
+         * @return The matching libraries that could be loaded.
+         */
+        static List<ProviderECLibrary> findLibraries(LibraryDescriptor[] libs, String libraryName) {
+            List<LibraryDescriptor> candidates = new LinkedList<>();
+            if (libraryName != null) {
+                for (LibraryDescriptor desc : libs) {
+                    if (desc.matches(libraryName)) {
+                        candidates.add(desc);
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                candidates = Arrays.asList(libs);
+            }
+
+            List<ProviderECLibrary> matchedLibs = new LinkedList<>();
+            for (LibraryDescriptor desc : candidates) {
+                ProviderECLibrary lib = desc.load();
+                if (lib != null && (libraryName == null || desc.matches(libraryName) || lib.name().toLowerCase().contains(libraryName.toLowerCase()))) {
+                    matchedLibs.add(lib);
+                }
+            }
+            return matchedLibs;
+        }
+
         boolean readOptions(TreeCommandLine cli) {
             color = cli.hasOption("color");
             Colors.enabled = color;
 
             String next = cli.getNextName();
 
-            if (cli.isNext("generate") || cli.isNext("export") || cli.isNext("ecdh") || cli.isNext("ecdsa") || cli.isNext("test")) {
+            if (cli.isNext("generate") || cli.isNext("export") || cli.isNext("ecdh") || cli.isNext("ecdsa") || cli.isNext("leakage") || cli.isNext("test")) {
                 if (!cli.hasArg(-1)) {
                     System.err.println("Missing library name argument.");
                     return false;
@@ -882,15 +1738,10 @@ public class ECTesterStandalone {
                 }
             }
 
-            if (!cli.isNext("list-data") && !cli.isNext("list-suites") && !cli.isNext("list-types")) {
+            if (!cli.isNext("list-data") && !cli.isNext("list-suites") && !cli.isNext("list-types") && !cli.isNext("convert") && !cli.isNext("recover-nonces") && !cli.isNext("analyze") && !cli.isNext("test-all")) {
                 String libraryName = cli.getArg(-1);
                 if (libraryName != null) {
-                    List<ProviderECLibrary> matchedLibs = new LinkedList<>();
-                    for (ProviderECLibrary lib : libs) {
-                        if (lib.isInitialized() && lib.name().toLowerCase().contains(libraryName.toLowerCase())) {
-                            matchedLibs.add(lib);
-                        }
-                    }
+                    List<ProviderECLibrary> matchedLibs = findLibraries(libs, libraryName);
                     if (matchedLibs.size() == 0) {
                         System.err.println("No library " + libraryName + " found.");
                         return false;
@@ -903,8 +1754,55 @@ public class ECTesterStandalone {
                 }
             }
 
-            if (cli.hasOption("test.format")) {
-                String fmt = cli.getOptionValue("test.format");
+            if (cli.isNext("test") && !Arrays.asList(SUITES).contains(cli.getArg(0).toLowerCase())) {
+                System.err.println("Unknown test suite " + cli.getArg(0) + ".");
+                return false;
+            }
+
+            if (cli.isNext("test-all")) {
+                if (cli.hasOption("test-all.bits") && (cli.hasOption("test-all.named-curve") || cli.hasOption("test-all.curve-name")) || cli.hasOption("test-all.named-curve") && cli.hasOption("test-all.curve-name")) {
+                    System.err.println("You can only specify bitsize or a named curve/curve name, nor both.");
+                    return false;
+                }
+                if (cli.hasOption("test-all.suites")) {
+                    for (String suite : cli.getOptionValue("test-all.suites").toLowerCase().split(",")) {
+                        if (!Arrays.asList(SUITES).contains(suite)) {
+                            System.err.println("Unknown test suite " + suite + ".");
+                            return false;
+                        }
+                    }
+                }
+                for (String opt : new String[]{"threads", "timeout"}) {
+                    if (cli.hasOption("test-all." + opt)) {
+                        int value;
+                        try {
+                            value = Integer.parseInt(cli.getOptionValue("test-all." + opt));
+                        } catch (NumberFormatException ignored) {
+                            value = 0;
+                        }
+                        if (value < 1) {
+                            System.err.println("Invalid " + opt + ", needs to be a positive integer.");
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            if (cli.hasOption(next + ".test-threads") && (cli.isNext("test") || cli.isNext("test-all"))) {
+                int threads;
+                try {
+                    threads = Integer.parseInt(cli.getOptionValue(next + ".test-threads"));
+                } catch (NumberFormatException ignored) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.err.println("Invalid test-threads, needs to be a positive integer.");
+                    return false;
+                }
+            }
+
+            if (cli.hasOption(next + ".format") && (cli.isNext("test") || cli.isNext("test-all"))) {
+                String fmt = cli.getOptionValue(next + ".format");
                 String[] formats = new String[]{"text", "xml", "yaml", "yml"};
                 if (!Arrays.asList(formats).contains(fmt.toLowerCase())) {
                     System.err.println("Invalid format specified.");
@@ -926,7 +1824,71 @@ public class ECTesterStandalone {
                 }
             }
 
-            if (cli.isNext("generate") || cli.isNext("ecdh") || cli.isNext("ecdsa")) {
+            if ((cli.isNext("recover-nonces") || cli.isNext("analyze")) && !cli.hasOption(next + ".named-curve")) {
+                System.err.println("Need to specify the named curve the signatures were made on.");
+                return false;
+            }
+
+            if (cli.isNext("leakage")) {
+                if (!cli.hasOption("leakage.named-curve")) {
+                    System.err.println("Need to specify a named curve.");
+                    return false;
+                }
+                String operation = cli.getOptionValue("leakage.operation", "ecdh").toLowerCase();
+                if (!operation.equals("ecdh") && !operation.equals("ecdsa")) {
+                    System.err.println("Unknown operation " + operation + ".");
+                    return false;
+                }
+                for (String opt : new String[]{"amount", "time-budget", "report"}) {
+                    if (cli.hasOption("leakage." + opt)) {
+                        long value;
+                        try {
+                            value = Long.parseLong(cli.getOptionValue("leakage." + opt));
+                        } catch (NumberFormatException ignored) {
+                            value = 0;
+                        }
+                        if (value < 1) {
+                            System.err.println("Invalid " + opt + ", needs to be a positive integer.");
+                            return false;
+                        }
+                    }
+                }
+                if (cli.hasOption("leakage.threshold")) {
+                    double value;
+                    try {
+                        value = Double.parseDouble(cli.getOptionValue("leakage.threshold"));
+                    } catch (NumberFormatException ignored) {
+                        value = 0;
+                    }
+                    if (!(value > 0)) {
+                        System.err.println("Invalid threshold, needs to be a positive number.");
+                        return false;
+                    }
+                }
+            }
+
+            if (cli.isNext("analyze")) {
+                if (cli.hasOption("analyze.format") && !Arrays.asList("text", "yaml", "yml").contains(cli.getOptionValue("analyze.format").toLowerCase())) {
+                    System.err.println("Invalid format specified.");
+                    return false;
+                }
+                for (String opt : new String[]{"threads", "skip"}) {
+                    if (cli.hasOption("analyze." + opt)) {
+                        int value;
+                        try {
+                            value = Integer.parseInt(cli.getOptionValue("analyze." + opt));
+                        } catch (NumberFormatException ignored) {
+                            value = -1;
+                        }
+                        if (value < (opt.equals("skip") ? 0 : 1)) {
+                            System.err.println("Invalid " + opt + ", needs to be a " + (opt.equals("skip") ? "non-negative" : "positive") + " integer.");
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            if (cli.isNext("generate") || cli.isNext("ecdh") || cli.isNext("ecdsa") || cli.isNext("leakage") || cli.isNext("recover-nonces")) {
                 if (cli.hasOption(next + ".time-source")) {
                     String source = cli.getOptionValue(next + ".time-source");
                     if (!selected.getNativeTimingSupport().contains(source)) {
@@ -934,6 +1896,33 @@ public class ECTesterStandalone {
                         return false;
                     }
                 }
+                if (cli.hasOption(next + ".format")) {
+                    String fmt = cli.getOptionValue(next + ".format");
+                    if (!fmt.equalsIgnoreCase("csv") && !fmt.equalsIgnoreCase("binary")) {
+                        System.err.println("Invalid format specified.");
+                        return false;
+                    }
+                }
+                if (cli.hasOption(next + ".summary-format") && !Arrays.asList("text", "yaml").contains(cli.getOptionValue(next + ".summary-format").toLowerCase())) {
+                    System.err.println("Invalid summary format specified.");
+                    return false;
+                }
+                if (cli.hasOption(next + ".no-samples") && !cli.hasOption(next + ".summary")) {
+                    System.err.println("Need to specify a summary file when not outputting the samples.");
+                    return false;
+                }
+                if (cli.hasOption(next + ".threads")) {
+                    int threads;
+                    try {
+                        threads = Integer.parseInt(cli.getOptionValue(next + ".threads"));
+                    } catch (NumberFormatException ignored) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("Invalid number of threads, needs to be a positive integer.");
+                        return false;
+                    }
+                }
             }
 
             return true;
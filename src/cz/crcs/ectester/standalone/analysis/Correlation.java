@@ -0,0 +1,69 @@
+package cz.crcs.ectester.standalone.analysis;
+
+/**
+ * Running Pearson correlation coefficient of a stream of pairs, in constant memory.
+ * <p>
+ * Keeps the means, the sums of squared deviations and the co-moment, updated and merged
+ * the same way as the {@link Moments}, which avoids the cancellation of the naive sums of products
+ * on long streams of large values (like durations in nanoseconds).
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class Correlation {
+    private long count;
+    private double meanX;
+    private double meanY;
+    private double m2X;
+    private double m2Y;
+    private double coMoment;
+
+    public void add(double x, double y) {
+        count++;
+        double dx = x - meanX;
+        meanX += dx / count;
+        double dy = y - meanY;
+        meanY += dy / count;
+        m2X += dx * (x - meanX);
+        m2Y += dy * (y - meanY);
+        coMoment += dx * (y - meanY);
+    }
+
+    public void merge(Correlation other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            meanX = other.meanX;
+            meanY = other.meanY;
+            m2X = other.m2X;
+            m2Y = other.m2Y;
+            coMoment = other.coMoment;
+            return;
+        }
+        long total = count + other.count;
+        double factor = (double) count * other.count / total;
+        double dx = other.meanX - meanX;
+        double dy = other.meanY - meanY;
+        meanX += dx * other.count / total;
+        meanY += dy * other.count / total;
+        m2X += other.m2X + dx * dx * factor;
+        m2Y += other.m2Y + dy * dy * factor;
+        coMoment += other.coMoment + dx * dy * factor;
+        count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the correlation coefficient, NaN if either of the variables is constant.
+     */
+    public double get() {
+        if (m2X == 0 || m2Y == 0) {
+            return Double.NaN;
+        }
+        return coMoment / Math.sqrt(m2X * m2Y);
+    }
+}
@@ -0,0 +1,76 @@
+package cz.crcs.ectester.standalone.analysis;
+
+import cz.crcs.ectester.common.util.ECUtil;
+import cz.crcs.ectester.standalone.output.SampleReader;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.spec.ECParameterSpec;
+
+/**
+ * The columns of the sample output of the <code>ecdsa</code> command, as found in a {@link SampleReader},
+ * and the recovery of the nonces of its rows.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class EcdsaColumns {
+    public final int data;
+    public final int priv;
+    public final int signature;
+    public final int nonce;
+    public final int signTime;
+    public final String hashAlgo;
+    public final String timeUnit;
+
+    /**
+     * @param reader the reader of the sample output.
+     * @throws IOException if the output is not that of the <code>ecdsa</code> command.
+     */
+    public EcdsaColumns(SampleReader reader) throws IOException {
+        data = reader.getColumn("data");
+        priv = reader.getColumn("privS");
+        signature = reader.getColumn("signature");
+        nonce = reader.getColumn("nonce");
+        signTime = reader.getColumn("signTime");
+        if (data == -1 || priv == -1 || signature == -1 || nonce == -1) {
+            throw new IOException("Not an ecdsa sample file, missing the data, privS, signature or nonce column.");
+        }
+        String[] columns = reader.getColumns();
+        hashAlgo = bracketed(columns[signature]);
+        timeUnit = signTime == -1 ? null : bracketed(columns[signTime]);
+    }
+
+    private static String bracketed(String column) {
+        int start = column.indexOf('[');
+        int end = column.indexOf(']');
+        return start == -1 || end < start ? null : column.substring(start + 1, end);
+    }
+
+    /**
+     * @param row the sample.
+     * @return whether the sample has its nonce.
+     */
+    public boolean hasNonce(Object[] row) {
+        byte[] k = (byte[]) row[nonce];
+        return k != null && k.length != 0;
+    }
+
+    /**
+     * @param row    the sample.
+     * @param params the curve the signature was made on.
+     * @return the nonce of the sample, recovered from the signature if it is missing,
+     * <code>null</code> if it is missing and cannot be recovered.
+     */
+    public BigInteger getNonce(Object[] row, ECParameterSpec params) {
+        if (hasNonce(row)) {
+            return new BigInteger(1, (byte[]) row[nonce]);
+        }
+        byte[] d = (byte[]) row[data];
+        byte[] p = (byte[]) row[priv];
+        byte[] sig = (byte[]) row[signature];
+        if (d == null || p == null || sig == null) {
+            return null;
+        }
+        return ECUtil.recoverSignatureNonce(sig, d, new BigInteger(1, p), params, hashAlgo);
+    }
+}
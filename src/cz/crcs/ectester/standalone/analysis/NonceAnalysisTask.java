@@ -0,0 +1,59 @@
+package cz.crcs.ectester.standalone.analysis;
+
+import java.security.spec.ECParameterSpec;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recovers the nonces of a batch of <code>ecdsa</code> samples and accumulates their {@link NonceStatistics},
+ * splitting the batch in halves down to {@link #THRESHOLD} samples and merging the statistics of the halves.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+@SuppressWarnings("serial")
+public class NonceAnalysisTask extends RecursiveTask<NonceStatistics> {
+    public static final int THRESHOLD = 256;
+
+    private final List<Object[]> rows;
+    private final int from;
+    private final int to;
+    private final EcdsaColumns columns;
+    private final ECParameterSpec params;
+
+    /**
+     * @param rows    the samples.
+     * @param columns the columns of the samples.
+     * @param params  the curve the signatures were made on.
+     */
+    public NonceAnalysisTask(List<Object[]> rows, EcdsaColumns columns, ECParameterSpec params) {
+        this(rows, 0, rows.size(), columns, params);
+    }
+
+    private NonceAnalysisTask(List<Object[]> rows, int from, int to, EcdsaColumns columns, ECParameterSpec params) {
+        this.rows = rows;
+        this.from = from;
+        this.to = to;
+        this.columns = columns;
+        this.params = params;
+    }
+
+    @Override
+    protected NonceStatistics compute() {
+        if (to - from <= THRESHOLD) {
+            NonceStatistics result = new NonceStatistics(params.getOrder());
+            for (int i = from; i < to; ++i) {
+                Object[] row = rows.get(i);
+                Object time = columns.signTime == -1 ? null : row[columns.signTime];
+                result.add(columns.getNonce(row, params), time == null ? 0 : ((Number) time).longValue());
+            }
+            return result;
+        }
+        int middle = (from + to) >>> 1;
+        NonceAnalysisTask left = new NonceAnalysisTask(rows, from, middle, columns, params);
+        NonceAnalysisTask right = new NonceAnalysisTask(rows, middle, to, columns, params);
+        left.fork();
+        NonceStatistics result = right.compute();
+        result.merge(left.join());
+        return result;
+    }
+}
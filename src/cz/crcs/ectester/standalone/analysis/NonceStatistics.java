@@ -0,0 +1,252 @@
+package cz.crcs.ectester.standalone.analysis;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of ECDSA nonces and their relation to the signing time, those that the <code>plot_dsa.ipynb</code>
+ * notebook plots, but accumulated in constant memory over a stream of samples:
+ * <ul>
+ * <li>the histograms of the most and least significant byte of the nonces, with the mean time per MSB value,</li>
+ * <li>the distributions of the bit-length and the Hamming weight of the nonces, with the mean time per value,</li>
+ * <li>the correlation of the time with the bit-length, the Hamming weight and the MSB of the nonces.</li>
+ * </ul>
+ * The MSB is the top byte of a nonce padded to the bit-length of the curve order. Instances accumulated over
+ * parts of the stream can be merged.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class NonceStatistics {
+    private final BigInteger order;
+    private final int bits;
+
+    private long samples;
+    private long missing;
+    private long outOfRange;
+    private final Moments time = new Moments();
+    private final Moments[] msb = newMoments(256);
+    private final long[] lsb = new long[256];
+    private final Moments[] bitLength;
+    private final Moments[] weight;
+    private final Correlation msbCorrelation = new Correlation();
+    private final Correlation bitLengthCorrelation = new Correlation();
+    private final Correlation weightCorrelation = new Correlation();
+
+    /**
+     * @param order the order of the curve generator.
+     */
+    public NonceStatistics(BigInteger order) {
+        this.order = order;
+        this.bits = order.bitLength();
+        this.bitLength = newMoments(bits + 1);
+        this.weight = newMoments(bits + 1);
+    }
+
+    private static Moments[] newMoments(int size) {
+        Moments[] result = new Moments[size];
+        for (int i = 0; i < size; ++i) {
+            result[i] = new Moments();
+        }
+        return result;
+    }
+
+    /**
+     * @param nonce the nonce of the sample, <code>null</code> if it is not known.
+     * @param t     the signing time of the sample.
+     */
+    public void add(BigInteger nonce, long t) {
+        samples++;
+        if (nonce == null) {
+            missing++;
+            return;
+        }
+        if (nonce.signum() <= 0 || nonce.compareTo(order) >= 0) {
+            outOfRange++;
+            return;
+        }
+        time.add(t);
+
+        int top = bits >= 8 ? nonce.shiftRight(bits - 8).intValue() : nonce.intValue();
+        int length = nonce.bitLength();
+        int hw = nonce.bitCount();
+        msb[top].add(t);
+        lsb[nonce.intValue() & 0xff]++;
+        bitLength[length].add(t);
+        weight[hw].add(t);
+        msbCorrelation.add(top, t);
+        bitLengthCorrelation.add(length, t);
+        weightCorrelation.add(hw, t);
+    }
+
+    public void merge(NonceStatistics other) {
+        if (!order.equals(other.order)) {
+            throw new IllegalArgumentException("Cannot merge statistics of nonces modulo different orders.");
+        }
+        samples += other.samples;
+        missing += other.missing;
+        outOfRange += other.outOfRange;
+        time.merge(other.time);
+        for (int i = 0; i < msb.length; ++i) {
+            msb[i].merge(other.msb[i]);
+            lsb[i] += other.lsb[i];
+        }
+        for (int i = 0; i <= bits; ++i) {
+            bitLength[i].merge(other.bitLength[i]);
+            weight[i].merge(other.weight[i]);
+        }
+        msbCorrelation.merge(other.msbCorrelation);
+        bitLengthCorrelation.merge(other.bitLengthCorrelation);
+        weightCorrelation.merge(other.weightCorrelation);
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of samples whose nonce was missing and could not be recovered.
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the number of samples whose nonce is not in [1, n - 1].
+     */
+    public long getOutOfRange() {
+        return outOfRange;
+    }
+
+    /**
+     * @return the number of samples whose nonce was analyzed.
+     */
+    public long getNonces() {
+        return time.getCount();
+    }
+
+    /**
+     * @return the chi-squared statistic of the LSB histogram against the uniform distribution, with 255 degrees of freedom.
+     */
+    public double getLsbChiSquared() {
+        double expected = getNonces() / 256.0;
+        double result = 0;
+        for (long count : lsb) {
+            result += (count - expected) * (count - expected) / expected;
+        }
+        return result;
+    }
+
+    /**
+     * @return the fraction of uniformly random nonces that have the given bit-length.
+     */
+    private double expectedBitLength(int length) {
+        BigInteger lowest = BigInteger.ONE.shiftLeft(length - 1);
+        BigInteger count = length < bits ? lowest : order.subtract(lowest);
+        return new BigDecimal(count).divide(new BigDecimal(order.subtract(BigInteger.ONE)), MathContext.DECIMAL64).doubleValue();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("samples", samples);
+        result.put("nonces", getNonces());
+        result.put("missing", missing);
+        result.put("out_of_range", outOfRange);
+        result.put("order_bits", bits);
+
+        Map<String, Object> t = new LinkedHashMap<>();
+        t.put("mean", time.getMean());
+        t.put("stddev", time.getStdDev());
+        t.put("min", time.getMin());
+        t.put("max", time.getMax());
+        result.put("time", t);
+
+        Map<String, Object> correlation = new LinkedHashMap<>();
+        correlation.put("msb", msbCorrelation.get());
+        correlation.put("bit_length", bitLengthCorrelation.get());
+        correlation.put("hamming_weight", weightCorrelation.get());
+        result.put("time_correlation", correlation);
+        result.put("lsb_chi_squared", getLsbChiSquared());
+
+        List<Map<String, Object>> lengths = new ArrayList<>();
+        for (int i = bits; i > 0; --i) {
+            if (bitLength[i].getCount() != 0) {
+                Map<String, Object> row = bucket(i, bitLength[i]);
+                row.put("expected", expectedBitLength(i));
+                lengths.add(row);
+            }
+        }
+        result.put("bit_length", lengths);
+
+        List<Map<String, Object>> weights = new ArrayList<>();
+        for (int i = 0; i <= bits; ++i) {
+            if (weight[i].getCount() != 0) {
+                weights.add(bucket(i, weight[i]));
+            }
+        }
+        result.put("hamming_weight", weights);
+
+        List<Map<String, Object>> msbs = new ArrayList<>();
+        for (int i = 0; i < msb.length; ++i) {
+            if (msb[i].getCount() != 0) {
+                msbs.add(bucket(i, msb[i]));
+            }
+        }
+        result.put("msb", msbs);
+
+        List<Long> lsbs = new ArrayList<>();
+        for (long count : lsb) {
+            lsbs.add(count);
+        }
+        result.put("lsb", lsbs);
+        return result;
+    }
+
+    private Map<String, Object> bucket(int value, Moments moments) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("value", value);
+        row.put("count", moments.getCount());
+        row.put("fraction", (double) moments.getCount() / getNonces());
+        row.put("mean_time", moments.getMean());
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("samples: %d, nonces: %d, missing: %d, out of range: %d%n", samples, getNonces(), missing, outOfRange));
+        sb.append(String.format("time: mean %.1f, stddev %.1f, min %d, max %d%n", time.getMean(), time.getStdDev(), time.getMin(), time.getMax()));
+        sb.append(String.format("correlation of time with nonce: MSB %.4f, bit-length %.4f, Hamming weight %.4f%n",
+                msbCorrelation.get(), bitLengthCorrelation.get(), weightCorrelation.get()));
+        sb.append(String.format("LSB chi-squared: %.1f (255 degrees of freedom)%n", getLsbChiSquared()));
+
+        sb.append(String.format("%nbit-length  count        fraction  expected  mean time%n"));
+        for (int i = bits; i > 0; --i) {
+            if (bitLength[i].getCount() != 0) {
+                sb.append(String.format("%10d  %-11d  %-8.6f  %-8.6f  %.1f%n", i, bitLength[i].getCount(),
+                        (double) bitLength[i].getCount() / getNonces(), expectedBitLength(i), bitLength[i].getMean()));
+            }
+        }
+
+        sb.append(String.format("%nHamming weight  count        fraction  mean time%n"));
+        for (int i = 0; i <= bits; ++i) {
+            if (weight[i].getCount() != 0) {
+                sb.append(String.format("%14d  %-11d  %-8.6f  %.1f%n", i, weight[i].getCount(),
+                        (double) weight[i].getCount() / getNonces(), weight[i].getMean()));
+            }
+        }
+
+        sb.append(String.format("%nMSB   count        fraction  mean time%n"));
+        for (int i = 0; i < msb.length; ++i) {
+            if (msb[i].getCount() != 0) {
+                sb.append(String.format("0x%02x  %-11d  %-8.6f  %.1f%n", i, msb[i].getCount(),
+                        (double) msb[i].getCount() / getNonces(), msb[i].getMean()));
+            }
+        }
+        return sb.toString();
+    }
+}
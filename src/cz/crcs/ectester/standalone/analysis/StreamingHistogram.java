@@ -0,0 +1,95 @@
+package cz.crcs.ectester.standalone.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Histogram of non-negative integer values (like durations) with log-linear buckets, in constant memory.
+ * <p>
+ * Values below 2<sup>{@link #SUB_BITS}</sup> get a bucket each, larger values are bucketed by their
+ * most significant {@link #SUB_BITS} + 1 bits, so every power of two range is split into 2<sup>{@link #SUB_BITS}</sup>
+ * buckets and the relative width of a bucket is at most 2<sup>-{@link #SUB_BITS}</sup>. Percentiles are thus
+ * approximate, within the width of the bucket they fall into. Negative values are counted as zero.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class StreamingHistogram {
+    public static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final long[] counts = new long[SUB * (64 - SUB_BITS)];
+    private long total;
+
+    private static int index(long value) {
+        if (value < SUB) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return SUB + (exponent - SUB_BITS) * SUB + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB) {
+            return index;
+        }
+        int exponent = (index - SUB) / SUB + SUB_BITS;
+        int sub = (index - SUB) % SUB;
+        return (1L << exponent) | ((long) sub << (exponent - SUB_BITS));
+    }
+
+    private static long width(int index) {
+        if (index < SUB) {
+            return 1;
+        }
+        return 1L << ((index - SUB) / SUB);
+    }
+
+    public void add(long value) {
+        counts[index(value)]++;
+        total++;
+    }
+
+    public void merge(StreamingHistogram other) {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * @param p the percentile, between 0 and 1.
+     * @return the middle of the bucket of the nearest-rank percentile, -1 if the histogram is empty.
+     */
+    public long getPercentile(double p) {
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max((long) Math.ceil(p * total), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowerBound(i) + (width(i) - 1) / 2;
+            }
+        }
+        return lowerBound(counts.length - 1);
+    }
+
+    /**
+     * @return the non-empty buckets, as pairs of their lower bound and count.
+     */
+    public List<long[]> getBuckets() {
+        List<long[]> result = new ArrayList<>();
+        for (int i = 0; i < counts.length; ++i) {
+            if (counts[i] != 0) {
+                result.add(new long[]{lowerBound(i), counts[i]});
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+package cz.crcs.ectester.standalone.analysis;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Summary of the durations of an operation with a private key, overall and bucketed by the bit-length
+ * and the Hamming weight of the key, those that the <code>plot_dh.ipynb</code> and <code>plot_gen.ipynb</code>
+ * notebooks plot, but accumulated in constant memory over a stream of samples.
+ * <p>
+ * Every bucket keeps the running moments and a {@link StreamingHistogram} of the durations, along with
+ * the correlation of the duration with the bit-length and the Hamming weight. Instances accumulated over
+ * parts of the stream (e.g. by different threads) can be merged.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class TimingSummary {
+    private static final double[] PERCENTILES = new double[]{0.5, 0.9, 0.99};
+
+    private final Bucket all = new Bucket();
+    private final Map<Integer, Bucket> bitLength = new TreeMap<>(Comparator.reverseOrder());
+    private final Map<Integer, Bucket> weight = new TreeMap<>();
+    private final Correlation bitLengthCorrelation = new Correlation();
+    private final Correlation weightCorrelation = new Correlation();
+
+    /**
+     * The durations in one bucket.
+     */
+    private static class Bucket {
+        final Moments moments = new Moments();
+        final StreamingHistogram histogram = new StreamingHistogram();
+
+        void add(long time) {
+            moments.add(time);
+            histogram.add(time);
+        }
+
+        void merge(Bucket other) {
+            moments.merge(other.moments);
+            histogram.merge(other.histogram);
+        }
+
+        /**
+         * The approximate percentile from the histogram, clamped to the exact minimum and maximum.
+         */
+        long percentile(double p) {
+            return Math.min(Math.max(histogram.getPercentile(p), moments.getMin()), moments.getMax());
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", moments.getCount());
+            result.put("mean", moments.getMean());
+            result.put("stddev", moments.getStdDev());
+            result.put("min", moments.getMin());
+            for (double p : PERCENTILES) {
+                result.put(String.format("p%d", Math.round(p * 100)), percentile(p));
+            }
+            result.put("max", moments.getMax());
+            return result;
+        }
+
+        String toRow() {
+            StringBuilder sb = new StringBuilder(String.format("%-11d  %-12.1f  %-12.1f  %-10d", moments.getCount(), moments.getMean(), moments.getStdDev(), moments.getMin()));
+            for (double p : PERCENTILES) {
+                sb.append(String.format("  %-10d", percentile(p)));
+            }
+            sb.append(String.format("  %d", moments.getMax()));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * @param key  the private key used in the operation.
+     * @param time the duration of the operation.
+     */
+    public void add(BigInteger key, long time) {
+        int length = key.bitLength();
+        int hw = key.bitCount();
+        all.add(time);
+        bitLength.computeIfAbsent(length, (k) -> new Bucket()).add(time);
+        weight.computeIfAbsent(hw, (k) -> new Bucket()).add(time);
+        bitLengthCorrelation.add(length, time);
+        weightCorrelation.add(hw, time);
+    }
+
+    public void merge(TimingSummary other) {
+        all.merge(other.all);
+        for (Map.Entry<Integer, Bucket> e : other.bitLength.entrySet()) {
+            bitLength.computeIfAbsent(e.getKey(), (k) -> new Bucket()).merge(e.getValue());
+        }
+        for (Map.Entry<Integer, Bucket> e : other.weight.entrySet()) {
+            weight.computeIfAbsent(e.getKey(), (k) -> new Bucket()).merge(e.getValue());
+        }
+        bitLengthCorrelation.merge(other.bitLengthCorrelation);
+        weightCorrelation.merge(other.weightCorrelation);
+    }
+
+    public long getCount() {
+        return all.moments.getCount();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("time", all.toMap());
+        Map<String, Object> correlation = new LinkedHashMap<>();
+        correlation.put("bit_length", bitLengthCorrelation.get());
+        correlation.put("hamming_weight", weightCorrelation.get());
+        result.put("time_correlation", correlation);
+        result.put("bit_length", buckets(bitLength));
+        result.put("hamming_weight", buckets(weight));
+
+        List<List<Long>> histogram = new ArrayList<>();
+        for (long[] bucket : all.histogram.getBuckets()) {
+            histogram.add(Arrays.asList(bucket[0], bucket[1]));
+        }
+        result.put("histogram", histogram);
+        return result;
+    }
+
+    private static List<Map<String, Object>> buckets(Map<Integer, Bucket> buckets) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<Integer, Bucket> e : buckets.entrySet()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("value", e.getKey());
+            row.putAll(e.getValue().toMap());
+            result.add(row);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        String header = String.format("count        mean          stddev        min         p50         p90         p99         max%n");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("            %s", header));
+        sb.append(String.format("all         %s%n", all.toRow()));
+        sb.append(String.format("correlation of time with key: bit-length %.4f, Hamming weight %.4f%n",
+                bitLengthCorrelation.get(), weightCorrelation.get()));
+
+        sb.append(String.format("%nbit-length  %s", header));
+        for (Map.Entry<Integer, Bucket> e : bitLength.entrySet()) {
+            sb.append(String.format("%10d  %s%n", e.getKey(), e.getValue().toRow()));
+        }
+        sb.append(String.format("%nHamming weight  %s", header));
+        for (Map.Entry<Integer, Bucket> e : weight.entrySet()) {
+            sb.append(String.format("%14d  %s%n", e.getKey(), e.getValue().toRow()));
+        }
+        return sb.toString();
+    }
+}
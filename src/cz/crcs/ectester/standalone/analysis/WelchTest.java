@@ -0,0 +1,40 @@
+package cz.crcs.ectester.standalone.analysis;
+
+/**
+ * Running Welch's t-test of two classes of measurements, in constant memory, as in dudect
+ * (Reparaz, Balasch, Verbauwhede: Dude, is my code constant time?).
+ * <p>
+ * A large absolute value of the statistic means that the two classes have different means,
+ * e.g. that the duration of an operation depends on which class its input is from.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class WelchTest {
+    private final Moments[] classes = new Moments[]{new Moments(), new Moments()};
+
+    /**
+     * @param cls   the class of the measurement, 0 or 1.
+     * @param value the measurement.
+     */
+    public void add(int cls, long value) {
+        classes[cls].add(value);
+    }
+
+    public Moments get(int cls) {
+        return classes[cls];
+    }
+
+    public long getCount() {
+        return classes[0].getCount() + classes[1].getCount();
+    }
+
+    /**
+     * @return the t statistic, NaN if either class has less than two measurements or both are constant.
+     */
+    public double getT() {
+        Moments a = classes[0];
+        Moments b = classes[1];
+        double error = Math.sqrt(a.getVariance() / a.getCount() + b.getVariance() / b.getCount());
+        return (a.getMean() - b.getMean()) / error;
+    }
+}
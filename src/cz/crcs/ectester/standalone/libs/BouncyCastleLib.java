@@ -25,4 +25,9 @@ public class BouncyCastleLib extends ProviderECLibrary {
         }
         return result;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
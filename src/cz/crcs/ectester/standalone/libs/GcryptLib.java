@@ -17,4 +17,9 @@ public class GcryptLib extends NativeECLibrary {
 
     @Override
     public native Set<String> getCurves();
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
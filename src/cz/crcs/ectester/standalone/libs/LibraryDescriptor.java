@@ -0,0 +1,86 @@
+package cz.crcs.ectester.standalone.libs;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Describes a library by a name known without loading it, so that it can be constructed
+ * and initialized only if it is actually used.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class LibraryDescriptor {
+    private final String name;
+    private final Class<? extends ProviderECLibrary> libClass;
+    private ProviderECLibrary library;
+    private boolean loaded = false;
+
+    public LibraryDescriptor(String name, Class<? extends ProviderECLibrary> libClass) {
+        this.name = name;
+        this.libClass = libClass;
+    }
+
+    /**
+     * @return Fresh descriptors of all the libraries ECTester knows about, none of them loaded.
+     */
+    public static LibraryDescriptor[] all() {
+        return new LibraryDescriptor[]{new LibraryDescriptor("SunEC", SunECLib.class),
+                new LibraryDescriptor("BouncyCastle", BouncyCastleLib.class),
+                new LibraryDescriptor("libtomcrypt", TomcryptLib.class),
+                new LibraryDescriptor("Botan", BotanLib.class),
+                new LibraryDescriptor("Crypto++", CryptoppLib.class),
+                new LibraryDescriptor("OpenSSL", OpensslLib.class),
+                new LibraryDescriptor("BoringSSL", BoringsslLib.class),
+                new LibraryDescriptor("libgcrypt", GcryptLib.class),
+                new LibraryDescriptor("Microsoft CNG", MscngLib.class),
+                new LibraryDescriptor("wolfCrypt", WolfCryptLib.class),
+                new LibraryDescriptor("mbedTLS", MbedTLSLib.class),
+                new LibraryDescriptor("IPP-Crypto", IppcpLib.class),
+                new LibraryDescriptor("MatrixSSL", MatrixsslLib.class),
+                new LibraryDescriptor("Nettle", NettleLib.class),
+                new LibraryDescriptor("LibreSSL", LibresslLib.class)};
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param query The (part of a) library name, case-insensitive.
+     * @return Whether the name of this descriptor contains the query.
+     */
+    public boolean matches(String query) {
+        return name.toLowerCase().contains(query.toLowerCase());
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Construct and initialize the library, if that was not yet done.
+     *
+     * @return The initialized library, or <code>null</code> if it could not be loaded.
+     */
+    public synchronized ProviderECLibrary load() {
+        if (!loaded) {
+            loaded = true;
+            try {
+                library = libClass.getDeclaredConstructor().newInstance();
+                library.initialize();
+            } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
+                     InvocationTargetException ignored) {
+            } catch (Exception ex) {
+                System.err.println(ex.getMessage());
+            }
+        }
+        if (library == null || !library.isInitialized()) {
+            return null;
+        }
+        return library;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -16,4 +16,9 @@ public class LibresslLib extends NativeECLibrary {
 
     @Override
     public native Set<String> getCurves();
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -15,6 +15,7 @@ import java.util.Set;
 public abstract class NativeECLibrary extends ProviderECLibrary {
     private String resource;
     private String[] requriements;
+    private static boolean timingLoaded = false;
 
 
     public NativeECLibrary(String resource, String... requirements) {
@@ -22,9 +23,28 @@ public abstract class NativeECLibrary extends ProviderECLibrary {
         this.requriements = requirements;
     }
 
+    /**
+     * Load the native timing library, which the shims use, once.
+     */
+    private static synchronized void loadTiming() throws IOException {
+        if (timingLoaded) {
+            return;
+        }
+        Path reqs = FileUtil.getRequirementsDir();
+        reqs.toFile().mkdirs();
+
+        if (!System.getProperty("os.name").startsWith("Windows")) {
+            FileUtil.writeNewer(ECTesterStandalone.LIB_RESOURCE_DIR + "lib_timing.so", reqs.resolve("lib_timing.so"));
+            System.load(reqs.resolve("lib_timing.so").toString());
+        }
+        timingLoaded = true;
+    }
+
     @Override
     public boolean initialize() {
         try {
+            loadTiming();
+
             /* Determine what OS are we running on and use appropriate suffix and path. */
             String suffix = FileUtil.getLibSuffix();
 
@@ -74,6 +94,9 @@ public abstract class NativeECLibrary extends ProviderECLibrary {
     @Override
     public native String getNativeTimingUnit();
 
+    /**
+     * @return The duration of the last natively timed operation performed by the calling thread.
+     */
     @Override
     public native long getLastNativeTiming();
 
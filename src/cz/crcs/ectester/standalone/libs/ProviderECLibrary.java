@@ -62,6 +62,14 @@ public abstract class ProviderECLibrary implements ECLibrary {
         return results;
     }
 
+    /**
+     * @return whether the library can be used from multiple threads at once, with separate objects per thread,
+     * only then are the sub-tests of a suite run in parallel.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     public Set<String> getNativeTimingSupport() {
         return new HashSet<>();
     }
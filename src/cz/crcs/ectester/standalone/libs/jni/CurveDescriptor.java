@@ -0,0 +1,130 @@
+package cz.crcs.ectester.standalone.libs.jni;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.spec.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact serialization of curve domain parameters, passed to the native shims in a direct
+ * {@link ByteBuffer}, so that they can read the parameters without calling back into the JVM.
+ * <p>
+ * The layout (all values big-endian) is:
+ * <ul>
+ * <li>1 byte field type, {@link #FIELD_FP} or {@link #FIELD_F2M},</li>
+ * <li>the field (p, or the reduction polynomial), a, b, G<sub>x</sub>, G<sub>y</sub> and n, each as a 2 byte length
+ * followed by the unsigned magnitude,</li>
+ * <li>4 byte cofactor.</li>
+ * </ul>
+ * The descriptors are memoized by the contents of the {@link ECParameterSpec}, as the keys of the native libraries
+ * carry a new instance with the same parameters for every generated key. They must not be modified.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public final class CurveDescriptor {
+    public static final byte FIELD_FP = 1;
+    public static final byte FIELD_F2M = 2;
+
+    private static final int CACHE_SIZE = 64;
+    private static final Map<List<Object>, ByteBuffer> CACHE = new ConcurrentHashMap<>();
+    private static volatile Memo last;
+
+    private static final class Memo {
+        final ECParameterSpec params;
+        final ByteBuffer descriptor;
+
+        Memo(ECParameterSpec params, ByteBuffer descriptor) {
+            this.params = params;
+            this.descriptor = descriptor;
+        }
+    }
+
+    private CurveDescriptor() {
+    }
+
+    /**
+     * @param params The parameters to describe.
+     * @return The (memoized) descriptor of the parameters, or <code>null</code> if they are not an {@link ECParameterSpec}.
+     */
+    public static ByteBuffer of(AlgorithmParameterSpec params) {
+        if (!(params instanceof ECParameterSpec)) {
+            return null;
+        }
+        return of((ECParameterSpec) params);
+    }
+
+    /**
+     * @param params The parameters to describe.
+     * @return The (memoized) descriptor of the parameters.
+     */
+    public static ByteBuffer of(ECParameterSpec params) {
+        Memo memo = last;
+        if (memo != null && memo.params == params) {
+            return memo.descriptor;
+        }
+        // EllipticCurve and ECPoint compare by value, unlike ECParameterSpec.
+        List<Object> key = Arrays.asList(params.getCurve(), params.getGenerator(), params.getOrder(), params.getCofactor());
+        ByteBuffer result = CACHE.get(key);
+        if (result == null) {
+            result = serialize(params);
+            if (CACHE.size() >= CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(key, result);
+        }
+        last = new Memo(params, result);
+        return result;
+    }
+
+    /**
+     * @param params The parameters to describe.
+     * @return A new descriptor of the parameters.
+     */
+    public static ByteBuffer serialize(ECParameterSpec params) {
+        EllipticCurve curve = params.getCurve();
+        ECField field = curve.getField();
+        byte fieldType;
+        BigInteger fieldValue;
+        if (field instanceof ECFieldFp) {
+            fieldType = FIELD_FP;
+            fieldValue = ((ECFieldFp) field).getP();
+        } else if (field instanceof ECFieldF2m) {
+            fieldType = FIELD_F2M;
+            fieldValue = ((ECFieldF2m) field).getReductionPolynomial();
+        } else {
+            throw new IllegalArgumentException("Unknown field type " + field.getClass().getName() + ".");
+        }
+
+        byte[][] values = new byte[][]{magnitude(fieldValue), magnitude(curve.getA()), magnitude(curve.getB()),
+                magnitude(params.getGenerator().getAffineX()), magnitude(params.getGenerator().getAffineY()),
+                magnitude(params.getOrder())};
+        int length = 1 + 4;
+        for (byte[] value : values) {
+            length += 2 + value.length;
+        }
+
+        ByteBuffer result = ByteBuffer.allocateDirect(length);
+        result.put(fieldType);
+        for (byte[] value : values) {
+            result.putShort((short) value.length);
+            result.put(value);
+        }
+        result.putInt(params.getCofactor());
+        result.flip();
+        return result;
+    }
+
+    private static byte[] magnitude(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("Value too large.");
+        }
+        return bytes;
+    }
+}
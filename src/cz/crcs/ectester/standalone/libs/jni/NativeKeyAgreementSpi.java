@@ -5,6 +5,7 @@ import cz.crcs.ectester.common.util.ECUtil;
 import javax.crypto.KeyAgreementSpi;
 import javax.crypto.SecretKey;
 import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
@@ -28,6 +29,7 @@ public abstract class NativeKeyAgreementSpi extends KeyAgreementSpi {
                     ("Key must be instance of ECPrivateKey");
         }
         privateKey = (ECPrivateKey) key;
+        publicKey = null;
         this.params = privateKey.getParams();
     }
 
@@ -223,10 +225,18 @@ public abstract class NativeKeyAgreementSpi extends KeyAgreementSpi {
         }
 
         @Override
-        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params);
+        byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm);
+        SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params), algorithm);
+        }
+
+        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve, String algorithm);
     }
 
     public static class OpensslECDH extends Openssl {
@@ -243,10 +253,18 @@ public abstract class NativeKeyAgreementSpi extends KeyAgreementSpi {
         }
 
         @Override
-        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params);
+        byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm);
+        SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params), algorithm);
+        }
+
+        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve, String algorithm);
     }
 
     public static class BoringsslECDH extends Boringssl {
@@ -382,10 +400,18 @@ public abstract class NativeKeyAgreementSpi extends KeyAgreementSpi {
         }
         
         @Override
-        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params);
+        byte[] generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm);
+        SecretKey generateSecret(byte[] pubkey, byte[] privkey, ECParameterSpec params, String algorithm) {
+            return generateSecret(pubkey, privkey, CurveDescriptor.of(params), algorithm);
+        }
+
+        native SecretKey generateSecret(byte[] pubkey, byte[] privkey, ByteBuffer curve, String algorithm);
     }
 
     public abstract static class Nettle extends SimpleKeyAgreementSpi {
@@ -3,6 +3,7 @@ package cz.crcs.ectester.standalone.libs.jni;
 import cz.crcs.ectester.common.ec.EC_Curve;
 import cz.crcs.ectester.data.EC_Store;
 
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.AlgorithmParameters;
@@ -179,13 +180,21 @@ public abstract class NativeKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
         native boolean keysizeSupported(int keysize);
 
         @Override
-        native boolean paramsSupported(AlgorithmParameterSpec params);
+        boolean paramsSupported(AlgorithmParameterSpec params) {
+            return paramsSupported(params, CurveDescriptor.of(params));
+        }
+
+        native boolean paramsSupported(AlgorithmParameterSpec params, ByteBuffer curve);
 
         @Override
         native KeyPair generate(int keysize, SecureRandom random);
 
         @Override
-        native KeyPair generate(AlgorithmParameterSpec params, SecureRandom random);
+        KeyPair generate(AlgorithmParameterSpec params, SecureRandom random) {
+            return generate(params, CurveDescriptor.of(params), random);
+        }
+
+        native KeyPair generate(AlgorithmParameterSpec params, ByteBuffer curve, SecureRandom random);
     }
 
     public static class Boringssl extends NativeKeyPairGeneratorSpi {
@@ -197,13 +206,21 @@ public abstract class NativeKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
         native boolean keysizeSupported(int keysize);
 
         @Override
-        native boolean paramsSupported(AlgorithmParameterSpec params);
+        boolean paramsSupported(AlgorithmParameterSpec params) {
+            return paramsSupported(params, CurveDescriptor.of(params));
+        }
+
+        native boolean paramsSupported(AlgorithmParameterSpec params, ByteBuffer curve);
 
         @Override
         native KeyPair generate(int keysize, SecureRandom random);
 
         @Override
-        native KeyPair generate(AlgorithmParameterSpec params, SecureRandom random);
+        KeyPair generate(AlgorithmParameterSpec params, SecureRandom random) {
+            return generate(params, CurveDescriptor.of(params), random);
+        }
+
+        native KeyPair generate(AlgorithmParameterSpec params, ByteBuffer curve, SecureRandom random);
     }
 
     public static class Gcrypt extends NativeKeyPairGeneratorSpi {
@@ -325,13 +342,21 @@ public abstract class NativeKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
         native boolean keysizeSupported(int keysize);
 
         @Override
-        native boolean paramsSupported(AlgorithmParameterSpec params);
+        boolean paramsSupported(AlgorithmParameterSpec params) {
+            return paramsSupported(params, CurveDescriptor.of(params));
+        }
+
+        native boolean paramsSupported(AlgorithmParameterSpec params, ByteBuffer curve);
 
         @Override
         native KeyPair generate(int keysize, SecureRandom random);
 
         @Override
-        native KeyPair generate(AlgorithmParameterSpec params, SecureRandom random);
+        KeyPair generate(AlgorithmParameterSpec params, SecureRandom random) {
+            return generate(params, CurveDescriptor.of(params), random);
+        }
+
+        native KeyPair generate(AlgorithmParameterSpec params, ByteBuffer curve, SecureRandom random);
     }
 
     public static class Nettle extends NativeKeyPairGeneratorSpi {
@@ -9,6 +9,11 @@ import java.security.Provider;
  */
 @SuppressWarnings("serial")
 public abstract class NativeProvider extends Provider {
+    /**
+     * Maximum amount of prepared curves kept in the native curve cache of the shims that have one,
+     * read directly by the native code, capped at 64.
+     */
+    private static volatile int curveCacheSize = 16;
 
     public NativeProvider(String name, double version, String info) {
         super(name, version, info);
@@ -25,6 +30,20 @@ public abstract class NativeProvider extends Provider {
 
     abstract void setup();
 
+    /**
+     * Set the size of the native curve cache, used by the OpenSSL, BoringSSL and LibreSSL shims to
+     * reuse prepared curves (EC_GROUPs) across operations on the same domain parameters.
+     *
+     * @param size the maximum amount of cached curves, 0 disables the cache (e.g. to test the curve setup itself)
+     */
+    public static void setCurveCacheSize(int size) {
+        curveCacheSize = Math.max(size, 0);
+    }
+
+    public static int getCurveCacheSize() {
+        return curveCacheSize;
+    }
+
     @SuppressWarnings("serial")
     public static class TomCrypt extends NativeProvider {
 
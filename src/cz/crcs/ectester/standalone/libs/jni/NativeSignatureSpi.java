@@ -3,6 +3,7 @@ package cz.crcs.ectester.standalone.libs.jni;
 import cz.crcs.ectester.common.util.ECUtil;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
@@ -317,10 +318,18 @@ public abstract class NativeSignatureSpi extends SignatureSpi {
         }
 
         @Override
-        native byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params);
+        byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params) {
+            return sign(data, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] sign(byte[] data, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params);
+        boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params) {
+            return verify(signature, data, pubkey, CurveDescriptor.of(params));
+        }
+
+        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ByteBuffer curve);
     }
 
     public static class OpensslECDSAwithNONE extends Openssl {
@@ -338,10 +347,18 @@ public abstract class NativeSignatureSpi extends SignatureSpi {
         }
 
         @Override
-        native byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params);
+        byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params) {
+            return sign(data, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] sign(byte[] data, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params);
+        boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params) {
+            return verify(signature, data, pubkey, CurveDescriptor.of(params));
+        }
+
+        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ByteBuffer curve);
     }
 
     public static class BoringsslECDSAwithNONE extends Boringssl {
@@ -492,10 +509,18 @@ public abstract class NativeSignatureSpi extends SignatureSpi {
         }
 
         @Override
-        native byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params);
+        byte[] sign(byte[] data, byte[] privkey, ECParameterSpec params) {
+            return sign(data, privkey, CurveDescriptor.of(params));
+        }
+
+        native byte[] sign(byte[] data, byte[] privkey, ByteBuffer curve);
 
         @Override
-        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params);
+        boolean verify(byte[] signature, byte[] data, byte[] pubkey, ECParameterSpec params) {
+            return verify(signature, data, pubkey, CurveDescriptor.of(params));
+        }
+
+        native boolean verify(byte[] signature, byte[] data, byte[] pubkey, ByteBuffer curve);
     }
 
     public static class LibresslECDSAwithNONE extends Libressl {
@@ -1,14 +1,26 @@
 #include "c_timing.h"
 
+/*
+ * The timing state (start, end and partial measurements) is kept per thread, so that
+ * concurrently running native operations do not overwrite each others measurements and
+ * native_timing_last() returns the duration of the calling thread's last operation.
+ * The selected timing source is shared by all threads.
+ */
+#if defined(_MSC_VER)
+#define THREAD_LOCAL __declspec(thread)
+#else
+#define THREAD_LOCAL __thread
+#endif
+
 #if __linux || __posix
 
 #include <unistd.h>
 #include <time.h>
 #include <string.h>
 
-static unsigned long long tsc_start = 0;
-static unsigned long long tsc_end = 0;
-static unsigned long long tsc_partial = 0;
+static THREAD_LOCAL unsigned long long tsc_start = 0;
+static THREAD_LOCAL unsigned long long tsc_end = 0;
+static THREAD_LOCAL unsigned long long tsc_partial = 0;
 static const char *rdtsc_unit = "instr";
 
 static inline unsigned long long rdtsc(void) {
@@ -48,9 +60,9 @@ static jlong rdtsc_timing_last() {
     }
 }
 
-static struct timespec start = {0};
-static struct timespec end = {0};
-static jlong partial = 0;
+static THREAD_LOCAL struct timespec start = {0};
+static THREAD_LOCAL struct timespec end = {0};
+static THREAD_LOCAL jlong partial = 0;
 static clockid_t clk_id = CLOCK_MONOTONIC_RAW;
 static const char *clock_unit = "nano";
 
@@ -187,9 +199,9 @@ jlong native_timing_last() {
 #include <Windows.h>
 #error TODO
 
-static LARGE_INTEGER start = {0};
-static LARGE_INTEGER end = {0};
-static jlong partial = 0;
+static THREAD_LOCAL LARGE_INTEGER start = {0};
+static THREAD_LOCAL LARGE_INTEGER end = {0};
+static THREAD_LOCAL jlong partial = 0;
 
 jboolean native_timing_supported() {
     return JNI_TRUE;
@@ -33,7 +33,7 @@ __attribute__((visibility("default"))) void native_timing_restart();
 __attribute__((visibility("default"))) void native_timing_stop();
 
 /**
- *
+ * The duration of the last operation timed by the calling thread.
  */
 __attribute__((visibility("default"))) jlong native_timing_last();
 
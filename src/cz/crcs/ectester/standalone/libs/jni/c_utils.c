@@ -5,6 +5,8 @@
 
 #if defined(__WIN32__) || defined(_MSC_VER)
 #include <windows.h>
+#else
+#include <pthread.h>
 #endif
 
 jclass ec_parameter_spec_class;
@@ -20,6 +22,9 @@ jclass point_class;
 jclass biginteger_class;
 jclass illegal_state_exception_class;
 
+static jclass native_provider_class;
+static jfieldID curve_cache_size_field;
+
 void init_classes(JNIEnv *env, const char* lib_name) {
     jclass local_ec_parameter_spec_class = (*env)->FindClass(env, "java/security/spec/ECParameterSpec");
     ec_parameter_spec_class = (*env)->NewGlobalRef(env, local_ec_parameter_spec_class);
@@ -68,6 +73,10 @@ void init_classes(JNIEnv *env, const char* lib_name) {
 
     jclass local_illegal_state_exception_class = (*env)->FindClass(env, "java/lang/IllegalStateException");
     illegal_state_exception_class = (*env)->NewGlobalRef(env, local_illegal_state_exception_class);
+
+    jclass local_native_provider_class = (*env)->FindClass(env, "cz/crcs/ectester/standalone/libs/jni/NativeProvider");
+    native_provider_class = (*env)->NewGlobalRef(env, local_native_provider_class);
+    curve_cache_size_field = (*env)->GetStaticFieldID(env, native_provider_class, "curveCacheSize", "I");
 }
 
 void throw_new(JNIEnv *env, const char *class, const char *message) {
@@ -249,4 +258,148 @@ char *biginteger_to_hex(JNIEnv *env, jobject big, jint bytes) {
         }
         return strncpy(result + diff*2, raw_string, 2*bytes);
     }
-}
\ No newline at end of file
+}
+
+static bool curve_desc_value_read(const unsigned char **pos, const unsigned char *end, curve_desc_value *value) {
+    if (end - *pos < 2) {
+        return false;
+    }
+    size_t len = ((size_t) (*pos)[0] << 8) | (*pos)[1];
+    *pos += 2;
+    if ((size_t) (end - *pos) < len) {
+        return false;
+    }
+    value->data = *pos;
+    value->len = len;
+    *pos += len;
+    return true;
+}
+
+bool curve_desc_read(JNIEnv *env, jobject buffer, curve_desc *desc) {
+    const unsigned char *data = buffer ? (const unsigned char *) (*env)->GetDirectBufferAddress(env, buffer) : NULL;
+    jlong len = buffer ? (*env)->GetDirectBufferCapacity(env, buffer) : -1;
+    if (!data || len < 1) {
+        throw_new(env, "java/security/InvalidAlgorithmParameterException", "Invalid curve descriptor.");
+        return false;
+    }
+    const unsigned char *pos = data;
+    const unsigned char *end = data + len;
+    desc->data = data;
+    desc->len = (size_t) len;
+    desc->field_type = (jbyte) *pos++;
+    if ((desc->field_type != CURVE_DESC_FP && desc->field_type != CURVE_DESC_F2M) ||
+        !curve_desc_value_read(&pos, end, &desc->field) ||
+        !curve_desc_value_read(&pos, end, &desc->a) ||
+        !curve_desc_value_read(&pos, end, &desc->b) ||
+        !curve_desc_value_read(&pos, end, &desc->gx) ||
+        !curve_desc_value_read(&pos, end, &desc->gy) ||
+        !curve_desc_value_read(&pos, end, &desc->n) ||
+        end - pos != 4) {
+        throw_new(env, "java/security/InvalidAlgorithmParameterException", "Invalid curve descriptor.");
+        return false;
+    }
+    desc->cofactor = (jint) (((unsigned int) pos[0] << 24) | ((unsigned int) pos[1] << 16) | ((unsigned int) pos[2] << 8) | pos[3]);
+    return true;
+}
+
+#define CURVE_CACHE_MAX 64
+
+typedef struct {
+    unsigned char *key;
+    size_t key_len;
+    void *curve;
+    void (*destroy)(void *);
+    unsigned long long last_used;
+} curve_cache_entry;
+
+static curve_cache_entry curve_cache[CURVE_CACHE_MAX];
+static size_t curve_cache_len = 0;
+static unsigned long long curve_cache_clock = 0;
+
+#if defined(__WIN32__) || defined(_MSC_VER)
+static SRWLOCK curve_cache_lock = SRWLOCK_INIT;
+#define CURVE_CACHE_LOCK() AcquireSRWLockExclusive(&curve_cache_lock)
+#define CURVE_CACHE_UNLOCK() ReleaseSRWLockExclusive(&curve_cache_lock)
+#else
+static pthread_mutex_t curve_cache_lock = PTHREAD_MUTEX_INITIALIZER;
+#define CURVE_CACHE_LOCK() pthread_mutex_lock(&curve_cache_lock)
+#define CURVE_CACHE_UNLOCK() pthread_mutex_unlock(&curve_cache_lock)
+#endif
+
+static size_t curve_cache_size(JNIEnv *env) {
+    if (!native_provider_class || !curve_cache_size_field) {
+        return 0;
+    }
+    jint size = (*env)->GetStaticIntField(env, native_provider_class, curve_cache_size_field);
+    if (size < 0) {
+        return 0;
+    }
+    return size > CURVE_CACHE_MAX ? CURVE_CACHE_MAX : (size_t) size;
+}
+
+/**
+ * Evict the least recently used entries until at most size entries remain, needs to hold the lock.
+ */
+static void curve_cache_shrink(size_t size) {
+    while (curve_cache_len > size) {
+        size_t oldest = 0;
+        for (size_t i = 1; i < curve_cache_len; ++i) {
+            if (curve_cache[i].last_used < curve_cache[oldest].last_used) {
+                oldest = i;
+            }
+        }
+        free(curve_cache[oldest].key);
+        curve_cache[oldest].destroy(curve_cache[oldest].curve);
+        curve_cache[oldest] = curve_cache[--curve_cache_len];
+    }
+}
+
+void *curve_cache_get(JNIEnv *env, const curve_desc *desc, void *(*create)(JNIEnv *, const curve_desc *), void *(*dup)(const void *), void (*destroy)(void *)) {
+    size_t size = curve_cache_size(env);
+    if (size == 0) {
+        if (curve_cache_len != 0) {
+            CURVE_CACHE_LOCK();
+            curve_cache_shrink(0);
+            CURVE_CACHE_UNLOCK();
+        }
+        return create(env, desc);
+    }
+
+    void *result = NULL;
+    CURVE_CACHE_LOCK();
+    for (size_t i = 0; i < curve_cache_len; ++i) {
+        if (curve_cache[i].key_len == desc->len && memcmp(curve_cache[i].key, desc->data, desc->len) == 0) {
+            curve_cache[i].last_used = ++curve_cache_clock;
+            result = dup(curve_cache[i].curve);
+            break;
+        }
+    }
+    CURVE_CACHE_UNLOCK();
+    if (result) {
+        return result;
+    }
+
+    result = create(env, desc);
+    if (!result) {
+        return NULL;
+    }
+    void *cached = dup(result);
+    if (!cached) {
+        return result;
+    }
+    /* The descriptor is the key, it is owned by the Java side, so keep a copy. */
+    size_t key_len = desc->len;
+    unsigned char *key = malloc(key_len);
+    memcpy(key, desc->data, key_len);
+
+    CURVE_CACHE_LOCK();
+    curve_cache_shrink(size - 1);
+    curve_cache[curve_cache_len].key = key;
+    curve_cache[curve_cache_len].key_len = key_len;
+    curve_cache[curve_cache_len].curve = cached;
+    curve_cache[curve_cache_len].destroy = destroy;
+    curve_cache[curve_cache_len].last_used = ++curve_cache_clock;
+    curve_cache_len++;
+    CURVE_CACHE_UNLOCK();
+    return result;
+}
@@ -54,6 +54,49 @@ bool asn1_der_decode(JNIEnv *env, jbyteArray sig, jbyte **r_data, size_t *r_len,
  */
 char *biginteger_to_hex(JNIEnv *env, jobject big, jint bytes);
 
+/**
+ * A big-endian unsigned value in a curve descriptor.
+ */
+typedef struct {
+    const unsigned char *data;
+    size_t len;
+} curve_desc_value;
+
+/**
+ * The curve domain parameters read from a CurveDescriptor (a direct ByteBuffer), see CurveDescriptor.java for the layout.
+ * The values point into the buffer, which is owned by the Java side and stays valid for the duration of the native call.
+ */
+typedef struct {
+    const unsigned char *data;
+    size_t len;
+    jbyte field_type;
+    curve_desc_value field;
+    curve_desc_value a;
+    curve_desc_value b;
+    curve_desc_value gx;
+    curve_desc_value gy;
+    curve_desc_value n;
+    jint cofactor;
+} curve_desc;
+
+#define CURVE_DESC_FP 1
+#define CURVE_DESC_F2M 2
+
+/**
+ * Read the curve descriptor in the direct ByteBuffer buffer into desc, without calling back into the JVM.
+ * Throws InvalidAlgorithmParameterException and returns false if the buffer is not a valid descriptor.
+ */
+bool curve_desc_read(JNIEnv *env, jobject buffer, curve_desc *desc);
+
+/**
+ * Get a native curve object for the curve descriptor desc from the bounded curve cache,
+ * if it is not present (or the cache is disabled), create it using create and cache a copy.
+ * The returned curve object is always a copy made by dup (or the one made by create),
+ * owned by the caller who is responsible for freeing it. The cache size is controlled by
+ * NativeProvider.setCurveCacheSize(int) on the Java side, zero disables it.
+ */
+void *curve_cache_get(JNIEnv *env, const curve_desc *desc, void *(*create)(JNIEnv *, const curve_desc *), void *(*dup)(const void *), void (*destroy)(void *));
+
 /**
  * Some useful defines to init the provider.
  */
@@ -93,51 +93,17 @@ static jobject bignum_to_biginteger(JNIEnv *env, const BIGNUM *bn) {
     return result;
 }
 
-static BIGNUM *biginteger_to_bignum(JNIEnv *env, jobject bigint) {
-    jmethodID to_byte_array = (*env)->GetMethodID(env, biginteger_class, "toByteArray", "()[B");
-
-    jbyteArray byte_array = (jbyteArray) (*env)->CallObjectMethod(env, bigint, to_byte_array);
-    jsize byte_length = (*env)->GetArrayLength(env, byte_array);
-    jbyte *byte_data = (*env)->GetByteArrayElements(env, byte_array, NULL);
-    BIGNUM *result = BN_bin2bn((unsigned char *) byte_data, byte_length, NULL);
-    (*env)->ReleaseByteArrayElements(env, byte_array, byte_data, JNI_ABORT);
-    return result;
-}
-
-static EC_GROUP *create_curve(JNIEnv *env, jobject params) {
-    jmethodID get_curve = (*env)->GetMethodID(env, ec_parameter_spec_class, "getCurve", "()Ljava/security/spec/EllipticCurve;");
-    jobject elliptic_curve = (*env)->CallObjectMethod(env, params, get_curve);
-
-    jmethodID get_field = (*env)->GetMethodID(env, elliptic_curve_class, "getField", "()Ljava/security/spec/ECField;");
-    jobject field = (*env)->CallObjectMethod(env, elliptic_curve, get_field);
-
-    jmethodID get_a = (*env)->GetMethodID(env, elliptic_curve_class, "getA", "()Ljava/math/BigInteger;");
-    jobject a = (*env)->CallObjectMethod(env, elliptic_curve, get_a);
-    BIGNUM *a_bn = biginteger_to_bignum(env, a);
-
-    jmethodID get_b = (*env)->GetMethodID(env, elliptic_curve_class, "getB", "()Ljava/math/BigInteger;");
-    jobject b = (*env)->CallObjectMethod(env, elliptic_curve, get_b);
-    BIGNUM *b_bn = biginteger_to_bignum(env, b);
-
-    jmethodID get_g = (*env)->GetMethodID(env, ec_parameter_spec_class, "getGenerator", "()Ljava/security/spec/ECPoint;");
-    jobject g = (*env)->CallObjectMethod(env, params, get_g);
-
-    jmethodID get_x = (*env)->GetMethodID(env, point_class, "getAffineX", "()Ljava/math/BigInteger;");
-    jobject gx = (*env)->CallObjectMethod(env, g, get_x);
-    BIGNUM *gx_bn = biginteger_to_bignum(env, gx);
-
-    jmethodID get_y = (*env)->GetMethodID(env, point_class, "getAffineY", "()Ljava/math/BigInteger;");
-    jobject gy = (*env)->CallObjectMethod(env, g, get_y);
-    BIGNUM *gy_bn = biginteger_to_bignum(env, gy);
+static EC_GROUP *create_curve(JNIEnv *env, const curve_desc *desc) {
+    BIGNUM *a_bn = BN_bin2bn(desc->a.data, desc->a.len, NULL);
+    BIGNUM *b_bn = BN_bin2bn(desc->b.data, desc->b.len, NULL);
+    BIGNUM *gx_bn = BN_bin2bn(desc->gx.data, desc->gx.len, NULL);
+    BIGNUM *gy_bn = BN_bin2bn(desc->gy.data, desc->gy.len, NULL);
 
     EC_GROUP *result;
     EC_POINT *g_point;
 
-    if ((*env)->IsInstanceOf(env, field, fp_field_class)) {
-        jmethodID get_p = (*env)->GetMethodID(env, fp_field_class, "getP", "()Ljava/math/BigInteger;");
-        jobject p = (*env)->CallObjectMethod(env, field, get_p);
-
-        BIGNUM *p_bn = biginteger_to_bignum(env, p);
+    if (desc->field_type == CURVE_DESC_FP) {
+        BIGNUM *p_bn = BN_bin2bn(desc->field.data, desc->field.len, NULL);
         result = EC_GROUP_new_curve_GFp(p_bn, a_bn, b_bn, NULL);
         BN_free(p_bn);
 
@@ -153,11 +119,8 @@ static EC_GROUP *create_curve(JNIEnv *env, jobject params) {
             BN_free(a_bn); BN_free(b_bn); BN_free(gx_bn); BN_free(gy_bn); EC_POINT_free(g_point); EC_GROUP_free(result);
             return NULL;
         }
-     } else if ((*env)->IsInstanceOf(env, field, f2m_field_class)) {
-		jmethodID get_reduction_poly = (*env)->GetMethodID(env, f2m_field_class, "getReductionPolynomial", "()Ljava/math/BigInteger;");
-		jobject red_poly = (*env)->CallObjectMethod(env, field, get_reduction_poly);
-
-		BIGNUM *p_bn = biginteger_to_bignum(env, red_poly);
+     } else if (desc->field_type == CURVE_DESC_F2M) {
+		BIGNUM *p_bn = BN_bin2bn(desc->field.data, desc->field.len, NULL);
 		result = EC_GROUP_new_curve_GF2m(p_bn, a_bn, b_bn, NULL);
 		BN_free(p_bn);
 		if (!result) {
@@ -179,12 +142,9 @@ static EC_GROUP *create_curve(JNIEnv *env, jobject params) {
 	BN_free(a_bn);
 	BN_free(b_bn);
 
-    jmethodID get_n = (*env)->GetMethodID(env, ec_parameter_spec_class, "getOrder", "()Ljava/math/BigInteger;");
-    jobject n = (*env)->CallObjectMethod(env, params, get_n);
-    BIGNUM *n_bn = biginteger_to_bignum(env, n);
+    BIGNUM *n_bn = BN_bin2bn(desc->n.data, desc->n.len, NULL);
 
-    jmethodID get_h = (*env)->GetMethodID(env, ec_parameter_spec_class, "getCofactor", "()I");
-    jint h = (*env)->CallIntMethod(env, params, get_h);
+    jint h = desc->cofactor;
     BIGNUM *h_bn = BN_new();
     BN_set_word(h_bn, h);
 
@@ -203,13 +163,36 @@ static EC_GROUP *create_curve(JNIEnv *env, jobject params) {
     return result;
 }
 
-JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_paramsSupported(JNIEnv *env, jobject self, jobject params){
+static void *create_curve_cached(JNIEnv *env, const curve_desc *desc) {
+    return create_curve(env, desc);
+}
+
+static void *dup_curve(const void *curve) {
+    return EC_GROUP_dup((const EC_GROUP *) curve);
+}
+
+static void free_curve(void *curve) {
+    EC_GROUP_free((EC_GROUP *) curve);
+}
+
+/**
+ * Get the EC_GROUP for the curve descriptor from the curve cache (creating it if necessary), the caller frees it.
+ */
+static EC_GROUP *get_curve(JNIEnv *env, const curve_desc *desc) {
+    return (EC_GROUP *) curve_cache_get(env, desc, &create_curve_cached, &dup_curve, &free_curve);
+}
+
+JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_paramsSupported(JNIEnv *env, jobject self, jobject params, jobject descriptor){
     if (params == NULL) {
         return JNI_FALSE;
     }
 
     if ((*env)->IsInstanceOf(env, params, ec_parameter_spec_class)) {
-        EC_GROUP *curve = create_curve(env, params);
+        curve_desc desc;
+        if (!curve_desc_read(env, descriptor, &desc)) {
+            return JNI_FALSE;
+        }
+        EC_GROUP *curve = create_curve(env, &desc);
         jboolean result = (EC_GROUP_check(curve, NULL) == 1) ? JNI_TRUE : JNI_FALSE;
         EC_GROUP_free(curve);
         return result;
@@ -436,9 +419,13 @@ JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPai
     return result;
 }
 
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_security_SecureRandom_2(JNIEnv *env, jobject self, jobject params, jobject random) {
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_nio_ByteBuffer_2Ljava_security_SecureRandom_2(JNIEnv *env, jobject self, jobject params, jobject descriptor, jobject random) {
     if ((*env)->IsInstanceOf(env, params, ec_parameter_spec_class)) {
-        EC_GROUP *curve = create_curve(env, params);
+        curve_desc desc;
+        if (!curve_desc_read(env, descriptor, &desc)) {
+            return NULL;
+        }
+        EC_GROUP *curve = get_curve(env, &desc);
         jobject result = generate_from_curve(env, curve);
         EC_GROUP_free(curve);
         return result;
@@ -495,8 +482,12 @@ EC_KEY *barray_to_privkey(JNIEnv *env,  const EC_GROUP *curve, jbyteArray priv)
     return result;
 }
 
-JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2(JNIEnv *env, jobject self, jbyteArray pubkey, jbyteArray privkey, jobject params) {
-    EC_GROUP *curve = create_curve(env, params);
+JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_nio_ByteBuffer_2(JNIEnv *env, jobject self, jbyteArray pubkey, jbyteArray privkey, jobject descriptor) {
+    curve_desc desc;
+    if (!curve_desc_read(env, descriptor, &desc)) {
+        return NULL;
+    }
+    EC_GROUP *curve = get_curve(env, &desc);
     if (!curve) {
         throw_new(env, "java/security/InvalidAlgorithmParameterException", "Curve not found.");
         return NULL;
@@ -531,13 +522,17 @@ JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKey
     return result;
 }
 
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2Ljava_lang_String_2(JNIEnv *env, jobject self, jbyteArray pubkey, jbyteArray privkey, jobject params, jstring algorithm) {
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_nio_ByteBuffer_2Ljava_lang_String_2(JNIEnv *env, jobject self, jbyteArray pubkey, jbyteArray privkey, jobject descriptor, jstring algorithm) {
     throw_new(env, "java/lang/UnsupportedOperationException", "Not supported.");
     return NULL;
 }
 
-JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_sign(JNIEnv *env, jobject self, jbyteArray data, jbyteArray privkey, jobject params) {
-    EC_GROUP *curve = create_curve(env, params);
+JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_sign(JNIEnv *env, jobject self, jbyteArray data, jbyteArray privkey, jobject descriptor) {
+    curve_desc desc;
+    if (!curve_desc_read(env, descriptor, &desc)) {
+        return NULL;
+    }
+    EC_GROUP *curve = get_curve(env, &desc);
     if (!curve) {
         throw_new(env, "java/security/InvalidAlgorithmParameterException", "Curve not found.");
         return NULL;
@@ -573,8 +568,12 @@ JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSig
     return result;
 }
 
-JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_verify(JNIEnv *env, jobject self, jbyteArray signature, jbyteArray data, jbyteArray pubkey, jobject params) {
-    EC_GROUP *curve = create_curve(env, params);
+JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_verify(JNIEnv *env, jobject self, jbyteArray signature, jbyteArray data, jbyteArray pubkey, jobject descriptor) {
+    curve_desc desc;
+    if (!curve_desc_read(env, descriptor, &desc)) {
+        return JNI_FALSE;
+    }
+    EC_GROUP *curve = get_curve(env, &desc);
     if (!curve) {
         throw_new(env, "java/security/InvalidAlgorithmParameterException", "Curve not found.");
         return JNI_FALSE;
@@ -674,10 +674,10 @@ JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPa
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Openssl
  * Method:    paramsSupported
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;)Z
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Openssl_paramsSupported
-  (JNIEnv *, jobject, jobject);
+  (JNIEnv *, jobject, jobject, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Openssl
@@ -690,10 +690,10 @@ JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPai
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Openssl
  * Method:    generate
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Openssl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_security_SecureRandom_2
-  (JNIEnv *, jobject, jobject, jobject);
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Openssl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_nio_ByteBuffer_2Ljava_security_SecureRandom_2
+  (JNIEnv *, jobject, jobject, jobject, jobject);
 
 #ifdef __cplusplus
 }
@@ -731,17 +731,17 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Openssl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
-JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Openssl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2
+JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Openssl_generateSecret___3B_3BLjava_nio_ByteBuffer_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Openssl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;Ljava/lang/String;)Ljavax/crypto/SecretKey;
+ * Signature: ([B[BLjava/nio/ByteBuffer;Ljava/lang/String;)Ljavax/crypto/SecretKey;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Openssl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2Ljava_lang_String_2
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Openssl_generateSecret___3B_3BLjava_nio_ByteBuffer_2Ljava_lang_String_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject, jstring);
 
 #ifdef __cplusplus
@@ -758,7 +758,7 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Openssl
  * Method:    sign
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
 JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Openssl_sign
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
@@ -766,7 +766,7 @@ JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSig
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Openssl
  * Method:    verify
- * Signature: ([B[B[BLjava/security/spec/ECParameterSpec;)Z
+ * Signature: ([B[B[BLjava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Openssl_verify
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jbyteArray, jobject);
@@ -1036,10 +1036,10 @@ JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPa
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Boringssl
  * Method:    paramsSupported
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;)Z
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Boringssl_paramsSupported
-  (JNIEnv *, jobject, jobject);
+  (JNIEnv *, jobject, jobject, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Boringssl
@@ -1052,10 +1052,10 @@ JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPai
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Boringssl
  * Method:    generate
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Boringssl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_security_SecureRandom_2
-  (JNIEnv *, jobject, jobject, jobject);
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Boringssl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_nio_ByteBuffer_2Ljava_security_SecureRandom_2
+  (JNIEnv *, jobject, jobject, jobject, jobject);
 
 #ifdef __cplusplus
 }
@@ -1093,17 +1093,17 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Boringssl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
-JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Boringssl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2
+JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Boringssl_generateSecret___3B_3BLjava_nio_ByteBuffer_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Boringssl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;Ljava/lang/String;)Ljavax/crypto/SecretKey;
+ * Signature: ([B[BLjava/nio/ByteBuffer;Ljava/lang/String;)Ljavax/crypto/SecretKey;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Boringssl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2Ljava_lang_String_2
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Boringssl_generateSecret___3B_3BLjava_nio_ByteBuffer_2Ljava_lang_String_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject, jstring);
 
 #ifdef __cplusplus
@@ -1120,7 +1120,7 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Boringssl
  * Method:    sign
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
 JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Boringssl_sign
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
@@ -1128,7 +1128,7 @@ JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSig
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Boringssl
  * Method:    verify
- * Signature: ([B[B[BLjava/security/spec/ECParameterSpec;)Z
+ * Signature: ([B[B[BLjava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Boringssl_verify
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jbyteArray, jobject);
@@ -1941,10 +1941,10 @@ JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPa
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Libressl
  * Method:    paramsSupported
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;)Z
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_paramsSupported
-  (JNIEnv *, jobject, jobject);
+  (JNIEnv *, jobject, jobject, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Libressl
@@ -1957,10 +1957,10 @@ JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPai
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_Libressl
  * Method:    generate
- * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
+ * Signature: (Ljava/security/spec/AlgorithmParameterSpec;Ljava/nio/ByteBuffer;Ljava/security/SecureRandom;)Ljava/security/KeyPair;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_security_SecureRandom_2
-  (JNIEnv *, jobject, jobject, jobject);
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyPairGeneratorSpi_00024Libressl_generate__Ljava_security_spec_AlgorithmParameterSpec_2Ljava_nio_ByteBuffer_2Ljava_security_SecureRandom_2
+  (JNIEnv *, jobject, jobject, jobject, jobject);
 
 #ifdef __cplusplus
 }
@@ -1998,17 +1998,17 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Libressl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
-JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2
+JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_nio_ByteBuffer_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
 
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_Libressl
  * Method:    generateSecret
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;Ljava/lang/String;)Ljavax/crypto/SecretKey;
+ * Signature: ([B[BLjava/nio/ByteBuffer;Ljava/lang/String;)Ljavax/crypto/SecretKey;
  */
-JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_security_spec_ECParameterSpec_2Ljava_lang_String_2
+JNIEXPORT jobject JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeKeyAgreementSpi_00024Libressl_generateSecret___3B_3BLjava_nio_ByteBuffer_2Ljava_lang_String_2
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject, jstring);
 
 #ifdef __cplusplus
@@ -2025,7 +2025,7 @@ extern "C" {
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Libressl
  * Method:    sign
- * Signature: ([B[BLjava/security/spec/ECParameterSpec;)[B
+ * Signature: ([B[BLjava/nio/ByteBuffer;)[B
  */
 JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_sign
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jobject);
@@ -2033,7 +2033,7 @@ JNIEXPORT jbyteArray JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSig
 /*
  * Class:     cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_Libressl
  * Method:    verify
- * Signature: ([B[B[BLjava/security/spec/ECParameterSpec;)Z
+ * Signature: ([B[B[BLjava/nio/ByteBuffer;)Z
  */
 JNIEXPORT jboolean JNICALL Java_cz_crcs_ectester_standalone_libs_jni_NativeSignatureSpi_00024Libressl_verify
   (JNIEnv *, jobject, jbyteArray, jbyteArray, jbyteArray, jobject);
@@ -0,0 +1,129 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads samples written by the {@link BinarySampleWriter}.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class BinarySampleReader extends SampleReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ReadableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean eof = false;
+
+    public BinarySampleReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();
+
+        byte[] magic = new byte[BinarySampleWriter.MAGIC.length];
+        require(magic.length + 1);
+        buffer.get(magic);
+        if (!Arrays.equals(magic, BinarySampleWriter.MAGIC)) {
+            throw new IOException("Not an ECTester binary sample file.");
+        }
+        byte version = buffer.get();
+        if (version != BinarySampleWriter.VERSION) {
+            throw new IOException("Unsupported binary sample format version: " + version);
+        }
+
+        SampleWriter.Type[] allTypes = SampleWriter.Type.values();
+        int count = (int) readVarint();
+        columns = new String[count];
+        types = new SampleWriter.Type[count];
+        for (int i = 0; i < count; ++i) {
+            require(1);
+            int type = buffer.get();
+            if (type < 0 || type >= allTypes.length) {
+                throw new IOException("Invalid column type: " + type);
+            }
+            types[i] = allTypes[type];
+            byte[] name = new byte[(int) readVarint()];
+            require(name.length);
+            buffer.get(name);
+            columns[i] = new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public Object[] read() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+        int length = (int) readVarint();
+        require(length);
+        int end = buffer.position() + length;
+
+        Object[] values = new Object[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            if (types[i] == SampleWriter.Type.INTEGER) {
+                long raw = readVarint();
+                values[i] = (raw >>> 1) ^ -(raw & 1);
+            } else {
+                byte[] bytes = new byte[(int) readVarint()];
+                buffer.get(bytes);
+                values[i] = bytes;
+            }
+        }
+        if (buffer.position() != end) {
+            throw new IOException("Malformed sample record.");
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            require(1);
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private void require(int amount) throws IOException {
+        if (!fill(amount)) {
+            throw new EOFException("Truncated binary sample file.");
+        }
+    }
+
+    /**
+     * Make sure at least <code>amount</code> bytes are available in the buffer.
+     *
+     * @return whether enough bytes are available.
+     */
+    private boolean fill(int amount) throws IOException {
+        if (buffer.remaining() >= amount) {
+            return true;
+        }
+        if (amount > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(amount);
+            larger.put(buffer);
+            larger.flip();
+            buffer = larger;
+        }
+        buffer.compact();
+        while (buffer.position() < amount && !eof) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= amount;
+    }
+}
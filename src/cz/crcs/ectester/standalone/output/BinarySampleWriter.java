@@ -0,0 +1,129 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes samples in a compact length-prefixed binary format, see docs/FORMAT.md.
+ * <p>
+ * The file starts with the magic <code>ECTS</code>, a version byte and the column descriptions (type and name),
+ * followed by records. Every record is prefixed by its length and contains the values in column order,
+ * integers as zigzag varints and byte values as a varint length followed by the raw bytes.
+ * Records are gathered in a buffer and written to the channel once it fills up.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class BinarySampleWriter extends SampleWriter {
+    public static final byte[] MAGIC = {'E', 'C', 'T', 'S'};
+    public static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private WritableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public BinarySampleWriter(WritableByteChannel channel, String header, Type... types) throws IOException {
+        super(header, types);
+        this.channel = channel;
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        putVarint(buffer, columns.length);
+        for (int i = 0; i < columns.length; ++i) {
+            byte[] name = columns[i].getBytes(StandardCharsets.UTF_8);
+            buffer.put((byte) types[i].ordinal());
+            putVarint(buffer, name.length);
+            buffer.put(name);
+        }
+    }
+
+    @Override
+    public synchronized void write(Object... values) throws IOException {
+        check(values);
+        int length = 0;
+        for (int i = 0; i < values.length; ++i) {
+            length += fieldLength(types[i], values[i]);
+        }
+        int total = varintLength(length) + length;
+
+        ByteBuffer target = buffer;
+        if (total > buffer.remaining()) {
+            drain();
+            if (total > buffer.capacity()) {
+                target = ByteBuffer.allocate(total);
+            }
+        }
+        putVarint(target, length);
+        for (int i = 0; i < values.length; ++i) {
+            putField(target, types[i], values[i]);
+        }
+        if (target != buffer) {
+            target.flip();
+            writeFully(target);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    private static int fieldLength(Type type, Object value) {
+        if (type == Type.INTEGER) {
+            return varintLength(zigzag(((Number) value).longValue()));
+        }
+        int len = value == null ? 0 : ((byte[]) value).length;
+        return varintLength(len) + len;
+    }
+
+    private static void putField(ByteBuffer target, Type type, Object value) {
+        if (type == Type.INTEGER) {
+            putVarint(target, zigzag(((Number) value).longValue()));
+        } else if (value == null) {
+            putVarint(target, 0);
+        } else {
+            byte[] bytes = (byte[]) value;
+            putVarint(target, bytes.length);
+            target.put(bytes);
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int varintLength(long value) {
+        int len = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            ++len;
+        }
+        return len;
+    }
+
+    static void putVarint(ByteBuffer target, long value) {
+        while ((value & ~0x7fL) != 0) {
+            target.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+}
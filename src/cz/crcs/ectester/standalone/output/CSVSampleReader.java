@@ -0,0 +1,94 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads samples written by the {@link CSVSampleWriter}.
+ * <p>
+ * The CSV header does not contain the column types, they are derived from the column names instead:
+ * the <code>index</code>, the timing columns and <code>verified</code> are integers, the rest are hex-encoded bytes.
+ * Empty values are read as <code>null</code>.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class CSVSampleReader extends SampleReader {
+    private BufferedReader input;
+
+    public CSVSampleReader(InputStream input) throws IOException {
+        this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String header = this.input.readLine();
+        if (header == null) {
+            throw new EOFException("Empty sample file.");
+        }
+        columns = header.trim().split(";", -1);
+        types = new SampleWriter.Type[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            types[i] = typeOf(columns[i]);
+        }
+    }
+
+    private static SampleWriter.Type typeOf(String column) {
+        int bracket = column.indexOf('[');
+        String name = (bracket == -1 ? column : column.substring(0, bracket)).toLowerCase();
+        if (name.equals("index") || name.endsWith("time") || name.equals("verified") || name.equals("valid")) {
+            return SampleWriter.Type.INTEGER;
+        }
+        return SampleWriter.Type.BYTES;
+    }
+
+    @Override
+    public Object[] read() throws IOException {
+        String line;
+        do {
+            line = input.readLine();
+            if (line == null) {
+                return null;
+            }
+            line = line.trim();
+        } while (line.isEmpty());
+
+        String[] fields = line.split(";", -1);
+        if (fields.length != types.length) {
+            throw new IOException("Malformed sample line, expected " + types.length + " values, got " + fields.length + ".");
+        }
+        Object[] values = new Object[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            String field = fields[i];
+            if (field.isEmpty()) {
+                continue;
+            }
+            try {
+                if (types[i] == SampleWriter.Type.INTEGER) {
+                    values[i] = Long.parseLong(field);
+                } else {
+                    values[i] = fromHex(field);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IOException("Malformed value in column " + columns[i] + ": " + field);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new NumberFormatException(hex);
+        }
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; ++i) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new NumberFormatException(hex);
+            }
+            result[i] = (byte) ((hi << 4) | lo);
+        }
+        return result;
+    }
+}
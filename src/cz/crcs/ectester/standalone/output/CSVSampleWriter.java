@@ -0,0 +1,52 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.PrintStream;
+
+/**
+ * Writes samples as semicolon separated lines, with the byte values hex-encoded.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public class CSVSampleWriter extends SampleWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private PrintStream output;
+
+    public CSVSampleWriter(PrintStream output, String header, Type... types) {
+        super(header, types);
+        this.output = output;
+        output.println(header);
+    }
+
+    @Override
+    public void write(Object... values) {
+        check(values);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; ++i) {
+            if (i != 0) {
+                sb.append(';');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (types[i] == Type.INTEGER) {
+                sb.append(((Number) value).longValue());
+            } else {
+                for (byte b : (byte[]) value) {
+                    sb.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+                }
+            }
+        }
+        output.println(sb.toString());
+    }
+
+    @Override
+    public void flush() {
+        output.flush();
+    }
+
+    @Override
+    public void close() {
+        output.close();
+    }
+}
@@ -0,0 +1,77 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the per-iteration samples written by a {@link SampleWriter}.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public abstract class SampleReader implements AutoCloseable {
+    protected String[] columns;
+    protected SampleWriter.Type[] types;
+
+    /**
+     * Open a sample file, in either the CSV or the binary format.
+     *
+     * @param path the file to read.
+     * @return a reader of the file, in the format detected from its start.
+     * @throws IOException if the file cannot be opened or its header is malformed.
+     */
+    public static SampleReader open(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path));
+        byte[] magic = new byte[BinarySampleWriter.MAGIC.length];
+        in.mark(magic.length);
+        int read = in.readNBytes(magic, 0, magic.length);
+        in.reset();
+        if (read == magic.length && Arrays.equals(magic, BinarySampleWriter.MAGIC)) {
+            return new BinarySampleReader(Channels.newChannel(in));
+        }
+        return new CSVSampleReader(in);
+    }
+
+    public String getHeader() {
+        return String.join(";", columns);
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public SampleWriter.Type[] getTypes() {
+        return types.clone();
+    }
+
+    /**
+     * @param name the name of the column, without the unit or algorithm in brackets.
+     * @return the index of the column, or -1 if there is no such column.
+     */
+    public int getColumn(String name) {
+        for (int i = 0; i < columns.length; ++i) {
+            String column = columns[i];
+            int bracket = column.indexOf('[');
+            if ((bracket == -1 ? column : column.substring(0, bracket)).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read the next sample.
+     *
+     * @return the values of the sample in column order ({@link Long}s and <code>byte[]</code>s),
+     * or <code>null</code> at the end of input.
+     * @throws IOException if the input is truncated or malformed.
+     */
+    public abstract Object[] read() throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+}
@@ -0,0 +1,66 @@
+package cz.crcs.ectester.standalone.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the per-iteration samples of the <code>generate</code>, <code>ecdh</code> and <code>ecdsa</code> commands.
+ * <p>
+ * A sample is a row of values, one per column of the header. Values in {@link Type#INTEGER} columns
+ * are {@link Number}s, values in {@link Type#BYTES} columns are <code>byte[]</code>s, where <code>null</code>
+ * denotes a missing value and is written the same as an empty array. Implementations are safe to use from multiple threads.
+ *
+ * @author Jan Jancar johny@neuromancer.sk
+ */
+public abstract class SampleWriter implements Closeable {
+    protected final String[] columns;
+    protected final Type[] types;
+
+    /**
+     * @param header the CSV header line, columns separated by <code>;</code>.
+     * @param types  the types of the columns.
+     */
+    protected SampleWriter(String header, Type... types) {
+        this.columns = header.split(";", -1);
+        this.types = types;
+        if (columns.length != types.length) {
+            throw new IllegalArgumentException("Column count mismatch: " + columns.length + " names, " + types.length + " types.");
+        }
+    }
+
+    public String getHeader() {
+        return String.join(";", columns);
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    /**
+     * Write one sample.
+     *
+     * @param values the values of the sample, in column order.
+     * @throws IOException if the underlying output fails.
+     */
+    public abstract void write(Object... values) throws IOException;
+
+    public abstract void flush() throws IOException;
+
+    protected void check(Object[] values) {
+        if (values.length != types.length) {
+            throw new IllegalArgumentException("Expected " + types.length + " values, got " + values.length + ".");
+        }
+    }
+
+    /**
+     * Type of a sample column.
+     */
+    public enum Type {
+        INTEGER,
+        BYTES
+    }
+}
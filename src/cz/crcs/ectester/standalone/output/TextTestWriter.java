@@ -34,6 +34,10 @@ public class TextTestWriter extends BaseTextTestWriter {
         if (t instanceof StandaloneTestable) {
             StandaloneTestable<?> testable = (StandaloneTestable) t;
             Enum<?> stage = testable.getStage();
+            if (stage == null) {
+                // The test was not run, e.g. it crashed a previous run of a journaled suite.
+                return "";
+            }
             String stageName = stage.name();
             String exception = causeString(testable.getException());
             String errorCause = causeString(testable.errorCause());
@@ -10,9 +10,8 @@ import cz.crcs.ectester.standalone.test.base.KeyGeneratorTestable;
 import cz.crcs.ectester.standalone.test.base.SignatureTestable;
 import cz.crcs.ectester.standalone.test.base.StandaloneTestable;
 import cz.crcs.ectester.standalone.test.suites.StandaloneTestSuite;
-import org.w3c.dom.Element;
 
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.OutputStream;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -22,86 +21,67 @@ import java.security.PublicKey;
  */
 public class XMLTestWriter extends BaseXMLTestWriter {
 
-    public XMLTestWriter(OutputStream output) throws ParserConfigurationException {
+    public XMLTestWriter(OutputStream output) {
         super(output);
     }
 
-    private Element pkeyElement(PublicKey pkey) {
-        Element pubkey = doc.createElement("pubkey");
-        if (pkey == null) {
-            return pubkey;
+    private void pkeyElement(PublicKey pkey) throws XMLStreamException {
+        startElement("pubkey");
+        if (pkey != null) {
+            attribute("algorithm", pkey.getAlgorithm());
+            attribute("format", pkey.getFormat());
+            text(ByteUtil.bytesToHex(pkey.getEncoded()));
         }
-        pubkey.setAttribute("algorithm", pkey.getAlgorithm());
-        pubkey.setAttribute("format", pkey.getFormat());
-        pubkey.setTextContent(ByteUtil.bytesToHex(pkey.getEncoded()));
-        return pubkey;
+        endElement();
     }
 
-    private Element skeyElement(PrivateKey skey) {
-        Element privkey = doc.createElement("privkey");
-        if (skey == null) {
-            return privkey;
+    private void skeyElement(PrivateKey skey) throws XMLStreamException {
+        startElement("privkey");
+        if (skey != null) {
+            attribute("algorithm", skey.getAlgorithm());
+            attribute("format", skey.getFormat());
+            text(ByteUtil.bytesToHex(skey.getEncoded()));
         }
-        privkey.setAttribute("algorithm", skey.getAlgorithm());
-        privkey.setAttribute("format", skey.getFormat());
-        privkey.setTextContent(ByteUtil.bytesToHex(skey.getEncoded()));
-        return privkey;
+        endElement();
     }
 
-    private Element kaElement(KeyAgreementTestable kat) {
-        Element katElem = doc.createElement("key-agreement");
-        katElem.setAttribute("algo", kat.getKa().getAlgorithm());
+    private void kaElement(KeyAgreementTestable kat) throws XMLStreamException {
+        startElement("key-agreement");
+        attribute("algo", kat.getKa().getAlgorithm());
 
-        Element secret = doc.createElement("secret");
-        secret.setTextContent(ByteUtil.bytesToHex(kat.getSecret()));
-        katElem.appendChild(secret);
+        textElement("secret", ByteUtil.bytesToHex(kat.getSecret()));
+        pkeyElement(kat.getPublicKey());
+        skeyElement(kat.getPrivateKey());
 
-        PublicKey pkey = kat.getPublicKey();
-        Element pubkey = pkeyElement(pkey);
-        katElem.appendChild(pubkey);
-
-        PrivateKey skey = kat.getPrivateKey();
-        Element privkey = skeyElement(skey);
-        katElem.appendChild(privkey);
-
-        return katElem;
+        endElement();
     }
 
-    private Element kgtElement(KeyGeneratorTestable kgt) {
-        Element kgtElem = doc.createElement("key-pair-generator");
-        kgtElem.setAttribute("algo", kgt.getKpg().getAlgorithm());
+    private void kgtElement(KeyGeneratorTestable kgt) throws XMLStreamException {
+        startElement("key-pair-generator");
+        attribute("algo", kgt.getKpg().getAlgorithm());
 
-        Element keyPair = doc.createElement("key-pair");
+        startElement("key-pair");
         if (kgt.getKeyPair() != null) {
-            PublicKey pkey = kgt.getKeyPair().getPublic();
-            Element pubkey = pkeyElement(pkey);
-            keyPair.appendChild(pubkey);
-
-            PrivateKey skey = kgt.getKeyPair().getPrivate();
-            Element privkey = skeyElement(skey);
-            keyPair.appendChild(privkey);
+            pkeyElement(kgt.getKeyPair().getPublic());
+            skeyElement(kgt.getKeyPair().getPrivate());
         }
+        endElement();
 
-        kgtElem.appendChild(keyPair);
-        return kgtElem;
+        endElement();
     }
 
-    private Element sigElement(SignatureTestable sig) {
-        Element sigElem = doc.createElement("signature");
-        sigElem.setAttribute("verified", sig.getVerified() ? "true" : "false");
-        sigElem.setAttribute("algo", sig.getSig().getAlgorithm());
+    private void sigElement(SignatureTestable sig) throws XMLStreamException {
+        startElement("signature");
+        attribute("verified", sig.getVerified() ? "true" : "false");
+        attribute("algo", sig.getSig().getAlgorithm());
 
-        Element raw = doc.createElement("raw");
-        raw.setTextContent(ByteUtil.bytesToHex(sig.getSignature()));
-        sigElem.appendChild(raw);
+        textElement("raw", ByteUtil.bytesToHex(sig.getSignature()));
 
-        return sigElem;
+        endElement();
     }
 
-    private Element stageElement(StandaloneTestable<?> t) {
-        Element result = doc.createElement("stage");
-        result.setTextContent(t.getStage().name());
-        return result;
+    private void stageElement(StandaloneTestable<?> t) throws XMLStreamException {
+        textElement("stage", t.getStage() != null ? t.getStage().name() : "");
     }
 
     private String causeObject(Object cause) {
@@ -116,41 +96,34 @@ public class XMLTestWriter extends BaseXMLTestWriter {
     }
 
     @Override
-    protected Element testableElement(Testable t) {
-        Element result = doc.createElement("test");
+    protected void testableElement(Testable t) throws XMLStreamException {
         if (t instanceof StandaloneTestable) {
             StandaloneTestable<?> testable = (StandaloneTestable) t;
             if (t instanceof KeyGeneratorTestable) {
-                result.setAttribute("type", "key-pair-generator");
-                result.appendChild(kgtElement((KeyGeneratorTestable) t));
+                attribute("type", "key-pair-generator");
+                kgtElement((KeyGeneratorTestable) t);
             } else if (t instanceof KeyAgreementTestable) {
-                result.setAttribute("type", "key-agreement");
-                result.appendChild(kaElement((KeyAgreementTestable) t));
+                attribute("type", "key-agreement");
+                kaElement((KeyAgreementTestable) t);
             } else if (t instanceof SignatureTestable) {
-                result.setAttribute("type", "signature");
-                result.appendChild(sigElement((SignatureTestable) t));
+                attribute("type", "signature");
+                sigElement((SignatureTestable) t);
             }
-            result.appendChild(stageElement(testable));
-            Element exception = doc.createElement("exception");
-            exception.setTextContent(causeObject(testable.getException()) + causeObject(testable.errorCause()));
-            result.appendChild(exception);
+            stageElement(testable);
+            textElement("exception", causeObject(testable.getException()) + causeObject(testable.errorCause()));
         }
-        return result;
     }
 
     @Override
-    protected Element deviceElement(TestSuite suite) {
+    protected void deviceElement(TestSuite suite) throws XMLStreamException {
         if (suite instanceof StandaloneTestSuite) {
             StandaloneTestSuite standaloneSuite = (StandaloneTestSuite) suite;
-            Element result = doc.createElement("device");
-            result.setAttribute("type", "library");
-            result.setAttribute("ectester", ECTesterStandalone.VERSION);
-
-            Element name = doc.createElement("name");
-            name.setTextContent(standaloneSuite.getLibrary().name());
-            result.appendChild(name);
-            return result;
+            startElement("device");
+            attribute("type", "library");
+            attribute("ectester", ECTesterStandalone.VERSION);
+
+            textElement("name", standaloneSuite.getLibrary().name());
+            endElement();
         }
-        return null;
     }
 }
@@ -103,7 +103,7 @@ public class YAMLTestWriter extends BaseYAMLTestWriter {
                 result.put("type", "signature");
                 result.put("signature", sigObject((SignatureTestable) t));
             }
-            result.put("stage", testable.getStage().name());
+            result.put("stage", testable.getStage() != null ? testable.getStage().name() : null);
             result.put("exception", causeObject(testable.getException()) + causeObject(testable.errorCause()));
         }
         return result;
@@ -83,8 +83,8 @@ public class StandaloneDefaultSuite extends StandaloneTestSuite {
             kgtOther = new KeyGeneratorTestable(kpg);
         }
 
-        doTest(KeyGeneratorTest.expect(kgtOne, Result.ExpectedValue.SUCCESS));
-        doTest(KeyGeneratorTest.expect(kgtOther, Result.ExpectedValue.SUCCESS));
+        doStatefulTest(KeyGeneratorTest.expect(kgtOne, Result.ExpectedValue.SUCCESS));
+        doStatefulTest(KeyGeneratorTest.expect(kgtOther, Result.ExpectedValue.SUCCESS));
 
         for (KeyAgreementIdent kaIdent : cfg.selected.getKAs()) {
             if (kaAlgo == null || kaIdent.contains(kaAlgo)) {
@@ -3,6 +3,7 @@ package cz.crcs.ectester.standalone.test.suites;
 import cz.crcs.ectester.common.cli.TreeCommandLine;
 import cz.crcs.ectester.common.ec.EC_Curve;
 import cz.crcs.ectester.common.output.TestWriter;
+import cz.crcs.ectester.common.test.BaseTestable;
 import cz.crcs.ectester.common.test.CompoundTest;
 import cz.crcs.ectester.common.test.Result;
 import cz.crcs.ectester.common.test.Test;
@@ -25,7 +26,10 @@ import java.util.stream.Collectors;
  * @author David Hofman
  */
 public class StandalonePerformanceSuite extends StandaloneTestSuite {
-    private final int count = 100;
+    private int warmup;
+    private int count;
+    private int maxCount;
+    private double precision;
 
     public StandalonePerformanceSuite(TestWriter writer, ECTesterStandalone.Config cfg, TreeCommandLine cli) {
         super(writer, cfg, cli, "performance", "The performance test suite measures performance of KeyPair generation, KeyAgreement and Signature operations.",
@@ -33,7 +37,8 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
                 "\t - gt/kpg-type (select multiple types by separating them with commas)",
                 "\t - kt/ka-type (select multiple types by separating them with commas)",
                 "\t - st/sig-type (select multiple types by separating them with commas)",
-                "\t - key-type");
+                "\t - key-type",
+                "\t - perf-warmup, perf-count, perf-max, perf-precision");
     }
 
     @Override
@@ -42,6 +47,10 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
         String kaAlgo = cli.getOptionValue("test.ka-type");
         String sigAlgo = cli.getOptionValue("test.sig-type");
         String keyAlgo = cli.getOptionValue("test.key-type", "AES");
+        warmup = Integer.parseInt(cli.getOptionValue("test.perf-warmup", "10"));
+        count = Integer.parseInt(cli.getOptionValue("test.perf-count", "100"));
+        maxCount = Integer.parseInt(cli.getOptionValue("test.perf-max", String.valueOf(count)));
+        precision = Double.parseDouble(cli.getOptionValue("test.perf-precision", "0"));
 
         List<String> kpgTypes = kpgAlgo != null ? Arrays.asList(kpgAlgo.split(",")) : new ArrayList<>();
         List<String> kaTypes = kaAlgo != null ? Arrays.asList(kaAlgo.split(",")) : new ArrayList<>();
@@ -93,7 +102,7 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
                 kgtOne = new KeyGeneratorTestable(kpg);
                 kgtOther = new KeyGeneratorTestable(kpg);
             }
-            kpgTests.add(PerformanceTest.repeat(kgtOne, kpgIdent.getName(), count));
+            kpgTests.add(repeat(kgtOne, kpgIdent.getName()));
         }
         runTest(KeyGeneratorTest.expect(kgtOther, Result.ExpectedValue.SUCCESS));
         doTest(CompoundTest.all(Result.ExpectedValue.SUCCESS, "KeyPairGenerator performance tests", kpgTests.toArray(new Test[0])));
@@ -108,7 +117,7 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
                 } else {
                     testable = new KeyAgreementTestable(ka, kgtOne, kgtOther, spec);
                 }
-                kaTests.add(PerformanceTest.repeat(testable, kaIdent.getName(), count));
+                kaTests.add(repeat(testable, kaIdent.getName()));
             }
         }
         if(kaTests.isEmpty()) {
@@ -121,10 +130,10 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
         for (SignatureIdent sigIdent : cfg.selected.getSigs()) {
             if (sigAlgo == null || sigIdent.containsAny(sigTypes)) {
                 Signature sig = sigIdent.getInstance(cfg.selected.getProvider());
-                sigTests.add(PerformanceTest.repeat(new SignatureTestable(sig, kgtOne, null), sigIdent.getName(),count));
+                sigTests.add(repeat(new SignatureTestable(sig, kgtOne, null), sigIdent.getName()));
                 if(kgtOne.getKeyPair() != null) {
                     ECPrivateKey signKey = (ECPrivateKey) kgtOne.getKeyPair().getPrivate();
-                    sigTestsNoVerification.add(PerformanceTest.repeat(new SignatureTestable(sig, signKey, null, null), sigIdent.getName(), count));
+                    sigTestsNoVerification.add(repeat(new SignatureTestable(sig, signKey, null, null), sigIdent.getName()));
                 }
             }
         }
@@ -139,4 +148,8 @@ public class StandalonePerformanceSuite extends StandaloneTestSuite {
         Test signOnly = CompoundTest.all(Result.ExpectedValue.SUCCESS, "Sign only, no verification", sigTestsNoVerification.toArray(new Test[0]));
         doTest(CompoundTest.all(Result.ExpectedValue.SUCCESS, "Signature performance tests", signAndVerify, signOnly));
     }
+
+    private PerformanceTest repeat(BaseTestable testable, String desc) {
+        return PerformanceTest.repeat(testable, desc, warmup, count, maxCount, precision);
+    }
 }
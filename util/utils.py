@@ -35,6 +35,48 @@ def time_scale(data, orig_unit, target_unit, scaling_factor):
         np.floor_divide(data, lower // upper, data)
     return (r"$\frac{1}{" + str(scaling_factor) + "}$" if scaling_factor != 1 else "") + units[target_unit][0]
 
+def _read_varint(f):
+    res = 0
+    shift = 0
+    while True:
+        b = f.read(1)
+        if not b:
+            raise EOFError
+        res |= (b[0] & 0x7f) << shift
+        if not b[0] & 0x80:
+            return res
+        shift += 7
+
+
+def load_samples(fname):
+    """Load the binary sample output of ECTesterStandalone (`--format binary`).
+
+    Returns the CSV header line and a list of rows, with integer columns as ints
+    and the other columns as bytes (the unhexlified CSV values)."""
+    with open(fname, "rb") as f:
+        if f.read(4) != b"ECTS":
+            raise ValueError("Not an ECTester binary sample file.")
+        if f.read(1) != b"\x01":
+            raise ValueError("Unsupported binary sample format version.")
+        types = []
+        names = []
+        for _ in range(_read_varint(f)):
+            types.append(f.read(1)[0])
+            names.append(f.read(_read_varint(f)).decode())
+        rows = []
+        while f.peek(1):
+            _read_varint(f)
+            row = []
+            for t in types:
+                if t == 0:
+                    v = _read_varint(f)
+                    row.append((v >> 1) ^ -(v & 1))
+                else:
+                    row.append(f.read(_read_varint(f)))
+            rows.append(tuple(row))
+    return ";".join(names), rows
+
+
 def recompute_nonces(data, curve_name, hash_algo):
     try:
         curve = ec.get_curve(curve_name)